@@ -33,11 +33,34 @@ public class MultivariateCholetteSpec implements ProcSpecification, Validatable<
 
     public static final AlgorithmDescriptor ALGORITHM = new AlgorithmDescriptor("benchmarking", "multivariatecholette", null);
 
+    public static enum Engine {
+        /**
+         * Smoothing of a multivariate state space model
+         */
+        Ssf,
+        /**
+         * Direct solution of the corresponding GLS problem (sparse linear
+         * system). Suited for large sets of constraints
+         */
+        Gls,
+        /**
+         * Fast approximation in two steps: univariate benchmarking of the
+         * series with temporal constraints, then weighted projection on the
+         * contemporaneous constraints, period by period. The contemporaneous
+         * constraints are exactly satisfied, the temporal constraints only
+         * approximately
+         */
+        TwoStep
+    }
+
+    public static final Engine DEF_ENGINE = Engine.Ssf;
     public static double DEF_LAMBDA = 1, DEF_RHO = 1;
 
     private double rho;
     private double lambda;
     @lombok.NonNull
+    private Engine engine;
+    @lombok.NonNull
     @lombok.Singular
     private List<ContemporaneousConstraint> contemporaneousConstraints;
     @lombok.NonNull
@@ -63,7 +86,8 @@ public class MultivariateCholetteSpec implements ProcSpecification, Validatable<
         
         return new Builder()
                 .lambda(DEF_LAMBDA)
-                .rho(DEF_RHO);
+                .rho(DEF_RHO)
+                .engine(DEF_ENGINE);
     }
 
 }
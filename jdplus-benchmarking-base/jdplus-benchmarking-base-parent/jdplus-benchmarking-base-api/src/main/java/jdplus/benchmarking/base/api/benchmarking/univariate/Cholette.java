@@ -16,6 +16,8 @@
  */
 package jdplus.benchmarking.base.api.benchmarking.univariate;
 
+import java.util.ArrayList;
+import java.util.List;
 import jdplus.toolkit.base.api.design.Algorithm;
 import jdplus.toolkit.base.api.timeseries.TsData;
 import nbbrd.design.Development;
@@ -45,12 +47,36 @@ public class Cholette {
         return PROCESSOR.get().benchmark(source, target, spec);
     }
 
+    public List<TsData> benchmark(List<TsData> source, List<TsData> target, CholetteSpec spec) {
+        return PROCESSOR.get().benchmark(source, target, spec);
+    }
+
     @Algorithm
     @ServiceDefinition(quantifier = Quantifier.SINGLE, mutability = Mutability.CONCURRENT, noFallback = true)
     @FunctionalInterface
     public static interface Processor {
 
         TsData benchmark(TsData source, TsData target, CholetteSpec spec);
+
+        /**
+         * Benchmarks a set of series with the same specification. The i-th
+         * series is benchmarked on the i-th aggregation constraint
+         *
+         * @param source
+         * @param target
+         * @param spec
+         * @return The benchmarked series, in the same order as the inputs
+         */
+        default List<TsData> benchmark(List<TsData> source, List<TsData> target, CholetteSpec spec) {
+            if (source.size() != target.size()) {
+                throw new IllegalArgumentException();
+            }
+            List<TsData> rslt = new ArrayList<>(source.size());
+            for (int i = 0; i < source.size(); ++i) {
+                rslt.add(benchmark(source.get(i), target.get(i), spec));
+            }
+            return rslt;
+        }
     }
 
 }
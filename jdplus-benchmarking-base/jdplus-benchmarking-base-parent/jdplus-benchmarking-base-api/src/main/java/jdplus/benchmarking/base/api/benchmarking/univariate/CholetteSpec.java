@@ -38,7 +38,21 @@ public class CholetteSpec implements ProcSpecification, Validatable<CholetteSpec
         None, Additive, Multiplicative
     };
 
+    public static enum Engine {
+        /**
+         * Smoothing of a state space model
+         */
+        Ssf,
+        /**
+         * Direct solution of the corresponding GLS problem (banded linear
+         * system). Only used for flows (sum or average); the state space
+         * engine is used otherwise
+         */
+        Gls
+    }
+
     public static BiasCorrection DEF_BIAS = BiasCorrection.None;
+    public static final Engine DEF_ENGINE = Engine.Ssf;
     public static double DEF_LAMBDA = 1, DEF_RHO = 1;
     private double rho;
     private double lambda;
@@ -46,6 +60,8 @@ public class CholetteSpec implements ProcSpecification, Validatable<CholetteSpec
     @lombok.NonNull
     private AggregationType aggregationType;
     private int observationPosition, defaultPeriod;
+    @lombok.NonNull
+    private Engine engine;
 
     public static Builder builder() {
         return new Builder()
@@ -54,7 +70,8 @@ public class CholetteSpec implements ProcSpecification, Validatable<CholetteSpec
                 .rho(DEF_RHO)
                 .aggregationType(AggregationType.Sum)
                 .observationPosition(0)
-                .defaultPeriod(12);
+                .defaultPeriod(12)
+                .engine(DEF_ENGINE);
     }
 
     @Override
@@ -16,6 +16,8 @@
  */
 package jdplus.benchmarking.base.api.benchmarking.univariate;
 
+import java.util.ArrayList;
+import java.util.List;
 import jdplus.toolkit.base.api.timeseries.TsUnit;
 import jdplus.toolkit.base.api.timeseries.TsData;
 import jdplus.toolkit.base.api.design.Algorithm;
@@ -50,6 +52,10 @@ public class CubicSpline {
         return PROCESSOR.get().benchmark(highFreq, aggregationConstraint, spec);
     }
 
+    public List<TsData> benchmark(List<TsData> highFreqSeries, List<TsData> aggregationConstraints, CubicSplineSpec spec) {
+        return PROCESSOR.get().benchmark(highFreqSeries, aggregationConstraints, spec);
+    }
+
     @Algorithm
     @ServiceDefinition(quantifier = Quantifier.SINGLE, mutability = Mutability.CONCURRENT, noFallback = true)
     public interface Processor {
@@ -57,6 +63,26 @@ public class CubicSpline {
         TsData benchmark(TsData highFreqSeries, TsData aggregationConstraint, CubicSplineSpec spec);
 
         TsData benchmark(TsUnit highFreq, TsData aggregationConstraint, CubicSplineSpec spec);
+
+        /**
+         * Benchmarks a set of series with the same specification. The i-th
+         * series is benchmarked on the i-th aggregation constraint
+         *
+         * @param highFreqSeries
+         * @param aggregationConstraints
+         * @param spec
+         * @return The benchmarked series, in the same order as the inputs
+         */
+        default List<TsData> benchmark(List<TsData> highFreqSeries, List<TsData> aggregationConstraints, CubicSplineSpec spec) {
+            if (highFreqSeries.size() != aggregationConstraints.size()) {
+                throw new IllegalArgumentException();
+            }
+            List<TsData> rslt = new ArrayList<>(highFreqSeries.size());
+            for (int i = 0; i < highFreqSeries.size(); ++i) {
+                rslt.add(benchmark(highFreqSeries.get(i), aggregationConstraints.get(i), spec));
+            }
+            return rslt;
+        }
     }
 
 }
@@ -33,6 +33,28 @@ public class DentonSpec implements ProcSpecification, Validatable<DentonSpec> {
 
     public static final AlgorithmDescriptor DESCRIPTOR = new AlgorithmDescriptor("benchmarking", "denton", null);
 
+    public static enum Engine {
+        /**
+         * Banded solver for long series, dense solver otherwise
+         */
+        Auto,
+        /**
+         * Dense solution of the complete linear system
+         */
+        Dense,
+        /**
+         * Banded factorization of the linear system (linear in the length of
+         * the series)
+         */
+        Banded
+    }
+
+    /**
+     * The banded engine is used by default for long series. Both engines
+     * solve the same linear system and agree up to rounding errors
+     */
+    public static final Engine DEF_ENGINE = Engine.Auto;
+
     private boolean multiplicative, modified;
     private int differencing;
     @lombok.NonNull
@@ -40,6 +62,8 @@ public class DentonSpec implements ProcSpecification, Validatable<DentonSpec> {
     private int observationPosition;
     
     private int defaultPeriod;
+    @lombok.NonNull
+    private Engine engine;
 
     public static Builder builder() {
         return new Builder()
@@ -48,7 +72,8 @@ public class DentonSpec implements ProcSpecification, Validatable<DentonSpec> {
                 .differencing(1)
                 .aggregationType(AggregationType.Sum)
                 .observationPosition(0)
-                .defaultPeriod(12);
+                .defaultPeriod(12)
+                .engine(DEF_ENGINE);
     }
 
     @Override
@@ -45,11 +45,32 @@ public class GrowthRatePreservation {
         return PROCESSOR.get().benchmark(highFreqSeries, aggregationConstraint, spec);
     }
 
+    public TsData benchmark(TsData highFreqSeries, TsData aggregationConstraint, GrpSpec spec, TsData previous) {
+        return PROCESSOR.get().benchmark(highFreqSeries, aggregationConstraint, spec, previous);
+    }
+
     @Algorithm
     @ServiceDefinition(quantifier = Quantifier.SINGLE, mutability = Mutability.CONCURRENT, noFallback = true)
     public interface Processor {
 
         TsData benchmark(TsData highFreqSeries, TsData aggregationConstraint, GrpSpec spec);
+
+        /**
+         * Benchmarks a series, starting the optimization from a previous
+         * solution (typically the benchmarked series of the previous vintage).
+         * The previous solution is extended on the new periods by means of
+         * the growth rates of the high-frequency series
+         *
+         * @param highFreqSeries
+         * @param aggregationConstraint
+         * @param spec
+         * @param previous Previous benchmarked series (same frequency as the
+         * high-frequency series). May be null
+         * @return
+         */
+        default TsData benchmark(TsData highFreqSeries, TsData aggregationConstraint, GrpSpec spec, TsData previous) {
+            return benchmark(highFreqSeries, aggregationConstraint, spec);
+        }
     }
 
 }
@@ -35,6 +35,19 @@ public class GrpSpec implements ProcSpecification, Validatable<GrpSpec> {
         Forward, Backward, Symmetric, Log
     }
 
+    public static enum Solver {
+        /**
+         * Quasi-Newton method (BFGS)
+         */
+        Bfgs,
+        /**
+         * Damped Newton method using the exact (banded) hessian
+         */
+        Newton
+    }
+
+    public static final Solver DEF_SOLVER = Solver.Bfgs;
+
     public static final AlgorithmDescriptor ALGORITHM = new AlgorithmDescriptor("benchmarking", "grp", null);
 
     private Objective objective;
@@ -44,6 +57,8 @@ public class GrpSpec implements ProcSpecification, Validatable<GrpSpec> {
     private boolean dentonInitialization;
     private int maxIter;
     private double precision;
+    @lombok.NonNull
+    private Solver solver;
 
     public static Builder builder() {
         return new Builder()
@@ -52,6 +67,7 @@ public class GrpSpec implements ProcSpecification, Validatable<GrpSpec> {
                 .observationPosition(0)
                 .maxIter(500)
                 .precision(1e-12)
+                .solver(DEF_SOLVER)
                 .dentonInitialization(true);
 
     }
@@ -48,6 +48,20 @@ public final class TemporalDisaggregationSpec implements ProcSpecification, Vali
 
     public static final AggregationType DEF_AGGREGATION = AggregationType.Sum;
 
+    public static enum Optimizer {
+        /**
+         * Levenberg-Marquardt minimizer, with numerical derivatives
+         */
+        LevenbergMarquardt,
+        /**
+         * Brent's method (golden section search with parabolic
+         * interpolation) on the admissible interval of the parameter
+         */
+        Brent
+    }
+
+    public static final Optimizer DEF_OPTIMIZER = Optimizer.LevenbergMarquardt;
+
     public static final TemporalDisaggregationSpec CHOWLIN = builder()
             .estimationSpan(TimeSelector.all())
             .aggregationType(AggregationType.Sum)
@@ -128,6 +142,12 @@ public final class TemporalDisaggregationSpec implements ProcSpecification, Vali
     private boolean zeroInitialization, fast;
 
     private double estimationPrecision;
+    /**
+     * Optimizer used in the estimation of the parameter of the residuals
+     * model (Ar1, RwAr1)
+     */
+    @lombok.NonNull
+    private Optimizer optimizer;
     private SsfInitialization algorithm;
     private boolean rescale;
 
@@ -150,6 +170,7 @@ public final class TemporalDisaggregationSpec implements ProcSpecification, Vali
                 .rescale(DEF_RESCALE)
                 .parameter(Parameter.undefined())
                 .estimationPrecision(DEF_EPS)
+                .optimizer(DEF_OPTIMIZER)
                 .defaultPeriod(4);
     }
 
@@ -80,6 +80,8 @@ public class TemporalDisaggregationExtractor extends InformationMapping<Temporal
             Matrix H = source.getMaximum().getHessian();
             return (H == null || H.isEmpty()) ? Double.NaN : Math.sqrt(1 / source.getMaximum().getHessian().get(0, 0));
         });
+        set(TemporalDisaggregationDictionaries.NEVALUATIONS, Integer.class, 
+                source -> source.getLikelihoodEvaluations());
         set(TemporalDisaggregationDictionaries.SPART, Double.class, source -> {
             TsData re = source.getRegressionEffects();
             if (re == null) {
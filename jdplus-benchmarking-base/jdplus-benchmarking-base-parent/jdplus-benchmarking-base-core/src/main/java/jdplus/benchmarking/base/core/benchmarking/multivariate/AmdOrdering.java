@@ -0,0 +1,232 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.multivariate;
+
+import java.util.Arrays;
+
+/**
+ * Fill-reducing ordering of a symmetric sparse matrix by approximate minimum
+ * degree (AMD), computed on the quotient graph: the eliminated nodes become
+ * elements, which absorb the adjacent elements, and the degrees of the
+ * variables are replaced by the usual upper bounds of AMD.
+ * The nodes are split in blocks of consecutive indices, which are eliminated
+ * in their natural order; inside a block, the variable with the smallest
+ * (approximate) degree is eliminated first. With one block by period, the
+ * fill-in stays inside the band of the periods, while the order inside each
+ * period reduces the fill generated by the contemporaneous constraints.
+ *
+ * @author palatej
+ */
+@lombok.experimental.UtilityClass
+class AmdOrdering {
+
+    /**
+     * Computes the ordering
+     *
+     * @param A The matrix (only its pattern is used)
+     * @param blocks Starting positions of the blocks, followed by the dimension
+     * of the matrix (blocks[0] = 0, blocks[nblocks] = n)
+     * @return The permutation: perm[k] is the (old) index of the k-th
+     * eliminated node
+     */
+    int[] order(SparseSymmetricMatrix A, int[] blocks) {
+        int n = A.getDim();
+        int[] ap = A.colPtr(), ai = A.rowIdx();
+        // variables adjacent to each variable
+        int[] vlen = new int[n];
+        for (int j = 0; j < n; ++j) {
+            for (int p = ap[j]; p < ap[j + 1]; ++p) {
+                int i = ai[p];
+                if (i != j) {
+                    ++vlen[i];
+                    ++vlen[j];
+                }
+            }
+        }
+        int[][] vadj = new int[n][];
+        int[] deg = new int[n];
+        for (int k = 0; k < n; ++k) {
+            vadj[k] = new int[vlen[k]];
+            deg[k] = vlen[k];
+        }
+        Arrays.fill(vlen, 0);
+        for (int j = 0; j < n; ++j) {
+            for (int p = ap[j]; p < ap[j + 1]; ++p) {
+                int i = ai[p];
+                if (i != j) {
+                    vadj[i][vlen[i]++] = j;
+                    vadj[j][vlen[j]++] = i;
+                }
+            }
+        }
+        // elements adjacent to each variable, variables of each element
+        int[][] eadj = new int[n][], lelem = new int[n][];
+        int[] elen = new int[n], llen = new int[n];
+        // status: 0 = variable, 1 = element, 2 = absorbed element
+        byte[] status = new byte[n];
+        int[] mark = new int[n], wstamp = new int[n], w = new int[n];
+        int stamp = 0;
+        // degree lists of the current block
+        int[] head = new int[n + 1], next = new int[n], prev = new int[n];
+        int[] perm = new int[n];
+        int np = 0;
+        int[] lv = new int[n];
+        for (int b = 0; b + 1 < blocks.length; ++b) {
+            int start = blocks[b], end = blocks[b + 1];
+            Arrays.fill(head, -1);
+            int dmin = n;
+            for (int k = end - 1; k >= start; --k) {
+                insert(k, deg[k], head, next, prev);
+                dmin = Math.min(dmin, deg[k]);
+            }
+            for (int r = start; r < end; ++r) {
+                while (head[dmin] < 0) {
+                    ++dmin;
+                }
+                int v = head[dmin];
+                remove(v, deg[v], head, next, prev);
+                perm[np++] = v;
+                // variables of the new element v
+                ++stamp;
+                mark[v] = stamp;
+                int m = 0;
+                int[] av = vadj[v];
+                for (int q = 0; q < vlen[v]; ++q) {
+                    int u = av[q];
+                    if (status[u] == 0 && mark[u] != stamp) {
+                        mark[u] = stamp;
+                        lv[m++] = u;
+                    }
+                }
+                int[] ev = eadj[v];
+                for (int q = 0; q < elen[v]; ++q) {
+                    int e = ev[q];
+                    if (status[e] == 1) {
+                        int[] le = lelem[e];
+                        for (int s = 0; s < llen[e]; ++s) {
+                            int u = le[s];
+                            if (status[u] == 0 && mark[u] != stamp) {
+                                mark[u] = stamp;
+                                lv[m++] = u;
+                            }
+                        }
+                        // absorbed in v
+                        status[e] = 2;
+                        lelem[e] = null;
+                    }
+                }
+                status[v] = 1;
+                vadj[v] = null;
+                eadj[v] = null;
+                lelem[v] = Arrays.copyOf(lv, m);
+                llen[v] = m;
+                // element lists of the variables of Lv, and w(e) = |Le\Lv| for
+                // the other elements
+                ++stamp;
+                int wst = stamp;
+                for (int q = 0; q < m; ++q) {
+                    int u = lv[q];
+                    int[] eu = eadj[u];
+                    int l = 0;
+                    for (int s = 0; s < elen[u]; ++s) {
+                        int e = eu[s];
+                        if (status[e] == 1) {
+                            eu[l++] = e;
+                            if (wstamp[e] != wst) {
+                                wstamp[e] = wst;
+                                w[e] = live(e, lelem, llen, status);
+                            }
+                            --w[e];
+                        }
+                    }
+                    if (eu == null || l == eu.length) {
+                        eu = eu == null ? new int[4] : Arrays.copyOf(eu, 2 * l + 1);
+                        eadj[u] = eu;
+                    }
+                    eu[l++] = v;
+                    elen[u] = l;
+                }
+                // prune the variables reachable through v and update the
+                // degrees: min(d + |Lv| - 1, |Au| + |Lv| - 1 + sum(|Le\Lv|))
+                int lvstamp = wst - 1;
+                for (int q = 0; q < m; ++q) {
+                    int u = lv[q];
+                    int[] au = vadj[u];
+                    int l = 0;
+                    for (int s = 0; s < vlen[u]; ++s) {
+                        int x = au[s];
+                        if (status[x] == 0 && mark[x] != lvstamp) {
+                            au[l++] = x;
+                        }
+                    }
+                    vlen[u] = l;
+                    int ext = l;
+                    int[] eu = eadj[u];
+                    for (int s = 0; s < elen[u]; ++s) {
+                        int e = eu[s];
+                        if (e != v) {
+                            ext += w[e];
+                        }
+                    }
+                    int d = Math.min(n - np - 1, Math.min(deg[u] + m - 1, ext + m - 1));
+                    if (u >= start && u < end) {
+                        remove(u, deg[u], head, next, prev);
+                        insert(u, d, head, next, prev);
+                        dmin = Math.min(dmin, d);
+                    }
+                    deg[u] = d;
+                }
+            }
+        }
+        return perm;
+    }
+
+    private int live(int e, int[][] lelem, int[] llen, byte[] status) {
+        int[] le = lelem[e];
+        int l = 0;
+        for (int s = 0; s < llen[e]; ++s) {
+            int u = le[s];
+            if (status[u] == 0) {
+                le[l++] = u;
+            }
+        }
+        llen[e] = l;
+        return l;
+    }
+
+    private void insert(int k, int d, int[] head, int[] next, int[] prev) {
+        int h = head[d];
+        next[k] = h;
+        prev[k] = -1;
+        if (h >= 0) {
+            prev[h] = k;
+        }
+        head[d] = k;
+    }
+
+    private void remove(int k, int d, int[] head, int[] next, int[] prev) {
+        int p = prev[k], q = next[k];
+        if (p >= 0) {
+            next[p] = q;
+        } else {
+            head[d] = q;
+        }
+        if (q >= 0) {
+            prev[q] = p;
+        }
+    }
+}
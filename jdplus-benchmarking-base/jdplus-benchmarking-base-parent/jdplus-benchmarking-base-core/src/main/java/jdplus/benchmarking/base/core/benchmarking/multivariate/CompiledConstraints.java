@@ -0,0 +1,513 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.multivariate;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jdplus.benchmarking.base.api.benchmarking.multivariate.ContemporaneousConstraint;
+import jdplus.benchmarking.base.api.benchmarking.multivariate.MultivariateCholetteSpec;
+import jdplus.benchmarking.base.api.benchmarking.multivariate.TemporalConstraint;
+import jdplus.toolkit.base.api.util.WeightedItem;
+import jdplus.toolkit.base.api.util.WildCards;
+
+/**
+ * Constraints of a multivariate Cholette problem, resolved once against a
+ * given set of series names.
+ * The names are mapped to integer ids (their position in the set). Wild cards
+ * are expanded through a sorted index of the names. The contemporaneous
+ * constraints are stored as a sparse matrix (compressed rows) whose columns
+ * are the positions of the endogenous (benchmarked) series. The model doesn't
+ * depend on the data: it can be reused for any input that contains the
+ * referenced series.
+ * Immutable.
+ *
+ * @author palatej
+ */
+final class CompiledConstraints {
+
+    private final String[] names;
+    private final Map<String, Integer> ids;
+    // endogenous series (right-side of the contemporaneous constraints)
+    private final int[] endogenous;
+    private final int[] endogenousPosition;
+    // contemporaneous constraints: binding series (-1 for constants), constants, CSR matrix
+    private final int[] binding;
+    private final double[] constants;
+    private final int[] rows, columns;
+    private final double[] values;
+    // temporal constraints: aggregate of each series (-1 if none)
+    private final int[] aggregate;
+    private final int[] temporalDetails;
+    // connected components: component of each endogenous series, series and constraints of each component
+    private final int[] component;
+    private final int[][] componentSeries, componentConstraints;
+
+    /**
+     * Compiles the constraints of a specification
+     *
+     * @param spec The specification
+     * @param names The names of the series that will be provided. Wild cards
+     * are expanded against them
+     * @return
+     */
+    static CompiledConstraints of(MultivariateCholetteSpec spec, Collection<String> names) {
+        return new CompiledConstraints(spec, names);
+    }
+
+    private CompiledConstraints(MultivariateCholetteSpec spec, Collection<String> input) {
+        // symbol table
+        names = input.toArray(String[]::new);
+        ids = new HashMap<>(2 * names.length);
+        for (int i = 0; i < names.length; ++i) {
+            if (ids.putIfAbsent(names[i], i) != null) {
+                throw new IllegalArgumentException("Duplicated series: " + names[i]);
+            }
+        }
+        int n = names.length;
+        // temporal constraints
+        aggregate = new int[n];
+        Arrays.fill(aggregate, -1);
+        int nt = 0;
+        for (TemporalConstraint cnt : spec.getTemporalConstraints()) {
+            Integer agg = ids.get(cnt.getAggregate()), detail = ids.get(cnt.getDetail());
+            if (agg == null || detail == null) {
+                throw new IllegalArgumentException("Invalid temporal constraint: " + cnt.getAggregate());
+            }
+            if (aggregate[detail] < 0) {
+                ++nt;
+            }
+            aggregate[detail] = agg;
+        }
+        temporalDetails = new int[nt];
+        for (int i = 0, j = 0; i < n; ++i) {
+            if (aggregate[i] >= 0) {
+                temporalDetails[j++] = i;
+            }
+        }
+
+        // contemporaneous constraints
+        List<ContemporaneousConstraint> cnts = spec.getContemporaneousConstraints();
+        int ncnts = cnts.size();
+        WildCardIndex index = new WildCardIndex(names);
+        binding = new int[ncnts];
+        constants = new double[ncnts];
+        int[][] cols = new int[ncnts][];
+        double[][] weights = new double[ncnts][];
+        // role of the series: 1 for binding series, 2 for endogenous series
+        byte[] role = new byte[n];
+        endogenousPosition = new int[n];
+        Arrays.fill(endogenousPosition, -1);
+        int[] endo = new int[n];
+        int nendo = 0;
+        for (int i = 0; i < ncnts; ++i) {
+            ContemporaneousConstraint cnt = cnts.get(i);
+            String b = cnt.getConstraint();
+            if (b != null) {
+                Integer id = ids.get(b);
+                if (id == null) {
+                    throw new IllegalArgumentException("Invalid contemporaneous constraint: " + b);
+                }
+                if (role[id] == 2) {
+                    throw new IllegalArgumentException("Binding constraint cannot be used in definitions: " + b);
+                }
+                role[id] = 1;
+                binding[i] = id;
+            } else {
+                binding[i] = -1;
+                constants[i] = cnt.getConstant();
+            }
+            // components (a later occurrence of the same series replaces the previous one)
+            Map<Integer, Double> row = new LinkedHashMap<>();
+            for (WeightedItem<String> item : cnt.getComponents()) {
+                String s = item.getItem();
+                double w = item.getWeight();
+                if (s.contains("*") || s.contains("?")) {
+                    for (int id : index.match(s)) {
+                        if (id != binding[i]) {
+                            row.put(id, w);
+                        }
+                    }
+                } else {
+                    Integer id = ids.get(s);
+                    if (id == null) {
+                        throw new IllegalArgumentException("Invalid contemporaneous constraint: " + s);
+                    }
+                    row.put(id, w);
+                }
+            }
+            // the endogenous series are numbered in their order of appearance
+            int[] c = new int[row.size()];
+            double[] w = new double[c.length];
+            int j = 0;
+            for (Map.Entry<Integer, Double> entry : row.entrySet()) {
+                int id = entry.getKey();
+                if (role[id] == 1) {
+                    throw new IllegalArgumentException("Component definition cannot be a constraint: " + names[id]);
+                }
+                role[id] = 2;
+                if (endogenousPosition[id] < 0) {
+                    endogenousPosition[id] = nendo;
+                    endo[nendo++] = id;
+                }
+                c[j] = endogenousPosition[id];
+                w[j++] = entry.getValue();
+            }
+            cols[i] = c;
+            weights[i] = w;
+        }
+        endogenous = Arrays.copyOf(endo, nendo);
+
+        // compressed rows, sorted by column
+        rows = new int[ncnts + 1];
+        for (int i = 0; i < ncnts; ++i) {
+            rows[i + 1] = rows[i] + cols[i].length;
+        }
+        columns = new int[rows[ncnts]];
+        values = new double[rows[ncnts]];
+        Integer[] order = new Integer[0];
+        for (int i = 0; i < ncnts; ++i) {
+            int[] c = cols[i];
+            double[] w = weights[i];
+            if (order.length < c.length) {
+                order = new Integer[c.length];
+            }
+            for (int k = 0; k < c.length; ++k) {
+                order[k] = k;
+            }
+            Arrays.sort(order, 0, c.length, Comparator.comparingInt(k -> c[k]));
+            for (int k = 0, l = rows[i]; k < c.length; ++k, ++l) {
+                columns[l] = c[order[k]];
+                values[l] = w[order[k]];
+            }
+        }
+
+        // connected components of the series-constraints graph
+        component = new int[nendo];
+        int[] parent = new int[nendo];
+        for (int i = 0; i < nendo; ++i) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < ncnts; ++i) {
+            for (int l = rows[i] + 1; l < rows[i + 1]; ++l) {
+                int r0 = root(parent, columns[rows[i]]), r1 = root(parent, columns[l]);
+                // the root is the smallest position of the component
+                if (r0 < r1) {
+                    parent[r1] = r0;
+                } else if (r1 < r0) {
+                    parent[r0] = r1;
+                }
+            }
+        }
+        int ncmps = 0;
+        int[] cmpOfRoot = new int[nendo];
+        for (int i = 0; i < nendo; ++i) {
+            int r = root(parent, i);
+            if (r == i) {
+                cmpOfRoot[i] = ncmps++;
+            }
+            component[i] = cmpOfRoot[r];
+        }
+        int[] nvars = new int[ncmps], nc = new int[ncmps];
+        for (int i = 0; i < nendo; ++i) {
+            ++nvars[component[i]];
+        }
+        for (int i = 0; i < ncnts; ++i) {
+            // constraints without series are ignored
+            if (rows[i + 1] > rows[i]) {
+                ++nc[component[columns[rows[i]]]];
+            }
+        }
+        componentSeries = new int[ncmps][];
+        componentConstraints = new int[ncmps][];
+        for (int k = 0; k < ncmps; ++k) {
+            componentSeries[k] = new int[nvars[k]];
+            componentConstraints[k] = new int[nc[k]];
+        }
+        Arrays.fill(nvars, 0);
+        Arrays.fill(nc, 0);
+        for (int i = 0; i < nendo; ++i) {
+            int k = component[i];
+            componentSeries[k][nvars[k]++] = i;
+        }
+        for (int i = 0; i < ncnts; ++i) {
+            if (rows[i + 1] > rows[i]) {
+                int k = component[columns[rows[i]]];
+                componentConstraints[k][nc[k]++] = i;
+            }
+        }
+    }
+
+    private static int root(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Number of series in the symbol table
+     *
+     * @return
+     */
+    int getSeriesCount() {
+        return names.length;
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Id of a series
+     *
+     * @param name
+     * @return The id of the series or -1 if it doesn't exist
+     */
+    int id(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Number of endogenous series (series that appear in the right-side of the
+     * contemporaneous constraints)
+     *
+     * @return
+     */
+    int getEndogenousCount() {
+        return endogenous.length;
+    }
+
+    /**
+     * Id of the i-th endogenous series
+     *
+     * @param i
+     * @return
+     */
+    int endogenous(int i) {
+        return endogenous[i];
+    }
+
+    /**
+     * Position of a series in the list of the endogenous series
+     *
+     * @param id
+     * @return The position or -1 if the series is not endogenous
+     */
+    int endogenousPosition(int id) {
+        return endogenousPosition[id];
+    }
+
+    int getContemporaneousConstraintsCount() {
+        return binding.length;
+    }
+
+    /**
+     * Binding series of a contemporaneous constraint
+     *
+     * @param i
+     * @return The id of the binding series or -1 if the constraint is a
+     * constant
+     */
+    int binding(int i) {
+        return binding[i];
+    }
+
+    double constant(int i) {
+        return constants[i];
+    }
+
+    /**
+     * Contemporaneous constraint i, in terms of the positions of the
+     * endogenous series
+     *
+     * @param i
+     * @return
+     */
+    Constraint constraint(int i) {
+        return new Constraint(Arrays.copyOfRange(columns, rows[i], rows[i + 1]),
+                Arrays.copyOfRange(values, rows[i], rows[i + 1]));
+    }
+
+    Constraint[] constraints() {
+        Constraint[] cs = new Constraint[binding.length];
+        for (int i = 0; i < cs.length; ++i) {
+            cs[i] = constraint(i);
+        }
+        return cs;
+    }
+
+    /**
+     * Aggregate of a series in the temporal constraints
+     *
+     * @param id
+     * @return The id of the aggregate or -1 if the series is not temporally
+     * constrained
+     */
+    int aggregate(int id) {
+        return aggregate[id];
+    }
+
+    /**
+     * Ids of the series with a temporal constraint
+     *
+     * @return
+     */
+    int[] temporalDetails() {
+        return temporalDetails.clone();
+    }
+
+    int getTemporalConstraintsCount() {
+        return temporalDetails.length;
+    }
+
+    /**
+     * Number of connected components of the graph formed by the endogenous
+     * series and the contemporaneous constraints. The components can be
+     * benchmarked independently
+     *
+     * @return
+     */
+    int getComponentsCount() {
+        return componentSeries.length;
+    }
+
+    /**
+     * Component of an endogenous series
+     *
+     * @param pos Position of the series in the list of the endogenous series
+     * @return
+     */
+    int component(int pos) {
+        return component[pos];
+    }
+
+    /**
+     * Component of a contemporaneous constraint
+     *
+     * @param i
+     * @return The component or -1 if the constraint doesn't contain any series
+     */
+    int constraintComponent(int i) {
+        return rows[i] == rows[i + 1] ? -1 : component[columns[rows[i]]];
+    }
+
+    /**
+     * Endogenous series of a component
+     *
+     * @param k
+     * @return The positions of the series (increasing order) in the list of
+     * the endogenous series
+     */
+    int[] componentSeries(int k) {
+        return componentSeries[k].clone();
+    }
+
+    /**
+     * Contemporaneous constraints of a component
+     *
+     * @param k
+     * @return The indexes of the constraints (increasing order)
+     */
+    int[] componentConstraints(int k) {
+        return componentConstraints[k].clone();
+    }
+
+    /**
+     * Contemporaneous constraints of a component, in terms of the local
+     * positions of its series (see componentSeries)
+     *
+     * @param k
+     * @return
+     */
+    Constraint[] localConstraints(int k) {
+        int[] vars = componentSeries[k], cnts = componentConstraints[k];
+        Constraint[] cs = new Constraint[cnts.length];
+        for (int i = 0; i < cnts.length; ++i) {
+            int r0 = rows[cnts[i]], r1 = rows[cnts[i] + 1];
+            int[] idx = new int[r1 - r0];
+            for (int l = r0; l < r1; ++l) {
+                idx[l - r0] = Arrays.binarySearch(vars, columns[l]);
+            }
+            cs[i] = new Constraint(idx, Arrays.copyOfRange(values, r0, r1));
+        }
+        return cs;
+    }
+
+    /**
+     * Sorted index of the names, used for the expansion of the wild cards.
+     * Only the names that start with the literal prefix of a pattern are
+     * tested. Expansions are cached by pattern.
+     */
+    private static final class WildCardIndex {
+
+        private final String[] sorted;
+        private final int[] sortedIds;
+        private final Map<String, int[]> cache = new HashMap<>();
+
+        WildCardIndex(String[] names) {
+            Integer[] order = new Integer[names.length];
+            for (int i = 0; i < order.length; ++i) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(i -> names[i]));
+            sorted = new String[names.length];
+            sortedIds = new int[names.length];
+            for (int i = 0; i < order.length; ++i) {
+                sorted[i] = names[order[i]];
+                sortedIds[i] = order[i];
+            }
+        }
+
+        /**
+         * Ids of the names that match a pattern, in increasing order
+         *
+         * @param pattern
+         * @return
+         */
+        int[] match(String pattern) {
+            return cache.computeIfAbsent(pattern, this::search);
+        }
+
+        private int[] search(String pattern) {
+            int star = pattern.indexOf('*'), q = pattern.indexOf('?');
+            int end = star < 0 ? q : (q < 0 ? star : Math.min(star, q));
+            String prefix = pattern.substring(0, end);
+            int first = Arrays.binarySearch(sorted, prefix);
+            if (first < 0) {
+                first = -first - 1;
+            }
+            WildCards wc = new WildCards(pattern);
+            int[] tmp = new int[sorted.length - first];
+            int n = 0;
+            for (int i = first; i < sorted.length && sorted[i].startsWith(prefix); ++i) {
+                if (wc.match(sorted[i])) {
+                    tmp[n++] = sortedIds[i];
+                }
+            }
+            int[] rslt = Arrays.copyOf(tmp, n);
+            Arrays.sort(rslt);
+            return rslt;
+        }
+    }
+}
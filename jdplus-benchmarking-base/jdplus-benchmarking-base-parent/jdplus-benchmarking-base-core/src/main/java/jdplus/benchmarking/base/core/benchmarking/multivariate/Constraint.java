@@ -50,4 +50,14 @@ class Constraint {
             weights[i] = cnt.get(index[i]);
         }
     }
+
+    /**
+     *
+     * @param index Sorted positions of the series
+     * @param weights Corresponding weights
+     */
+    Constraint(int[] index, double[] weights) {
+        this.index = index;
+        this.weights = weights;
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.multivariate;
+
+/**
+ * Smoothed states of the contemporaneous Cholette model when the loadings of
+ * the constraints are time invariant (constant weights) and all the
+ * constraints are observed.
+ * Before the constraints, the covariance of the states is a multiple of the
+ * identity (T = rho*I, V = I). The updates by the constraints add a low-rank
+ * term which always lies in the space spanned by the (constant) loadings, so
+ * that the problem separates into a part determined by the constraints of
+ * each period and an unobserved part, which is smoothed to 0. The smoothed
+ * states are then, for any rho, the minimum norm solutions of the
+ * constraints of each period: e(t) = Z'(ZZ')^-1 d(t).
+ * The projection is computed once in the form I - U*U' (U has at most ncnts
+ * columns) by sequential updates, redundant constraints being skipped as in
+ * the univariate filter. The cost is O(nvars*ncnts^2) for the projection and
+ * O(nvars*ncnts) by period.
+ * The projection is not exact with time-varying weights (the span of the
+ * loadings changes in each period) or with missing constraints: those
+ * preconditions are checked.
+ *
+ * @author palatej
+ */
+final class ContemporaneousProjection {
+
+    private static final double EPS = 1e-12;
+
+    private final int nvars;
+    /**
+     * Loadings of the constraints (by constraint)
+     */
+    private final double[][] z;
+    /**
+     * Gains of the non-redundant constraints (v/f), null for redundant
+     * constraints
+     */
+    private final double[][] gains;
+
+    /**
+     *
+     * @param nvars Number of series
+     * @param weights Weights of the series (by series, null for unit weights).
+     * They must be constant in time
+     * @param constraints
+     * @throws IllegalArgumentException if the weights are not constant in time
+     */
+    ContemporaneousProjection(int nvars, double[][] weights, Constraint[] constraints) {
+        if (weights != null && !isTimeInvariant(weights)) {
+            throw new IllegalArgumentException("The projection requires constant weights");
+        }
+        double[] w = null;
+        if (weights != null) {
+            w = new double[nvars];
+            for (int i = 0; i < nvars; ++i) {
+                w[i] = weights[i][0];
+            }
+        }
+        this.nvars = nvars;
+        int ncnts = constraints.length;
+        z = new double[ncnts][];
+        gains = new double[ncnts][];
+        double[][] u = new double[ncnts][];
+        int nu = 0;
+        for (int k = 0; k < ncnts; ++k) {
+            Constraint cnt = constraints[k];
+            double[] zk = new double[nvars];
+            for (int i = 0; i < cnt.index.length; ++i) {
+                int l = cnt.index[i];
+                zk[l] += w == null ? cnt.weights[i] : w[l] * cnt.weights[i];
+            }
+            z[k] = zk;
+            // v = (I - UU')z (modified Gram-Schmidt), f = z'v = v'v
+            double[] v = zk.clone();
+            for (int j = 0; j < nu; ++j) {
+                double[] uj = u[j];
+                double s = dot(uj, v);
+                if (s != 0) {
+                    for (int i = 0; i < nvars; ++i) {
+                        v[i] -= s * uj[i];
+                    }
+                }
+            }
+            double f = dot(v, v), zz = dot(zk, zk);
+            if (f > EPS * zz) {
+                double sf = Math.sqrt(f);
+                double[] uk = new double[nvars], gk = new double[nvars];
+                for (int i = 0; i < nvars; ++i) {
+                    uk[i] = v[i] / sf;
+                    gk[i] = v[i] / f;
+                }
+                u[nu++] = uk;
+                gains[k] = gk;
+            }
+        }
+    }
+
+    /**
+     * Checks that the weights are constant in time
+     *
+     * @param w The weights of the series (by series)
+     * @return
+     */
+    static boolean isTimeInvariant(double[][] w) {
+        for (double[] wi : w) {
+            for (int j = 1; j < wi.length; ++j) {
+                if (wi[j] != wi[0]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the states of a period
+     *
+     * @param d Discrepancies of the constraints (all the constraints must be
+     * observed)
+     * @param e On exit, the states
+     * @throws IllegalArgumentException if a discrepancy is missing
+     */
+    void process(double[] d, double[] e) {
+        for (int i = 0; i < nvars; ++i) {
+            e[i] = 0;
+        }
+        for (int k = 0; k < gains.length; ++k) {
+            if (!Double.isFinite(d[k])) {
+                throw new IllegalArgumentException("The projection requires complete constraints");
+            }
+            double[] gk = gains[k];
+            if (gk != null) {
+                double r = d[k] - dot(z[k], e);
+                if (r != 0) {
+                    for (int i = 0; i < nvars; ++i) {
+                        e[i] += r * gk[i];
+                    }
+                }
+            }
+        }
+    }
+
+    private static double dot(double[] x, double[] y) {
+        double s = 0;
+        for (int i = 0; i < x.length; ++i) {
+            s += x[i] * y[i];
+        }
+        return s;
+    }
+}
@@ -5,26 +5,24 @@
  */
 package jdplus.benchmarking.base.core.benchmarking.multivariate;
 
-import jdplus.benchmarking.base.api.benchmarking.multivariate.ContemporaneousConstraint;
 import jdplus.benchmarking.base.api.benchmarking.multivariate.MultivariateCholetteSpec;
-import jdplus.benchmarking.base.api.benchmarking.multivariate.TemporalConstraint;
 import jdplus.benchmarking.base.api.benchmarking.univariate.CholetteSpec;
 import jdplus.toolkit.base.api.data.AggregationType;
 import jdplus.toolkit.base.api.data.DoubleSeq;
 import jdplus.toolkit.base.api.timeseries.TsData;
 import jdplus.toolkit.base.api.timeseries.TsDomain;
 import jdplus.toolkit.base.api.timeseries.TsException;
+import jdplus.toolkit.base.api.timeseries.TsPeriod;
 import jdplus.toolkit.base.api.timeseries.TsUnit;
-import jdplus.toolkit.base.api.util.WeightedItem;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 import jdplus.benchmarking.base.core.benchmarking.univariate.CholetteProcessor;
 import jdplus.toolkit.base.core.data.DataBlock;
-import jdplus.toolkit.base.core.data.DataBlockStorage;
 import jdplus.toolkit.base.core.math.matrices.FastMatrix;
+import jdplus.toolkit.base.core.ssf.dk.DefaultDiffuseFilteringResults;
+import jdplus.toolkit.base.core.ssf.dk.DiffuseSmoother;
 import jdplus.toolkit.base.core.ssf.dk.DkToolkit;
 import jdplus.toolkit.base.core.ssf.multivariate.IMultivariateSsf;
 import jdplus.toolkit.base.core.ssf.multivariate.M2uAdapter;
@@ -32,68 +30,102 @@ import jdplus.toolkit.base.core.ssf.multivariate.SsfMatrix;
 import jdplus.toolkit.base.core.ssf.univariate.ISsf;
 import jdplus.toolkit.base.core.ssf.univariate.ISsfData;
 import jdplus.toolkit.base.core.timeseries.simplets.TsDataToolkit;
-import jdplus.toolkit.base.core.timeseries.simplets.TsDataView;
 
 /**
+ * Execution context of a multivariate Cholette benchmarking: the working data
+ * of one call. The constraints (CompiledConstraints) are shared and
+ * immutable; an engine must not be used by several threads at the same time.
+ * See PreparedMultivariateCholette for a reusable, thread-safe, model.
  *
  * @author Jean Palate
  */
 class MultivariateCholetteEngine {
+
     /**
      * Inputs
      */
-    private final LinkedHashMap<String, TsData> inputs = new LinkedHashMap<>();
-    /**
-     * List of the contemporaneous constraints
-     */
-    private final List<ContemporaneousConstraint> contemporaneousConstraints
-            = new ArrayList<>();
+    private Map<String, TsData> inputs;
     /**
-     * Map of the temporal constraints The map constains pairs of (detail,
-     * aggregated series)
+     * Compiled constraints
      */
-    private final Map<String, String> temporalConstraints
-            = new HashMap<>();
+    private CompiledConstraints model;
     /**
-     * List of exogeneous series (not benchmarked) used in the contemporaneous
-     * constraints, which appear in the left-side of contemporaneous definitions
-     */
-    private final ArrayList<String> lcnt = new ArrayList<>();
-    /**
-     * List of endogeneous series (benchmarked) used in the contemporaneous
-     * constraints, which appear in the right-side of contemporaneous
-     * definitions.
-     *
-     */
-    private final ArrayList<String> rcnt = new ArrayList<>();
-    /**
-     * Data of the series in the lcnt list. The length of each array is equal to
-     * the length of idomain
+     * Data of the binding series (or constants) of the contemporaneous
+     * constraints. The length of each array is equal to the length of idomain
      */
     private double[][] lcntData;
     /**
-     * Data of the series in the rcnt list The length of each array is equal to
-     * the length of idomain
+     * Data of the endogenous series. The length of each array is equal to the
+     * length of idomain
      */
     private double[][] rcntData;
     /**
      *
      */
     private double[][] weights;
-    private final HashMap<String, TsData> tcntData = new HashMap<>();
+    /**
+     * Discrepancies of the temporal constraints of the endogenous series (null
+     * if the series is not temporally constrained)
+     */
+    private TsData[] tcntData;
     private Constraint[] cs;
     private double rho, lambda;
+    private MultivariateCholetteSpec.Engine engine;
+    /**
+     * Selected components (null for all)
+     */
+    private boolean[] components;
     private TsDomain idomain;
     private TsUnit aggUnit;
 
     public Map<String, TsData> process(Map<String, TsData> inputs, MultivariateCholetteSpec spec) {
-        loadInfo(inputs, spec);
+        return process(inputs, CompiledConstraints.of(spec, inputs.keySet()), spec.getRho(), spec.getLambda(), spec.getEngine());
+    }
+
+    public Map<String, TsData> process(Map<String, TsData> inputs, CompiledConstraints model, double rho, double lambda) {
+        return process(inputs, model, rho, lambda, MultivariateCholetteSpec.DEF_ENGINE);
+    }
+
+    /**
+     * Benchmarking with precompiled constraints
+     *
+     * @param inputs The data. They must contain all the series referenced by
+     * the constraints
+     * @param model The compiled constraints
+     * @param rho
+     * @param lambda
+     * @param engine
+     * @return
+     */
+    public Map<String, TsData> process(Map<String, TsData> inputs, CompiledConstraints model, double rho, double lambda, MultivariateCholetteSpec.Engine engine) {
+        return process(inputs, model, rho, lambda, engine, null, null);
+    }
+
+    /**
+     * Benchmarking of a part of the model
+     *
+     * @param inputs
+     * @param model
+     * @param rho
+     * @param lambda
+     * @param engine
+     * @param components Components that are benchmarked (null for all)
+     * @param details Series with an independent temporal constraint (not
+     * endogenous) that are benchmarked, by position in
+     * model.temporalDetails() (null for all)
+     * @return The benchmarked series of the selected components and the
+     * selected independent series
+     */
+    Map<String, TsData> process(Map<String, TsData> inputs, CompiledConstraints model, double rho, double lambda, MultivariateCholetteSpec.Engine engine,
+            boolean[] components, boolean[] details) {
+        loadInfo(inputs, model, rho, lambda);
+        this.engine = engine;
+        this.components = components;
 
         Map<String, TsData> rslts = new HashMap<>();
-        buildMaps();
 
-        benchmarkIndependentConstraints(rslts);
-        if (contemporaneousConstraints.isEmpty()) {
+        benchmarkIndependentConstraints(rslts, details);
+        if (model.getContemporaneousConstraintsCount() == 0) {
             return rslts;
         }
 
@@ -101,157 +133,332 @@ class MultivariateCholetteEngine {
         buildEndogeneousData();
         // compute weights, adjust constraints...
         buildWeights();
-        buildConstraints();
-        if (temporalConstraints.isEmpty()) {
-            computeContemporaneous(rslts);
+        if (engine == MultivariateCholetteSpec.Engine.TwoStep) {
+            benchmarkTemporalConstraints();
+            buildContemporaneousConstraints();
+            computeProjections(rslts);
         } else {
-            compute(rslts);
+            buildConstraints();
+            computeComponents(rslts);
         }
 
         return rslts;
     }
 
-    private void loadInfo(Map<String, TsData> data, MultivariateCholetteSpec spec) {
-        // inputs
-        inputs.putAll(data);
-        // temporal constraints
-        for (TemporalConstraint desc : spec.getTemporalConstraints()) {
-            addTemporalConstraint(desc);
+    private void loadInfo(Map<String, TsData> data, CompiledConstraints model, double rho, double lambda) {
+        this.inputs = data;
+        this.model = model;
+        this.rho = rho;
+        this.lambda = lambda;
+        for (int i = 0; i < model.getContemporaneousConstraintsCount(); ++i) {
+            int b = model.binding(i);
+            if (b >= 0) {
+                series(b);
+            }
         }
-
-        // contemporaneous constraints
-        for (ContemporaneousConstraint desc : spec.getContemporaneousConstraints()) {
-            addContemporaneousConstraint(desc);
+        for (int i = 0; i < model.getEndogenousCount(); ++i) {
+            series(model.endogenous(i));
         }
-        rho = spec.getRho();
-        lambda = spec.getLambda();
-    }
-
-    private void addContemporaneousConstraint(ContemporaneousConstraint cnt) {
-        if (cnt.getConstraint() != null && !inputs.containsKey(cnt.getConstraint())) {
-            throw new IllegalArgumentException("Invalid contemporaneous constraint: " + cnt.getConstraint());
-        }
-        if (cnt.hasWildCards()) {
-            cnt = cnt.expand(inputs.keySet());
-        } else {
-            for (WeightedItem<String> ws : cnt.getComponents()) {
-                if (!inputs.containsKey(ws.getItem())) {
-                    throw new IllegalArgumentException("Invalid contemporaneous constraint: " + ws.getItem());
-                }
-            }
+        for (int detail : model.temporalDetails()) {
+            series(detail);
+            series(model.aggregate(detail));
         }
-        contemporaneousConstraints.add(cnt);
+        cs = model.constraints();
     }
 
-    private void addTemporalConstraint(TemporalConstraint cnt) {
-        TsData sagg = inputs.get(cnt.getAggregate()), sdetail = inputs.get(cnt.getDetail());
-        if (sagg == null || sdetail == null) {
-            throw new IllegalArgumentException("Invalid temporal constraint: " + cnt.getAggregate());
+    private TsData series(int id) {
+        TsData s = inputs.get(model.name(id));
+        if (s == null) {
+            throw new IllegalArgumentException("Missing series: " + model.name(id));
         }
-        temporalConstraints.put(cnt.getDetail(), cnt.getAggregate());
+        return s;
     }
 
-    private void benchmarkIndependentConstraints(Map<String, TsData> rslts) {
-
-        CholetteSpec uspec = CholetteSpec.builder()
+    private CholetteSpec univariateSpec() {
+        return CholetteSpec.builder()
                 .aggregationType(AggregationType.Sum)
                 .bias(CholetteSpec.BiasCorrection.None)
                 .lambda(lambda)
                 .rho(rho)
                 .build();
+    }
+
+    private boolean isSelected(int pos) {
+        return components == null || components[model.component(pos)];
+    }
+
+    private boolean isConstraintSelected(int i) {
+        if (components == null) {
+            return true;
+        }
+        int k = model.constraintComponent(i);
+        return k >= 0 && components[k];
+    }
+
+    private void benchmarkIndependentConstraints(Map<String, TsData> rslts, boolean[] selection) {
+
+        CholetteSpec uspec = univariateSpec();
         CholetteProcessor cf = new CholetteProcessor();
-        temporalConstraints.forEach(
-                (detail, agg) -> {
-                    if (!rcnt.contains(detail)) {
-                        TsData q = inputs.get(detail);
-                        TsData a = inputs.get(agg);
-                        TsData b = cf.benchmark(q, a, uspec);
-                        if (b != null) {
-                            rslts.put(detail, b);
-                        }
-                    }
-                });
+        int[] details = model.temporalDetails();
+        TsData[] b = new TsData[details.length];
+        IntStream.range(0, details.length).parallel().forEach(i -> {
+            int detail = details[i];
+            if (model.endogenousPosition(detail) < 0 && (selection == null || selection[i])) {
+                b[i] = cf.benchmark(series(detail), series(model.aggregate(detail)), uspec);
+            }
+        });
+        for (int i = 0; i < details.length; ++i) {
+            if (b[i] != null) {
+                rslts.put(model.name(details[i]), b[i]);
+            }
+        }
     }
 
-    private void computeContemporaneous(Map<String, TsData> rslts) {
+    /**
+     * First step of the two-step mode: the endogenous series with temporal
+     * constraints are benchmarked independently (in parallel). The
+     * benchmarked series replace the original ones
+     */
+    private void benchmarkTemporalConstraints() {
+        CholetteSpec uspec = univariateSpec();
+        CholetteProcessor cf = new CholetteProcessor();
+        TsPeriod start = idomain.getStartPeriod();
+        IntStream.range(0, model.getEndogenousCount()).parallel().forEach(i -> {
+            int agg = model.aggregate(model.endogenous(i));
+            if (agg >= 0 && isSelected(i)) {
+                TsData b = cf.benchmark(TsData.ofInternal(start, rcntData[i]), series(agg), uspec);
+                rcntData[i] = b.getValues().toArray();
+            }
+        });
+    }
 
-        // compute weights, adjust constraints...
-        int nvars = rcnt.size(), ncnts = cs.length;;
+    /**
+     * Second step of the two-step mode: the contemporaneous constraints are
+     * enforced period by period (in parallel), by the weighted projection of
+     * the series on the constraints of each component (minimum of
+     * sum((u(i)/w(i))^2)). Missing constraints are ignored
+     *
+     * @param rslts
+     */
+    private void computeProjections(Map<String, TsData> rslts) {
+        TsPeriod start = idomain.getStartPeriod();
+        for (int k = 0; k < model.getComponentsCount(); ++k) {
+            if (components == null || components[k]) {
+                int[] vars = model.componentSeries(k);
+                double[][] b = computeProjections(vars, model.componentConstraints(k), model.localConstraints(k));
+                for (int i = 0; i < vars.length; ++i) {
+                    rslts.put(model.name(model.endogenous(vars[i])), TsData.ofInternal(start, b[i]));
+                }
+            }
+        }
+    }
+
+    private double[][] computeProjections(int[] vars, int[] cnts, Constraint[] lcs) {
+        int nvars = vars.length, ncnts = cnts.length, len = idomain.getLength();
+        double[][] b = new double[nvars][len];
+        IntStream.range(0, len).parallel().forEach(j -> {
+            double[][] w = new double[nvars][1], d = new double[ncnts][1];
+            for (int i = 0; i < nvars; ++i) {
+                w[i][0] = weights[vars[i]][j];
+            }
+            for (int k = 0; k < ncnts; ++k) {
+                d[k][0] = lcntData[cnts[k]][j];
+            }
+            double[][] u = new SparseCholette(0, 1).process(w, lcs, d, new double[nvars][], 1);
+            for (int i = 0; i < nvars; ++i) {
+                b[i][j] = rcntData[vars[i]][j] + u[i][0];
+            }
+        });
+        return b;
+    }
+
+    /**
+     * The connected components of the constraints are benchmarked
+     * independently (in parallel). The results are merged in the order of the
+     * components
+     *
+     * @param rslts
+     */
+    private void computeComponents(Map<String, TsData> rslts) {
+        int ncmps = model.getComponentsCount();
+        double[][][] b = new double[ncmps][][];
+        IntStream.range(0, ncmps).parallel()
+                .filter(k -> components == null || components[k])
+                .forEach(k -> b[k] = compute(k));
+        TsPeriod start = idomain.getStartPeriod();
+        for (int k = 0; k < ncmps; ++k) {
+            if (b[k] == null) {
+                continue;
+            }
+            int[] vars = model.componentSeries(k);
+            for (int i = 0; i < vars.length; ++i) {
+                rslts.put(model.name(model.endogenous(vars[i])), TsData.ofInternal(start, b[k][i]));
+            }
+        }
+    }
+
+    private double[][] compute(int k) {
+        int[] vars = model.componentSeries(k), cnts = model.componentConstraints(k);
+        if (engine == MultivariateCholetteSpec.Engine.Gls) {
+            return computeGls(vars, cnts, model.localConstraints(k));
+        }
+        boolean temporal = false;
+        for (int i = 0; i < vars.length; ++i) {
+            if (tcntData[vars[i]] != null) {
+                temporal = true;
+                break;
+            }
+        }
+        if (temporal) {
+            return compute(vars, cnts, model.localConstraints(k));
+        } else {
+            return computeContemporaneous(vars, cnts, model.localConstraints(k));
+        }
+    }
+
+    /**
+     * Benchmarking of a component without temporal constraints
+     *
+     * @param vars Positions of the endogenous series of the component
+     * @param cnts Indexes of the contemporaneous constraints of the component
+     * @param lcs Constraints of the component (local positions)
+     * @return The benchmarked series
+     */
+    private double[][] computeContemporaneous(int[] vars, int[] cnts, Constraint[] lcs) {
+
+        int nvars = vars.length, ncnts = cnts.length;
+        double[][] w = new double[nvars][];
+        for (int i = 0; i < nvars; ++i) {
+            w[i] = weights[vars[i]];
+        }
+        if (ContemporaneousProjection.isTimeInvariant(w) && isComplete(cnts)) {
+            return computeProjection(vars, cnts, lcs, w);
+        }
         IMultivariateSsf ssf = ContemporaneousSsfCholette.builder(nvars)
                 .rho(rho)
-                .weights(weights)
-                .constraints(cs)
+                .weights(w)
+                .constraints(lcs)
                 .build();
 
         // build the observations
         FastMatrix M = FastMatrix.make(idomain.getLength(), ncnts);
         for (int i = 0; i < ncnts; ++i) {
-            M.column(i).copyFrom(lcntData[i], 0);
+            M.column(i).copyFrom(lcntData[cnts[i]], 0);
         }
 
-        ISsf ussf = M2uAdapter.of(ssf);
-        ISsfData udata = M2uAdapter.of(new SsfMatrix(M));
-        DataBlockStorage states = DkToolkit.fastSmooth(ussf, udata);
+        int[] sel = new int[nvars];
+        for (int i = 0; i < nvars; ++i) {
+            sel[i] = i;
+        }
+        double[][] states = smooth(ssf, M, sel);
 
-        int neq = cs.length;
+        double[][] rslt = new double[nvars][];
         for (int i = 0; i < nvars; ++i) {
-            TsData s = inputs.get(rcnt.get(i));
-            TsData sc = TsDataToolkit.fitToDomain(s, idomain);
-            double[] y = sc.getValues().toArray();
-            DataBlock t = states.item(i);
+            double[] y = rcntData[vars[i]].clone();
+            double[] t = states[i];
             for (int j = 0; j < y.length; ++j) {
-                y[j] += t.get(j * neq) * weights[i][j];
+                y[j] += t[j] * w[i][j];
             }
-            rslts.put(rcnt.get(i), TsData.ofInternal(idomain.getStartPeriod(), y));
+            rslt[i] = y;
         }
+        return rslt;
     }
 
-    private void buildMaps() {
-        // first of all, we go through the constraints to get information on the used series
-        for (ContemporaneousConstraint desc : contemporaneousConstraints) {
-            if (rcnt.contains(desc.getConstraint())) {
-                throw new IllegalArgumentException("Binding constraint cannot be used in definitions: " + desc.getConstraint());
+    /**
+     * Benchmarking of a component without temporal constraints, when the
+     * loadings of the constraints are time invariant (see
+     * ContemporaneousProjection)
+     *
+     * @param vars Positions of the endogenous series of the component
+     * @param cnts Indexes of the contemporaneous constraints of the component
+     * @param lcs Constraints of the component (local positions)
+     * @param w Weights of the series of the component
+     * @return The benchmarked series
+     */
+    private double[][] computeProjection(int[] vars, int[] cnts, Constraint[] lcs, double[][] w) {
+        int nvars = vars.length, ncnts = cnts.length, len = idomain.getLength();
+        ContemporaneousProjection projection = new ContemporaneousProjection(nvars, w, lcs);
+        double[][] rslt = new double[nvars][];
+        for (int i = 0; i < nvars; ++i) {
+            rslt[i] = rcntData[vars[i]].clone();
+        }
+        double[] d = new double[ncnts], e = new double[nvars];
+        for (int j = 0; j < len; ++j) {
+            for (int k = 0; k < ncnts; ++k) {
+                d[k] = lcntData[cnts[k]][j];
             }
-            // TODO Deal with such cases. Use "extended names" and modify the current constraint
-            if (!lcnt.contains(desc.getConstraint())) {
-                lcnt.add(desc.getConstraint());
+            projection.process(d, e);
+            for (int i = 0; i < nvars; ++i) {
+                rslt[i][j] += e[i] * w[i][0];
             }
-            for (WeightedItem<String> wc : desc.getComponents()) {
-                if (lcnt.contains(wc.getItem())) {
-                    throw new IllegalArgumentException("Component definition cannot be a constraint: " + wc.getItem());
-                } else if (!rcnt.contains(wc.getItem())) {
-                    rcnt.add(wc.getItem());
+        }
+        return rslt;
+    }
+
+    private boolean isComplete(int[] cnts) {
+        for (int cnt : cnts) {
+            for (double d : lcntData[cnt]) {
+                if (!Double.isFinite(d)) {
+                    return false;
                 }
             }
         }
-        // we create the actual constraints
-        cs = new Constraint[contemporaneousConstraints.size()];
-        int pos = 0;
-        for (ContemporaneousConstraint desc : contemporaneousConstraints) {
-            HashMap<Integer, Double> constraint = new HashMap<>();
-            for (WeightedItem<String> cur : desc.getComponents()) {
-                constraint.put(rcnt.indexOf(cur.getItem()), cur.getWeight());
+        return true;
+    }
+
+    /**
+     * Benchmarking of a component by means of the sparse GLS solver
+     *
+     * @param vars Positions of the endogenous series of the component
+     * @param cnts Indexes of the contemporaneous constraints of the component
+     * @param lcs Constraints of the component (local positions)
+     * @return The benchmarked series
+     */
+    private double[][] computeGls(int[] vars, int[] cnts, Constraint[] lcs) {
+        int nvars = vars.length, ncnts = cnts.length;
+        double[][] w = new double[nvars][], t = new double[nvars][], d = new double[ncnts][];
+        for (int i = 0; i < nvars; ++i) {
+            w[i] = weights[vars[i]];
+            TsData a = tcntData[vars[i]];
+            if (a != null) {
+                t[i] = a.getValues().toArray();
             }
-            Constraint acnt = new Constraint(constraint);
-            cs[pos++] = acnt;
         }
-
-        lcntData = new double[contemporaneousConstraints.size()][];
-        for (int i = 0; i < contemporaneousConstraints.size(); ++i) {
-            ContemporaneousConstraint desc = contemporaneousConstraints.get(i);
-            if (desc.getConstraint() != null) {
-                TsData s = inputs.get(desc.getConstraint());
-                lcntData[i] = s.getValues().toArray();
-            } else {
-                lcntData[i] = new double[]{desc.getConstant()};
+        for (int i = 0; i < ncnts; ++i) {
+            d[i] = lcntData[cnts[i]];
+        }
+        int c = aggUnit == null ? 1 : idomain.getTsUnit().ratioOf(aggUnit);
+        double[][] u = new SparseCholette(rho, c).process(w, lcs, d, t, idomain.getLength());
+        double[][] rslt = new double[nvars][];
+        for (int i = 0; i < nvars; ++i) {
+            double[] y = rcntData[vars[i]].clone();
+            for (int j = 0; j < y.length; ++j) {
+                y[j] += u[i][j];
             }
+            rslt[i] = y;
         }
+        return rslt;
     }
 
     private void buildDomain() {
+        idomain = domain(inputs, model);
+    }
 
-        for (String cur : rcnt) {
-            TsDomain d = inputs.get(cur).getDomain();
+    /**
+     * Common domain of the endogenous series
+     *
+     * @param inputs
+     * @param model
+     * @return
+     */
+    static TsDomain domain(Map<String, TsData> inputs, CompiledConstraints model) {
+        TsDomain idomain = null;
+        for (int i = 0; i < model.getEndogenousCount(); ++i) {
+            TsData s = inputs.get(model.name(model.endogenous(i)));
+            if (s == null) {
+                throw new IllegalArgumentException("Missing series: " + model.name(model.endogenous(i)));
+            }
+            TsDomain d = s.getDomain();
             if (idomain == null) {
                 idomain = d;
             } else if (!idomain.getTsUnit().equals(d.getTsUnit())) {
@@ -263,20 +470,26 @@ class MultivariateCholetteEngine {
                 }
             }
         }
+        return idomain;
     }
 
     private void buildEndogeneousData() {
-        rcntData = new double[rcnt.size()][];
-        for (int i = 0; i < rcnt.size(); ++i) {
-            TsData s = TsDataToolkit.fitToDomain(inputs.get(rcnt.get(i)), idomain);
-            rcntData[i] = s.getValues().toArray();
+        int nvars = model.getEndogenousCount();
+        rcntData = new double[nvars][];
+        for (int i = 0; i < nvars; ++i) {
+            if (isSelected(i)) {
+                TsData s = TsDataToolkit.fitToDomain(series(model.endogenous(i)), idomain);
+                rcntData[i] = s.getValues().toArray();
+            }
         }
     }
 
     private void buildWeights() {
         weights = new double[rcntData.length][];
         for (int i = 0; i < weights.length; ++i) {
-            weights[i] = calcWeights(rcntData[i]);
+            if (rcntData[i] != null) {
+                weights[i] = calcWeights(rcntData[i]);
+            }
         }
     }
 
@@ -286,14 +499,19 @@ class MultivariateCholetteEngine {
     }
 
     private void buildContemporaneousConstraints() {
+        int len = idomain.getLength();
+        lcntData = new double[cs.length][];
         for (int i = 0; i < cs.length; ++i) {
+            if (!isConstraintSelected(i)) {
+                continue;
+            }
             Constraint cur = cs[i];
-            if (lcntData[i].length == 1) { // expand the constants
-                double c = lcntData[i][0];
-                lcntData[i] = new double[idomain.getLength()];
-                for (int j = 0; j < lcntData.length; ++j) {
-                    lcntData[i][j] = c;
-                }
+            int b = model.binding(i);
+            if (b >= 0) {
+                lcntData[i] = TsDataToolkit.fitToDomain(series(b), idomain).getValues().toArray();
+            } else { // expand the constants
+                lcntData[i] = new double[len];
+                Arrays.fill(lcntData[i], model.constant(i));
             }
             // correct the constraints to fit the state space representation
             DataBlock z = DataBlock.of(lcntData[i]);
@@ -305,20 +523,20 @@ class MultivariateCholetteEngine {
 
     private void buildTemporalConstraints() {
         aggUnit = null;
-        for (int i = 0; i < rcnt.size(); ++i) {
-            String n = rcnt.get(i);
-            TsData orig = inputs.get(rcnt.get(i));
-            TsData cur = inputs.get(temporalConstraints.get(rcnt.get(i)));
-            if (cur != null) {
+        int nvars = model.getEndogenousCount();
+        tcntData = new TsData[nvars];
+        for (int i = 0; i < nvars; ++i) {
+            int id = model.endogenous(i), agg = model.aggregate(id);
+            if (agg >= 0 && isSelected(i)) {
+                TsData cur = series(agg);
                 if (aggUnit == null) {
                     aggUnit = cur.getTsUnit();
                 } else if (!aggUnit.equals(cur.getTsUnit())) {
                     throw new TsException(TsException.INCOMPATIBLE_FREQ);
                 }
-                TsData origc = TsDataToolkit.fitToDomain(orig, idomain);
+                TsData origc = TsData.ofInternal(idomain.getStartPeriod(), rcntData[i]);
                 TsData a = origc.aggregate(cur.getTsUnit(), AggregationType.Sum, true);
-                a = TsDataToolkit.subtract(cur, a);
-                tcntData.put(n, a);
+                tcntData[i] = TsDataToolkit.subtract(cur, a);
             }
         }
     }
@@ -344,16 +562,28 @@ class MultivariateCholetteEngine {
         return w;
     }
 
-    private void compute(Map<String, TsData> rslts) {
+    /**
+     * Benchmarking of a component with temporal constraints
+     *
+     * @param vars Positions of the endogenous series of the component
+     * @param cnts Indexes of the contemporaneous constraints of the component
+     * @param lcs Constraints of the component (local positions)
+     * @return The benchmarked series
+     */
+    private double[][] compute(int[] vars, int[] cnts, Constraint[] lcs) {
         int c = idomain.getTsUnit().ratioOf(aggUnit);
-        int nvars = rcnt.size(), ncnts = cs.length;
+        int nvars = vars.length, ncnts = cnts.length;
         int len = idomain.getLength();
+        double[][] w = new double[nvars][];
+        for (int i = 0; i < nvars; ++i) {
+            w[i] = weights[vars[i]];
+        }
 
         IMultivariateSsf ssf = MultivariateSsfCholette.builder(nvars)
                 .conversion(c)
                 .rho(rho)
-                .constraints(cs)
-                .weights(weights)
+                .constraints(lcs)
+                .weights(w)
                 .build();
         // build the observations
         FastMatrix M = FastMatrix.make(len, nvars + ncnts);
@@ -361,31 +591,61 @@ class MultivariateCholetteEngine {
 
         // fill the matrix: first rows with temporal constraints
         for (int i = 0; i < nvars; ++i) {
-            if (temporalConstraints.containsKey(rcnt.get(i))) {
-                TsData a = tcntData.get(rcnt.get(i));
+            TsData a = tcntData[vars[i]];
+            if (a != null) {
                 DataBlock b = M.column(i).extract(c - 1, a.length(), c);
                 b.copy(a.getValues());
             }
         }
         for (int i = 0; i < ncnts; ++i) {
             DataBlock row = M.column(i + nvars);
-            row.copyFrom(lcntData[i], 0);
-        }
-        ISsf adapter = M2uAdapter.of(ssf);
-        ISsfData data = M2uAdapter.of(new SsfMatrix(M));
-        DataBlockStorage states = DkToolkit.fastSmooth(adapter, data);
-
-        int neq = nvars + ncnts;
-        for (int i = 0; i < rcnt.size(); ++i) {
-            TsData s = inputs.get(rcnt.get(i));
-            TsDataView sc = TsDataView.select(s, idomain);
-            double[] y = sc.getData().toArray();
-            DoubleSeq t = states.item(2 * i + 1);
+            row.copyFrom(lcntData[cnts[i]], 0);
+        }
+        // the corrections are the second states of each series
+        int[] sel = new int[nvars];
+        for (int i = 0; i < nvars; ++i) {
+            sel[i] = 2 * i + 1;
+        }
+        double[][] states = smooth(ssf, M, sel);
+
+        double[][] rslt = new double[nvars][];
+        for (int i = 0; i < nvars; ++i) {
+            double[] y = rcntData[vars[i]].clone();
+            double[] t = states[i];
             for (int j = 0; j < y.length; ++j) {
-                y[j] += t.get(j * neq) * weights[i][j];
+                y[j] += t[j] * w[i][j];
             }
-            rslts.put(rcnt.get(i), TsData.ofInternal(sc.getStart(), y));
+            rslt[i] = y;
         }
+        return rslt;
     }
-    
+
+    /**
+     * Smoothing of a multivariate model, handled as a univariate model. Only
+     * the selected components of the smoothed states are kept, at the first
+     * univariate step of each period (see SelectedStates).
+     * The filtering results still keep the gains (M) of all the univariate
+     * steps (len x neq vectors of the size of the state), which are needed by
+     * the backward recursion. So the memory of this method is O(len*neq*dim):
+     * only the storage of the smoothed states is bounded.
+     *
+     * @param ssf The multivariate model
+     * @param M The observations (periods x equations)
+     * @param sel The selected components of the state vector
+     * @return The smoothed values of the selected components, by component
+     */
+    static double[][] smooth(IMultivariateSsf ssf, FastMatrix M, int[] sel) {
+        int len = M.getRowsCount(), neq = M.getColumnsCount();
+        ISsf ussf = M2uAdapter.of(ssf);
+        ISsfData udata = M2uAdapter.of(new SsfMatrix(M));
+        DefaultDiffuseFilteringResults frslts = DkToolkit.filter(ussf, udata, false);
+        DiffuseSmoother smoother = DiffuseSmoother.builder(ussf)
+                .calcVariance(false)
+                .rescaleVariance(false)
+                .build();
+        SelectedStates srslts = new SelectedStates(sel, neq, len);
+        smoother.process(len * neq, frslts, srslts);
+        return srslts.getValues();
+    }
+
 }
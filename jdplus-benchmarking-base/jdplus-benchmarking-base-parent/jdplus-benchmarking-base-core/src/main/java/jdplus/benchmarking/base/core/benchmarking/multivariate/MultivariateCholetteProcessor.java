@@ -31,8 +31,7 @@ public class MultivariateCholetteProcessor implements MultivariateCholette.Proce
 
     @Override
     public Map<String, TsData> benchmark(Map<String, TsData> dictionary, MultivariateCholetteSpec spec) {
-        MultivariateCholetteEngine engine=new MultivariateCholetteEngine();
-        return engine.process(dictionary, spec);
+        return PreparedMultivariateCholette.of(spec, dictionary.keySet()).process(dictionary);
     }
 
 }
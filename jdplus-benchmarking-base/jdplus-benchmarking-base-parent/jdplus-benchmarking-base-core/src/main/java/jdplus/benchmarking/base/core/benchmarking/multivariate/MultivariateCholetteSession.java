@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.multivariate;
+
+import java.util.HashMap;
+import java.util.Map;
+import jdplus.benchmarking.base.api.benchmarking.multivariate.MultivariateCholetteSpec;
+import jdplus.toolkit.base.api.timeseries.TsData;
+import jdplus.toolkit.base.api.timeseries.TsDomain;
+
+/**
+ * Incremental multivariate Cholette benchmarking.
+ * The constraints are compiled once and the last results are kept. When some
+ * input series are revised, only the connected components of the constraints
+ * (and the independent temporal constraints) that involve those series are
+ * benchmarked again; the results of the other components are reused as they
+ * are. The results are identical to a complete benchmarking of the revised
+ * data.
+ * A complete benchmarking is done when the revisions modify the common
+ * domain of the endogenous series.
+ * Not thread-safe.
+ *
+ * @author palatej
+ */
+public final class MultivariateCholetteSession {
+
+    private final PreparedMultivariateCholette prepared;
+    private final CompiledConstraints model;
+    private final Map<String, TsData> inputs;
+    private final Map<String, TsData> results;
+    private TsDomain domain;
+
+    /**
+     *
+     * @param inputs Initial data
+     * @param spec Specification. The wild cards of the constraints are
+     * resolved on the names of the initial data
+     */
+    public MultivariateCholetteSession(Map<String, TsData> inputs, MultivariateCholetteSpec spec) {
+        this.prepared = PreparedMultivariateCholette.of(spec, inputs.keySet());
+        this.model = prepared.getModel();
+        this.inputs = new HashMap<>(inputs);
+        this.results = new HashMap<>(prepared.process(this.inputs));
+        this.domain = model.getEndogenousCount() == 0 ? null : MultivariateCholetteEngine.domain(this.inputs, model);
+    }
+
+    /**
+     * Revises some input series
+     *
+     * @param revisions The revised series. They must belong to the initial
+     * data
+     * @return All the benchmarked series
+     */
+    public Map<String, TsData> update(Map<String, TsData> revisions) {
+        boolean[] revised = new boolean[model.getSeriesCount()];
+        boolean any = false;
+        for (Map.Entry<String, TsData> entry : revisions.entrySet()) {
+            String name = entry.getKey();
+            if (!inputs.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown series: " + name);
+            }
+            inputs.put(name, entry.getValue());
+            int id = model.id(name);
+            if (id >= 0) {
+                revised[id] = true;
+                any = true;
+            }
+        }
+        if (!any) {
+            return getResults();
+        }
+        boolean[] components = new boolean[model.getComponentsCount()];
+        boolean domainChanged = false;
+        for (int i = 0; i < model.getEndogenousCount(); ++i) {
+            if (revised[model.endogenous(i)]) {
+                components[model.component(i)] = true;
+                domainChanged = true;
+            }
+        }
+        if (domainChanged) {
+            TsDomain ndomain = MultivariateCholetteEngine.domain(inputs, model);
+            domainChanged = !ndomain.equals(domain);
+            domain = ndomain;
+        }
+        if (domainChanged) {
+            components = null;
+        } else {
+            for (int i = 0; i < model.getContemporaneousConstraintsCount(); ++i) {
+                int b = model.binding(i), k = model.constraintComponent(i);
+                if (b >= 0 && k >= 0 && revised[b]) {
+                    components[k] = true;
+                }
+            }
+        }
+        int[] details = model.temporalDetails();
+        boolean[] independent = new boolean[details.length];
+        for (int i = 0; i < details.length; ++i) {
+            int detail = details[i];
+            if (revised[detail] || revised[model.aggregate(detail)]) {
+                int pos = model.endogenousPosition(detail);
+                if (pos < 0) {
+                    independent[i] = true;
+                } else if (components != null) {
+                    components[model.component(pos)] = true;
+                }
+            }
+        }
+        results.putAll(prepared.process(inputs, components, independent));
+        return getResults();
+    }
+
+    /**
+     * Last results
+     *
+     * @return A copy of the benchmarked series
+     */
+    public Map<String, TsData> getResults() {
+        return new HashMap<>(results);
+    }
+}
@@ -197,21 +197,59 @@ class MultivariateSsfCholette {
 
         @Override
         public void T(int pos, FastMatrix tr) {
-            // TO DO : optimization
-            for (int i = 0; i < 2 * info.nvars; i += 2) {
-                tr.set(i + 1, i + 1, info.rho);
+            for (int i = 0, j = 0; i < info.nvars; ++i, j += 2) {
+                tr.set(j + 1, j + 1, info.rho);
                 if ((pos + 1) % info.c != 0) {
-                    tr.set(i, i + 1, info.weight(pos, i));
+                    tr.set(j, j + 1, info.weight(pos, i));
                     if (pos % info.c != 0) {
-                        tr.set(i, i, 1);
+                        tr.set(j, j, 1);
                     }
                 }
             }
         }
 
+        /**
+         * T*V*T', computed by 2x2 blocks. For each series, the block of T is
+         * [a b; 0 rho], with a = b = 0 at the end of a low-frequency period, a =
+         * 0, b = w at the beginning of a period and a = 1, b = w otherwise.
+         *
+         * @param pos
+         * @param vm
+         */
+        @Override
+        public void TVT(int pos, FastMatrix vm) {
+            int n = info.nvars;
+            double rho = info.rho;
+            double[] a = new double[n], b = new double[n];
+            if ((pos + 1) % info.c != 0) {
+                double ac = pos % info.c == 0 ? 0 : 1;
+                for (int i = 0; i < n; ++i) {
+                    a[i] = ac;
+                    b[i] = info.weight(pos, i);
+                }
+            }
+            for (int j = 0; j < n; ++j) {
+                int cj = 2 * j;
+                double aj = a[j], bj = b[j];
+                for (int i = 0; i < n; ++i) {
+                    int ci = 2 * i;
+                    double ai = a[i], bi = b[i];
+                    double p = vm.get(ci, cj), q = vm.get(ci, cj + 1),
+                            r = vm.get(ci + 1, cj), s = vm.get(ci + 1, cj + 1);
+                    // T(i)*V(i,j)
+                    double tp = ai * p + bi * r, tq = ai * q + bi * s;
+                    double tr = rho * r, ts = rho * s;
+                    // *T(j)'
+                    vm.set(ci, cj, tp * aj + tq * bj);
+                    vm.set(ci, cj + 1, tq * rho);
+                    vm.set(ci + 1, cj, tr * aj + ts * bj);
+                    vm.set(ci + 1, cj + 1, ts * rho);
+                }
+            }
+        }
+
         @Override
         public void TX(int pos, DataBlock x) {
-            // TO DO : optimization
             for (int i = 0, j = 0; i < info.nvars; ++i, j += 2) {
                 // case I
                 if ((pos + 1) % info.c == 0) {
@@ -241,7 +279,6 @@ class MultivariateSsfCholette {
 
         @Override
         public void XT(int pos, DataBlock x) {
-            // TO DO : optimization
             for (int i = 0, j = 0; i < info.nvars; ++i, j += 2) {
                 // case I: 0, x1
                 if ((pos + 1) % info.c == 0) {
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.multivariate;
+
+import java.util.Collection;
+import java.util.Map;
+import jdplus.benchmarking.base.api.benchmarking.multivariate.MultivariateCholetteSpec;
+import jdplus.toolkit.base.api.timeseries.TsData;
+
+/**
+ * Multivariate Cholette benchmarking prepared for a given specification and
+ * a given set of series names: the constraints are parsed and compiled once
+ * (wild cards, roles of the series, connected components).
+ * Immutable and thread-safe: the same prepared model can be used to
+ * benchmark different data concurrently. Each call uses its own execution
+ * context.
+ *
+ * @author palatej
+ */
+public final class PreparedMultivariateCholette {
+
+    private final CompiledConstraints model;
+    private final double rho, lambda;
+    private final MultivariateCholetteSpec.Engine engine;
+
+    /**
+     *
+     * @param spec
+     * @param names Names of the series of the data. The wild cards of the
+     * constraints are resolved on those names
+     * @return
+     */
+    public static PreparedMultivariateCholette of(MultivariateCholetteSpec spec, Collection<String> names) {
+        return new PreparedMultivariateCholette(CompiledConstraints.of(spec, names), spec.getRho(), spec.getLambda(), spec.getEngine());
+    }
+
+    private PreparedMultivariateCholette(CompiledConstraints model, double rho, double lambda, MultivariateCholetteSpec.Engine engine) {
+        this.model = model;
+        this.rho = rho;
+        this.lambda = lambda;
+        this.engine = engine;
+    }
+
+    /**
+     * Benchmarks the given data
+     *
+     * @param inputs The data. They must contain all the series referenced by
+     * the constraints. They are not modified
+     * @return The benchmarked series
+     */
+    public Map<String, TsData> process(Map<String, TsData> inputs) {
+        return new MultivariateCholetteEngine().process(inputs, model, rho, lambda, engine);
+    }
+
+    /**
+     * Benchmarks a part of the model (see MultivariateCholetteEngine)
+     *
+     * @param inputs
+     * @param components
+     * @param details
+     * @return
+     */
+    Map<String, TsData> process(Map<String, TsData> inputs, boolean[] components, boolean[] details) {
+        return new MultivariateCholetteEngine().process(inputs, model, rho, lambda, engine, components, details);
+    }
+
+    CompiledConstraints getModel() {
+        return model;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.multivariate;
+
+import java.util.Arrays;
+import jdplus.toolkit.base.core.data.DataBlock;
+import jdplus.toolkit.base.core.math.matrices.FastMatrix;
+import jdplus.toolkit.base.core.ssf.State;
+import jdplus.toolkit.base.core.ssf.StateInfo;
+import jdplus.toolkit.base.core.ssf.univariate.ISmoothingResults;
+
+/**
+ * Smoothing results that only keep some components of the smoothed states,
+ * at regular positions of the univariate filter (the first univariate step of
+ * each period of a multivariate model handled by M2uAdapter). The values are
+ * written directly in arrays of length "number of periods" (one array by
+ * selected component), which are also available through getComponent.
+ * Nothing else is stored (whole states, variances, smoothations...), so that
+ * the corresponding methods are not supported.
+ *
+ * @author palatej
+ */
+final class SelectedStates implements ISmoothingResults {
+
+    private final int[] components;
+    private final int stride, length;
+    private final double[][] values;
+
+    /**
+     *
+     * @param components The selected components of the state vector
+     * @param stride Number of univariate steps by period
+     * @param length Number of periods
+     */
+    SelectedStates(int[] components, int stride, int length) {
+        this.components = components;
+        this.stride = stride;
+        this.length = length;
+        this.values = new double[components.length][length];
+    }
+
+    /**
+     * The smoothed values of the selected components, by component
+     *
+     * @return
+     */
+    double[][] getValues() {
+        return values;
+    }
+
+    @Override
+    public void save(int pos, State state, StateInfo info) {
+        if (info != StateInfo.Smoothed || pos % stride != 0) {
+            return;
+        }
+        int t = pos / stride;
+        if (t >= length) {
+            return;
+        }
+        DataBlock a = state.a();
+        for (int k = 0; k < components.length; ++k) {
+            values[k][t] = a.get(components[k]);
+        }
+    }
+
+    @Override
+    public void saveSmoothation(int pos, double u, double uVariance) {
+    }
+
+    @Override
+    public void saveR(int pos, DataBlock r, FastMatrix rvar) {
+    }
+
+    @Override
+    public void rescaleVariances(double factor) {
+    }
+
+    @Override
+    public void prepare(int dim, int start, int end) {
+    }
+
+    @Override
+    public void clear() {
+        for (double[] v : values) {
+            Arrays.fill(v, 0);
+        }
+    }
+
+    @Override
+    public int getStart() {
+        return 0;
+    }
+
+    @Override
+    public int getEnd() {
+        return length * stride;
+    }
+
+    /**
+     * The smoothed values of a selected component, by period (and not by
+     * univariate step)
+     *
+     * @param pos The position of the component in the state vector
+     * @return
+     */
+    @Override
+    public DataBlock getComponent(int pos) {
+        for (int k = 0; k < components.length; ++k) {
+            if (components[k] == pos) {
+                return DataBlock.of(values[k]);
+            }
+        }
+        throw new IllegalArgumentException("Component not selected: " + pos);
+    }
+
+    // The whole states, the variances, the smoothations and r are never
+    // stored (the smoother is used without variances)
+    @Override
+    public DataBlock a(int pos) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FastMatrix P(int pos) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public DataBlock R(int pos) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public FastMatrix RVariance(int pos) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public DataBlock getComponentVariance(int pos) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public double smoothation(int pos) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public double smoothationVariance(int pos) {
+        throw new UnsupportedOperationException();
+    }
+}
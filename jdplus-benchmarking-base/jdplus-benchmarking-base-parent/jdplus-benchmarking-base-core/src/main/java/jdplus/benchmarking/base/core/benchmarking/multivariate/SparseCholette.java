@@ -0,0 +1,274 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.multivariate;
+
+import java.util.Arrays;
+
+/**
+ * Multivariate Cholette benchmarking solved as a generalized least squares
+ * problem, with a sparse direct solver.
+ * The corrections of the series i are u(i) = W(i)*e(i), where the e(i) are
+ * independent AR(1) processes (random walks if rho = 1). Their smoothed values
+ * minimize sum(e(i)'Q*e(i)) under the contemporaneous constraints (for each
+ * period t: sum(a(j)*w(j,t)*e(j,t)) = d(t)) and the temporal constraints
+ * (for each low-frequency period: sum(w(i,t)*e(i,t)) = a). Q is the
+ * tridiagonal precision matrix of the AR(1) process (see BandedCholette). The
+ * results are identical to the smoothed states of the state space models.
+ * The KKT system
+ * <pre>
+ * Q*e + A'*l = 0
+ * A*e = d
+ * </pre>
+ * is block-banded in time and sparse across the series. The unknowns are
+ * grouped by period (corrections of the period, then the multipliers of the
+ * constraints of the period), which keeps the fill-in of the factorization
+ * inside the band, and they are ordered by minimum degree inside each period
+ * (see AmdOrdering). The system is made quasi-definite by a small
+ * regularization of the multipliers, factorized by a sparse LDL' and solved by
+ * iterative refinement on the unregularized system.
+ * For rho = 1, Q is singular (diffuse initialization). The solution is then
+ * computed as the limit, for p going to 0, of the solutions with a prior
+ * precision p on the initial corrections (Richardson extrapolation of three
+ * solutions), which also covers the case where the constraints don't
+ * identify all the corrections.
+ * The memory used is of the order of the number of non-zeros of the factor.
+ *
+ * @author palatej
+ */
+final class SparseCholette {
+
+    private static final double PEPS = 1e-5, DEPS = 1e-8, TOL = 1e-14;
+    private static final int MAX_REFINEMENTS = 20;
+
+    private final double rho;
+    private final int conversion;
+
+    /**
+     *
+     * @param rho
+     * @param conversion Conversion factor of the temporal constraints (not
+     * used if there are no temporal constraints)
+     */
+    SparseCholette(double rho, int conversion) {
+        this.rho = rho;
+        this.conversion = conversion;
+    }
+
+    /**
+     * Computes the corrections
+     *
+     * @param w Weights of the series (null for unit weights)
+     * @param cs Contemporaneous constraints
+     * @param d Discrepancies of the contemporaneous constraints (for each
+     * constraint, the values for each period; missing values are allowed)
+     * @param t Discrepancies of the temporal constraints (for each series, the
+     * values for each complete low-frequency period, or null)
+     * @param n Number of periods
+     * @return The corrections (u = W*e) of each series
+     */
+    double[][] process(double[][] w, Constraint[] cs, double[][] d, double[][] t, int n) {
+        int nvars = t.length, ncnts = cs.length, c = conversion;
+        // positions of the unknowns, by period: corrections, multipliers of
+        // the contemporaneous constraints, multipliers of the temporal
+        // constraints ending in the period
+        int[] epos = new int[nvars * n];
+        int[][] cpos = new int[ncnts][n], tpos = new int[nvars][];
+        int[] blocks = new int[n + 1];
+        int dim = 0;
+        for (int j = 0; j < n; ++j) {
+            blocks[j] = dim;
+            for (int i = 0; i < nvars; ++i) {
+                epos[i * n + j] = dim++;
+            }
+            for (int k = 0; k < ncnts; ++k) {
+                cpos[k][j] = Double.isFinite(d[k][j]) ? dim++ : -1;
+            }
+            if ((j + 1) % c == 0) {
+                int k = (j + 1) / c - 1;
+                for (int i = 0; i < nvars; ++i) {
+                    if (t[i] != null && k < t[i].length && Double.isFinite(t[i][k])) {
+                        if (tpos[i] == null) {
+                            tpos[i] = new int[t[i].length];
+                            Arrays.fill(tpos[i], -1);
+                        }
+                        tpos[i][k] = dim++;
+                    }
+                }
+            }
+        }
+        blocks[n] = dim;
+        int ne = nvars * n;
+        SparseSymmetricMatrix.Builder builder = SparseSymmetricMatrix.builder(dim, 2 * ne + (dim - ne) * (1 + Math.max(c, nvars)));
+        double[] b = new double[dim];
+        boolean[] lagrange = new boolean[dim];
+        // Q
+        double q = 1 + rho * rho;
+        for (int i = 0; i < nvars; ++i) {
+            int i0 = i * n;
+            if (n == 1) {
+                builder.add(epos[i0], epos[i0], 1 - rho * rho);
+            } else {
+                for (int j = 0; j < n; ++j) {
+                    builder.add(epos[i0 + j], epos[i0 + j], j == 0 || j == n - 1 ? 1 : q);
+                    if (j > 0) {
+                        builder.add(epos[i0 + j - 1], epos[i0 + j], -rho);
+                    }
+                }
+            }
+        }
+        // A, A'
+        double amax = 0;
+        for (int k = 0; k < ncnts; ++k) {
+            Constraint cnt = cs[k];
+            for (int j = 0; j < n; ++j) {
+                int l = cpos[k][j];
+                if (l >= 0) {
+                    for (int m = 0; m < cnt.index.length; ++m) {
+                        int v = cnt.index[m];
+                        double a = cnt.weights[m] * (w == null ? 1 : w[v][j]);
+                        builder.add(epos[v * n + j], l, a);
+                        amax = Math.max(amax, Math.abs(a));
+                    }
+                    b[l] = d[k][j];
+                    lagrange[l] = true;
+                }
+            }
+        }
+        for (int i = 0; i < nvars; ++i) {
+            if (tpos[i] != null) {
+                for (int k = 0; k < tpos[i].length; ++k) {
+                    int l = tpos[i][k];
+                    if (l >= 0) {
+                        for (int j = k * c; j < (k + 1) * c; ++j) {
+                            double a = w == null ? 1 : w[i][j];
+                            builder.add(epos[i * n + j], l, a);
+                            amax = Math.max(amax, Math.abs(a));
+                        }
+                        b[l] = t[i][k];
+                        lagrange[l] = true;
+                    }
+                }
+            }
+        }
+        SparseSymmetricMatrix K = builder.build();
+        // fill-reducing order inside each period
+        int[] perm = AmdOrdering.order(K, blocks), iperm = new int[dim];
+        for (int k = 0; k < dim; ++k) {
+            iperm[perm[k]] = k;
+        }
+        K = K.permute(perm);
+        for (int k = 0; k < ne; ++k) {
+            epos[k] = iperm[epos[k]];
+        }
+        double[] pb = new double[dim];
+        double[] dreg = new double[dim];
+        for (int k = 0; k < dim; ++k) {
+            int l = perm[k];
+            pb[k] = b[l];
+            if (lagrange[l]) {
+                dreg[k] = -DEPS * Math.max(1, amax * amax);
+            }
+        }
+        b = pb;
+        double[] x;
+        if (rho == 1) {
+            // diffuse initialization: limit for p -> 0 of the solution with a
+            // prior precision p on the initial corrections
+            double[] e0 = new double[dim];
+            for (int i = 0; i < nvars; ++i) {
+                e0[epos[i * n]] = PEPS;
+            }
+            double[] x1 = solve(K, e0, dreg, b);
+            for (int i = 0; i < nvars; ++i) {
+                e0[epos[i * n]] = 2 * PEPS;
+            }
+            double[] x2 = solve(K, e0, dreg, b);
+            for (int i = 0; i < nvars; ++i) {
+                e0[epos[i * n]] = 4 * PEPS;
+            }
+            double[] x4 = solve(K, e0, dreg, b);
+            // Richardson extrapolation (error in p^3)
+            x = new double[dim];
+            for (int k = 0; k < dim; ++k) {
+                x[k] = (8 * x1[k] - 6 * x2[k] + x4[k]) / 3;
+            }
+        } else {
+            x = solve(K, null, dreg, b);
+        }
+
+        double[][] u = new double[nvars][];
+        for (int i = 0; i < nvars; ++i) {
+            double[] ui = new double[n];
+            for (int j = 0; j < n; ++j) {
+                double e = x[epos[i * n + j]];
+                ui[j] = w == null ? e : w[i][j] * e;
+            }
+            u[i] = ui;
+        }
+        return u;
+    }
+
+    /**
+     * Solves (K + diag(p))*x = b, by iterative refinement on a factorization
+     * of K + diag(p) + diag(reg)
+     *
+     * @param K
+     * @param p May be null
+     * @param reg Regularization (used only in the factorization)
+     * @param b
+     * @return
+     */
+    private static double[] solve(SparseSymmetricMatrix K, double[] p, double[] reg, double[] b) {
+        int dim = b.length;
+        double[] shift = reg.clone();
+        if (p != null) {
+            for (int k = 0; k < dim; ++k) {
+                shift[k] += p[k];
+            }
+        }
+        SparseLDL ldl = SparseLDL.factorize(K, shift);
+        double[] x = b.clone();
+        ldl.solve(x);
+        double[] r = new double[dim];
+        double bmax = 0;
+        for (int k = 0; k < dim; ++k) {
+            bmax = Math.max(bmax, Math.abs(b[k]));
+        }
+        double rprev = Double.MAX_VALUE;
+        for (int iter = 0; iter < MAX_REFINEMENTS; ++iter) {
+            K.times(x, r);
+            double rmax = 0;
+            for (int k = 0; k < dim; ++k) {
+                double rk = b[k] - r[k];
+                if (p != null) {
+                    rk -= p[k] * x[k];
+                }
+                r[k] = rk;
+                rmax = Math.max(rmax, Math.abs(rk));
+            }
+            if (rmax <= TOL * Math.max(1, bmax) || rmax >= rprev) {
+                break;
+            }
+            rprev = rmax;
+            ldl.solve(r);
+            for (int k = 0; k < dim; ++k) {
+                x[k] += r[k];
+            }
+        }
+        return x;
+    }
+}
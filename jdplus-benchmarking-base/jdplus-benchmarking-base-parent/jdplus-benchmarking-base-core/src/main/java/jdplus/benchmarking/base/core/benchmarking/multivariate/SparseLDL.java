@@ -0,0 +1,166 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.multivariate;
+
+import jdplus.benchmarking.base.api.benchmarking.BenchmarkingException;
+
+/**
+ * Sparse LDL' factorization (L unit lower triangular, D diagonal) of a
+ * symmetric matrix, without pivoting: A = L*D*L'. The rows/columns are
+ * eliminated in their natural order, which should be a fill-reducing order.
+ * The factorization exists and is stable for any order when the matrix is
+ * quasi-definite (positive definite and negative definite diagonal blocks),
+ * which is the case of regularized KKT systems.
+ * The factor is computed row by row (up-looking algorithm): the elimination
+ * tree gives the exact number of non-zeros of each column before the numeric
+ * step, so that the memory used is that of the factor.
+ *
+ * @author palatej
+ */
+final class SparseLDL {
+
+    static final String SINGULAR = "Singular system";
+
+    private final int n;
+    private final int[] lp, li;
+    private final double[] lx, d;
+
+    /**
+     * Factorizes A + diag(shift)
+     *
+     * @param A The matrix
+     * @param shift Values added to the diagonal (may be null)
+     * @return
+     * @throws BenchmarkingException if a pivot is null
+     */
+    static SparseLDL factorize(SparseSymmetricMatrix A, double[] shift) {
+        SparseSymmetricMatrix B = shift == null ? A : A.plusDiagonal(shift);
+        int n = B.getDim();
+        int[] ap = B.colPtr(), ai = B.rowIdx();
+        double[] ax = B.values();
+        // symbolic: elimination tree and column counts
+        int[] parent = new int[n], lnz = new int[n], flag = new int[n];
+        for (int k = 0; k < n; ++k) {
+            parent[k] = -1;
+            flag[k] = k;
+            for (int p = ap[k]; p < ap[k + 1]; ++p) {
+                int i = ai[p];
+                if (i < k) {
+                    for (; flag[i] != k; i = parent[i]) {
+                        if (parent[i] == -1) {
+                            parent[i] = k;
+                        }
+                        ++lnz[i];
+                        flag[i] = k;
+                    }
+                }
+            }
+        }
+        int[] lp = new int[n + 1];
+        for (int k = 0; k < n; ++k) {
+            lp[k + 1] = lp[k] + lnz[k];
+        }
+        // numeric
+        int[] li = new int[lp[n]], pattern = new int[n];
+        double[] lx = new double[lp[n]], d = new double[n], y = new double[n];
+        for (int k = 0; k < n; ++k) {
+            y[k] = 0;
+            int top = n;
+            flag[k] = k;
+            lnz[k] = 0;
+            for (int p = ap[k]; p < ap[k + 1]; ++p) {
+                int i = ai[p];
+                y[i] += ax[p];
+                int len = 0;
+                for (; flag[i] != k; i = parent[i]) {
+                    pattern[len++] = i;
+                    flag[i] = k;
+                }
+                while (len > 0) {
+                    pattern[--top] = pattern[--len];
+                }
+            }
+            d[k] = y[k];
+            y[k] = 0;
+            for (; top < n; ++top) {
+                int i = pattern[top];
+                double yi = y[i];
+                y[i] = 0;
+                int p2 = lp[i] + lnz[i];
+                for (int p = lp[i]; p < p2; ++p) {
+                    y[li[p]] -= lx[p] * yi;
+                }
+                double lki = yi / d[i];
+                d[k] -= lki * yi;
+                li[p2] = k;
+                lx[p2] = lki;
+                ++lnz[i];
+            }
+            if (d[k] == 0 || !Double.isFinite(d[k])) {
+                throw new BenchmarkingException(SINGULAR);
+            }
+        }
+        return new SparseLDL(n, lp, li, lx, d);
+    }
+
+    private SparseLDL(int n, int[] lp, int[] li, double[] lx, double[] d) {
+        this.n = n;
+        this.lp = lp;
+        this.li = li;
+        this.lx = lx;
+        this.d = d;
+    }
+
+    int getDim() {
+        return n;
+    }
+
+    /**
+     * Number of non-zeros of L (without the unit diagonal)
+     *
+     * @return
+     */
+    int getNonZerosCount() {
+        return lp[n];
+    }
+
+    /**
+     * Solves (A + diag(shift))*x = b
+     *
+     * @param b On entry, the right-hand side. On exit, the solution
+     */
+    void solve(double[] b) {
+        for (int j = 0; j < n; ++j) {
+            double bj = b[j];
+            if (bj != 0) {
+                for (int p = lp[j]; p < lp[j + 1]; ++p) {
+                    b[li[p]] -= lx[p] * bj;
+                }
+            }
+        }
+        for (int j = 0; j < n; ++j) {
+            b[j] /= d[j];
+        }
+        for (int j = n - 1; j >= 0; --j) {
+            double s = b[j];
+            for (int p = lp[j]; p < lp[j + 1]; ++p) {
+                s -= lx[p] * b[li[p]];
+            }
+            b[j] = s;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.multivariate;
+
+import java.util.Arrays;
+
+/**
+ * Symmetric sparse matrix, stored by its upper triangle in compressed columns
+ * (for each column j, the rows i &le; j in increasing order).
+ * Immutable.
+ *
+ * @author palatej
+ */
+final class SparseSymmetricMatrix {
+
+    /**
+     * Assembles a matrix from (row, column, value) triplets. Only one of the
+     * symmetric elements should be provided; duplicates are summed.
+     */
+    static final class Builder {
+
+        private final int n;
+        private int nnz;
+        private int[] rows, cols;
+        private double[] vals;
+
+        Builder(int n, int capacity) {
+            this.n = n;
+            int c = Math.max(capacity, 16);
+            rows = new int[c];
+            cols = new int[c];
+            vals = new double[c];
+        }
+
+        Builder add(int i, int j, double v) {
+            if (nnz == rows.length) {
+                int c = 2 * nnz;
+                rows = Arrays.copyOf(rows, c);
+                cols = Arrays.copyOf(cols, c);
+                vals = Arrays.copyOf(vals, c);
+            }
+            if (i <= j) {
+                rows[nnz] = i;
+                cols[nnz] = j;
+            } else {
+                rows[nnz] = j;
+                cols[nnz] = i;
+            }
+            vals[nnz++] = v;
+            return this;
+        }
+
+        SparseSymmetricMatrix build() {
+            // counting sort by column, then by row inside each column
+            int[] cnt = new int[n + 1];
+            for (int k = 0; k < nnz; ++k) {
+                ++cnt[rows[k] + 1];
+            }
+            for (int i = 0; i < n; ++i) {
+                cnt[i + 1] += cnt[i];
+            }
+            int[] byRow = new int[nnz];
+            for (int k = 0; k < nnz; ++k) {
+                byRow[cnt[rows[k]]++] = k;
+            }
+            Arrays.fill(cnt, 0);
+            for (int k = 0; k < nnz; ++k) {
+                ++cnt[cols[k] + 1];
+            }
+            for (int j = 0; j < n; ++j) {
+                cnt[j + 1] += cnt[j];
+            }
+            int[] ptr = cnt.clone();
+            int[] idx = new int[nnz];
+            double[] x = new double[nnz];
+            for (int l = 0; l < nnz; ++l) {
+                int k = byRow[l], p = ptr[cols[k]]++;
+                idx[p] = rows[k];
+                x[p] = vals[k];
+            }
+            // duplicates
+            int[] colPtr = new int[n + 1];
+            int m = 0;
+            for (int j = 0; j < n; ++j) {
+                int start = m;
+                for (int p = cnt[j]; p < cnt[j + 1]; ++p) {
+                    if (m > start && idx[m - 1] == idx[p]) {
+                        x[m - 1] += x[p];
+                    } else {
+                        idx[m] = idx[p];
+                        x[m++] = x[p];
+                    }
+                }
+                colPtr[j + 1] = m;
+            }
+            return new SparseSymmetricMatrix(n, colPtr, Arrays.copyOf(idx, m), Arrays.copyOf(x, m));
+        }
+    }
+
+    static Builder builder(int n, int capacity) {
+        return new Builder(n, capacity);
+    }
+
+    private final int n;
+    private final int[] colPtr, rowIdx;
+    private final double[] values;
+
+    private SparseSymmetricMatrix(int n, int[] colPtr, int[] rowIdx, double[] values) {
+        this.n = n;
+        this.colPtr = colPtr;
+        this.rowIdx = rowIdx;
+        this.values = values;
+    }
+
+    int getDim() {
+        return n;
+    }
+
+    /**
+     * Number of stored elements (upper triangle)
+     *
+     * @return
+     */
+    int getNonZerosCount() {
+        return rowIdx.length;
+    }
+
+    int[] colPtr() {
+        return colPtr;
+    }
+
+    int[] rowIdx() {
+        return rowIdx;
+    }
+
+    double[] values() {
+        return values;
+    }
+
+    /**
+     * y = A*x
+     *
+     * @param x
+     * @param y
+     */
+    void times(double[] x, double[] y) {
+        Arrays.fill(y, 0, n, 0);
+        for (int j = 0; j < n; ++j) {
+            double xj = x[j], s = 0;
+            for (int p = colPtr[j]; p < colPtr[j + 1]; ++p) {
+                int i = rowIdx[p];
+                double a = values[p];
+                s += a * x[i];
+                if (i != j) {
+                    y[i] += a * xj;
+                }
+            }
+            y[j] += s;
+        }
+    }
+
+    /**
+     * A + diag(shift)
+     *
+     * @param shift
+     * @return
+     */
+    SparseSymmetricMatrix plusDiagonal(double[] shift) {
+        Builder builder = new Builder(n, rowIdx.length + n);
+        for (int j = 0; j < n; ++j) {
+            for (int p = colPtr[j]; p < colPtr[j + 1]; ++p) {
+                builder.add(rowIdx[p], j, values[p]);
+            }
+            if (shift[j] != 0) {
+                builder.add(j, j, shift[j]);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Symmetric permutation P*A*P'
+     *
+     * @param perm perm[k] is the index in A of the k-th row/column of the
+     * result
+     * @return
+     */
+    SparseSymmetricMatrix permute(int[] perm) {
+        int[] iperm = new int[n];
+        for (int k = 0; k < n; ++k) {
+            iperm[perm[k]] = k;
+        }
+        Builder builder = new Builder(n, rowIdx.length);
+        for (int j = 0; j < n; ++j) {
+            for (int p = colPtr[j]; p < colPtr[j + 1]; ++p) {
+                builder.add(iperm[rowIdx[p]], iperm[j], values[p]);
+            }
+        }
+        return builder.build();
+    }
+}
@@ -147,7 +147,49 @@ public class AggregationCubicSpline {
 //    }
 //
 
+    /**
+     * Smoothest aggregation spline (with a free value at the right boundary).
+     * The coefficients of the spline are affine in the boundary value, so
+     * that the smoothness criterion is quadratic in it: its minimum is
+     * obtained in closed form from two spline solves (plus the final one).
+     * Only the boundary value is computed in closed form: each spline is
+     * still built and solved by GenericCubicSpline.
+     * The numerical optimization is used as a fallback if the criterion is
+     * degenerated.
+     *
+     * @param xi Knots
+     * @param fx Aggregates (integrals) between successive knots
+     * @return
+     */
     public GenericCubicSpline aggregationSplineOf(double[] xi, double[] fx) {
+        AggregationFunction fn = new AggregationFunction(xi, fx);
+        int n = xi.length - 1;
+        double f = fx[n - 1] / (xi[n] - xi[n - 1]);
+        double step = Math.max(1, Math.abs(f));
+        GenericCubicSpline s0 = fn.new Point(f).spline(), s1 = fn.new Point(f + step).spline();
+        if (s0 != null && s1 != null) {
+            // s(t) = s0 + t*(s1-s0) is the spline for f+t*step
+            double b00 = fn.criterion(s0, s0), b01 = fn.criterion(s0, s1), b11 = fn.criterion(s1, s1);
+            double a = b00 - 2 * b01 + b11, b = b00 - b01;
+            if (a > 0 && Double.isFinite(a) && Double.isFinite(b)) {
+                GenericCubicSpline s = fn.new Point(f + step * b / a).spline();
+                if (s != null) {
+                    return s;
+                }
+            }
+        }
+        return aggregationSplineOfByOptimization(xi, fx);
+    }
+
+    /**
+     * Smoothest aggregation spline, computed by numerical optimization (BFGS)
+     * on the right boundary value
+     *
+     * @param xi Knots
+     * @param fx Aggregates (integrals) between successive knots
+     * @return
+     */
+    GenericCubicSpline aggregationSplineOfByOptimization(double[] xi, double[] fx) {
         AggregationFunction fn = new AggregationFunction(xi, fx);
         int n = xi.length - 1;
         double f = fx[n - 1] / (xi[n] - xi[n - 1]);
@@ -177,6 +219,25 @@ public class AggregationCubicSpline {
             range = max - min;
         }
 
+        /**
+         * Bilinear form of the smoothness criterion (criterion(p, p) is the
+         * value of the function at p)
+         *
+         * @param p
+         * @param q
+         * @return
+         */
+        double criterion(GenericCubicSpline p, GenericCubicSpline q) {
+            double s = 0;
+            for (int i = 0; i < xi.length - 1; ++i) {
+                DoubleSeq cp = p.polynomial(i), cq = q.polynomial(i);
+                double dx = xi[i + 1] - xi[i], dx2 = dx * dx, dx3 = dx * dx2;
+                double a2 = cp.get(2), a3 = cp.get(3), b2 = cq.get(2), b3 = cq.get(3);
+                s += a2 * b2 * dx + 1.5 * (a2 * b3 + a3 * b2) * dx2 + 3 * a3 * b3 * dx3;
+            }
+            return s;
+        }
+
         @Override
         public IFunctionPoint evaluate(DoubleSeq parameters) {
             return new Point(parameters.get(0));
@@ -222,15 +283,7 @@ public class AggregationCubicSpline {
                 if (spline == null) {
                     return Double.NaN;
                 }
-                // Computes the smoothness criterion
-                double s = 0;
-                for (int i = 0; i < xi.length - 1; ++i) {
-                    DoubleSeq p = spline.polynomial(i);
-                    double dx = xi[i + 1] - xi[i], dx2 = dx * dx, dx3 = dx * dx2;
-                    double a2 = p.get(2), a3 = p.get(3);
-                    s += a2 * a2 * dx + 3 * a2 * a3 * dx2 + 3 * a3 * a3 * dx3;
-                }
-                return s;
+                return criterion(spline, spline);
             }
 
         }
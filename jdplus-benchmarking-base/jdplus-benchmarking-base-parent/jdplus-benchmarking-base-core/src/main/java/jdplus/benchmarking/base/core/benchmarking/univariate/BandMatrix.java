@@ -0,0 +1,226 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.univariate;
+
+import jdplus.benchmarking.base.api.benchmarking.BenchmarkingException;
+
+/**
+ * Square band matrix with kl sub-diagonals and ku super-diagonals, stored by
+ * rows. Each row keeps kl additional cells for the fill-in generated by the
+ * row interchanges of the LU factorization (Gaussian elimination with partial
+ * pivoting, as in LAPACK dgbtrf). The factorization is done in place.
+ *
+ * @author palatej
+ */
+final class BandMatrix {
+
+    static final String SINGULAR = "Singular system";
+
+    private final int n, kl, ku, w;
+    private final double[] data;
+    private int[] pivots;
+
+    BandMatrix(int n, int kl, int ku) {
+        this.n = n;
+        this.kl = kl;
+        this.ku = ku;
+        this.w = 2 * kl + ku + 1;
+        this.data = new double[n * w];
+    }
+
+    private int index(int r, int c) {
+        return r * w + c - r + kl;
+    }
+
+    int getDim() {
+        return n;
+    }
+
+    int getLowerBandwidth() {
+        return kl;
+    }
+
+    int getUpperBandwidth() {
+        return ku;
+    }
+
+    /**
+     * Memory used by the matrix (in bytes, approximately)
+     *
+     * @return
+     */
+    long getMemorySize() {
+        return 8L * data.length + 4L * n;
+    }
+
+    boolean isFactorized() {
+        return pivots != null;
+    }
+
+    double get(int r, int c) {
+        int d = c - r;
+        if (d < -kl || d > kl + ku) {
+            return 0;
+        }
+        return data[index(r, c)];
+    }
+
+    /**
+     * Sets an element of the band. Only valid before the factorization
+     *
+     * @param r Row
+     * @param c Column (should verify -kl &le; c-r &le; ku)
+     * @param v
+     */
+    void set(int r, int c, double v) {
+        data[index(r, c)] = v;
+    }
+
+    void add(int r, int c, double v) {
+        data[index(r, c)] += v;
+    }
+
+    /**
+     * In place LU factorization, with partial pivoting
+     *
+     * @throws BenchmarkingException if the matrix is singular
+     */
+    void lu() {
+        int[] piv = new int[n];
+        for (int k = 0; k < n; ++k) {
+            int rmax = Math.min(n - 1, k + kl);
+            int p = k;
+            double vmax = Math.abs(data[index(k, k)]);
+            for (int r = k + 1; r <= rmax; ++r) {
+                double v = Math.abs(data[index(r, k)]);
+                if (v > vmax) {
+                    vmax = v;
+                    p = r;
+                }
+            }
+            if (vmax == 0) {
+                throw new BenchmarkingException(SINGULAR);
+            }
+            piv[k] = p;
+            int cmax = Math.min(n - 1, k + kl + ku);
+            if (p != k) {
+                for (int c = k, ik = index(k, k), ip = index(p, k); c <= cmax; ++c) {
+                    double tmp = data[ik];
+                    data[ik++] = data[ip];
+                    data[ip++] = tmp;
+                }
+            }
+            double pivot = data[index(k, k)];
+            for (int r = k + 1; r <= rmax; ++r) {
+                int ir = index(r, k);
+                double l = data[ir] / pivot;
+                data[ir] = l;
+                if (l != 0) {
+                    for (int c = k + 1, ik = index(k, k + 1), jr = ir + 1; c <= cmax; ++c) {
+                        data[jr++] -= l * data[ik++];
+                    }
+                }
+            }
+        }
+        pivots = piv;
+    }
+
+    /**
+     * Solves Ax=b, where A is this (factorized) matrix. b is overwritten by x
+     *
+     * @param b
+     */
+    void solve(double[] b) {
+        for (int k = 0; k < n; ++k) {
+            int p = pivots[k];
+            if (p != k) {
+                double tmp = b[k];
+                b[k] = b[p];
+                b[p] = tmp;
+            }
+            double bk = b[k];
+            if (bk != 0) {
+                int rmax = Math.min(n - 1, k + kl);
+                for (int r = k + 1; r <= rmax; ++r) {
+                    b[r] -= data[index(r, k)] * bk;
+                }
+            }
+        }
+        int ku2 = kl + ku;
+        for (int k = n - 1; k >= 0; --k) {
+            double s = b[k];
+            int cmax = Math.min(n - 1, k + ku2);
+            for (int c = k + 1, ik = index(k, k + 1); c <= cmax; ++c) {
+                s -= data[ik++] * b[c];
+            }
+            b[k] = s / data[index(k, k)];
+        }
+    }
+
+    /**
+     * Solves AX=B, where A is this (factorized) matrix. B is stored by rows
+     * (the m right-hand sides of each row are contiguous) and it is
+     * overwritten by X
+     *
+     * @param b
+     * @param m The number of right-hand sides
+     */
+    void solve(double[] b, int m) {
+        if (m == 1) {
+            solve(b);
+            return;
+        }
+        for (int k = 0; k < n; ++k) {
+            int p = pivots[k];
+            int bk = k * m;
+            if (p != k) {
+                for (int l = 0, bp = p * m; l < m; ++l) {
+                    double tmp = b[bk + l];
+                    b[bk + l] = b[bp + l];
+                    b[bp + l] = tmp;
+                }
+            }
+            int rmax = Math.min(n - 1, k + kl);
+            for (int r = k + 1; r <= rmax; ++r) {
+                double l = data[index(r, k)];
+                if (l != 0) {
+                    for (int t = 0, br = r * m; t < m; ++t) {
+                        b[br + t] -= l * b[bk + t];
+                    }
+                }
+            }
+        }
+        int ku2 = kl + ku;
+        for (int k = n - 1; k >= 0; --k) {
+            int bk = k * m;
+            int cmax = Math.min(n - 1, k + ku2);
+            for (int c = k + 1, ik = index(k, k + 1); c <= cmax; ++c) {
+                double u = data[ik++];
+                if (u != 0) {
+                    for (int t = 0, bc = c * m; t < m; ++t) {
+                        b[bk + t] -= u * b[bc + t];
+                    }
+                }
+            }
+            double d = data[index(k, k)];
+            for (int t = 0; t < m; ++t) {
+                b[bk + t] /= d;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.univariate;
+
+import java.util.Arrays;
+
+/**
+ * Cholette benchmarking with flow constraints (sum or average), solved as a
+ * generalized least squares problem.
+ * The corrections are u = W*e, where W = diag(w) and e is an AR(1) process
+ * (random walk if rho = 1). Their smoothed values minimize e'Qe under the
+ * constraints J*W*e = d, where Q is the (tridiagonal) precision matrix of the
+ * AR(1) process: 1 on the first and last positions, 1+rho² elsewhere on the
+ * diagonal, -rho on the first sub/super-diagonals. For rho = 1, Q = D'D (D
+ * the first differences), which corresponds to the diffuse initialization of
+ * the random walk. The results are identical to the smoothed states of the
+ * SsfCholette model.
+ * As for BandedDenton, the Lagrange multipliers are interleaved with the
+ * unknowns, so that the system
+ * <pre>
+ * Q*e + W*J'*l = 0
+ * J*W*e = d
+ * </pre>
+ * is banded (bandwidth close to the conversion factor). It is solved by a
+ * banded LU factorization in O(n) operations, without any state-space object.
+ *
+ * @author palatej
+ */
+public class BandedCholette {
+
+    private final double rho;
+    private final int conversion;
+
+    public BandedCholette(double rho, int conversion) {
+        this.rho = rho;
+        this.conversion = conversion;
+    }
+
+    public double getRho() {
+        return rho;
+    }
+
+    public int getConversionFactor() {
+        return conversion;
+    }
+
+    /**
+     * Computes the corrections
+     *
+     * @param y Discrepancies between the constraints and the aggregated
+     * series. They are put at the last position of each aggregation period
+     * (missing values elsewhere), as in CholetteProcessor.expand
+     * @param w Weights (null for unit weights)
+     * @return The corrections (u = W*e)
+     */
+    public double[] process(double[] y, double[] w) {
+        int n = y.length;
+        int[] last = constraints(y);
+        int ny = last.length;
+        int[][] positions = positions(n, last);
+        int[] pos = positions[0], lpos = positions[1];
+        BandMatrix A = matrix(w, n, last, pos, lpos);
+        double[] q = new double[n + ny];
+        for (int j = 0; j < ny; ++j) {
+            q[lpos[j]] = y[last[j]];
+        }
+        A.lu();
+        A.solve(q);
+        double[] u = new double[n];
+        for (int i = 0; i < n; ++i) {
+            double e = q[pos[i]];
+            u[i] = w == null ? e : w[i] * e;
+        }
+        return u;
+    }
+
+    /**
+     * Computes the corrections of several series with unit weights and the
+     * same constraints layout. The linear system doesn't depend on the data:
+     * it is factorized only once and all the right-hand sides are solved
+     * together.
+     *
+     * @param y Discrepancies of each series (same length, same missing values),
+     * organized as in process(y, w)
+     * @return The corrections of each series
+     */
+    public double[][] process(double[][] y) {
+        int m = y.length;
+        double[][] rslt = new double[m][];
+        if (m == 0) {
+            return rslt;
+        }
+        int n = y[0].length;
+        int[] last = constraints(y[0]);
+        int ny = last.length;
+        int[][] positions = positions(n, last);
+        int[] pos = positions[0], lpos = positions[1];
+        // right-hand sides, stored by rows
+        double[] q = new double[(n + ny) * m];
+        for (int k = 0; k < m; ++k) {
+            double[] yk = y[k];
+            if (yk.length != n || !Arrays.equals(last, constraints(yk))) {
+                throw new IllegalArgumentException();
+            }
+            for (int j = 0; j < ny; ++j) {
+                q[lpos[j] * m + k] = yk[last[j]];
+            }
+        }
+        BandMatrix A = matrix(null, n, last, pos, lpos);
+        A.lu();
+        A.solve(q, m);
+        for (int k = 0; k < m; ++k) {
+            double[] u = new double[n];
+            for (int i = 0; i < n; ++i) {
+                u[i] = q[pos[i] * m + k];
+            }
+            rslt[k] = u;
+        }
+        return rslt;
+    }
+
+    /**
+     * Positions of the (non missing) constraints
+     *
+     * @param y
+     * @return
+     */
+    static int[] constraints(double[] y) {
+        int ny = 0;
+        for (int i = 0; i < y.length; ++i) {
+            if (Double.isFinite(y[i])) {
+                ++ny;
+            }
+        }
+        int[] last = new int[ny];
+        for (int i = 0, j = 0; i < y.length; ++i) {
+            if (Double.isFinite(y[i])) {
+                last[j++] = i;
+            }
+        }
+        return last;
+    }
+
+    private int first(int last) {
+        return Math.max(0, last - conversion + 1);
+    }
+
+    /**
+     * Positions of the unknowns in the interleaved ordering
+     *
+     * @param n Number of high-frequency unknowns
+     * @param last Positions of the constraints
+     * @return The positions of the high-frequency unknowns and of the Lagrange
+     * multipliers
+     */
+    static int[][] positions(int n, int[] last) {
+        int ny = last.length;
+        int[] pos = new int[n], lpos = new int[ny];
+        for (int i = 0, j = 0, cur = 0; i < n; ++i) {
+            pos[i] = cur++;
+            if (j < ny && last[j] == i) {
+                lpos[j++] = cur++;
+            }
+        }
+        return new int[][]{pos, lpos};
+    }
+
+    /**
+     * Builds the (interleaved) matrix of the system
+     *
+     * @param w Weights (null for unit weights)
+     * @param n Number of high-frequency unknowns
+     * @param last Positions of the constraints
+     * @param pos Positions of the high-frequency unknowns
+     * @param lpos Positions of the Lagrange multipliers
+     * @return
+     */
+    BandMatrix matrix(double[] w, int n, int[] last, int[] pos, int[] lpos) {
+        return matrix(w, n, last, pos, lpos, 1 - rho * rho, false);
+    }
+
+    /**
+     * Builds the (interleaved) matrix of the system for a segment of the
+     * series. The quadratic form is a*e(0)^2 + sum((e(i)-rho*e(i-1))^2) (+
+     * rho^2*e(n-1)^2 if the segment is followed by other observations)
+     *
+     * @param w Weights (null for unit weights)
+     * @param n Number of high-frequency unknowns
+     * @param last Positions of the constraints
+     * @param pos Positions of the high-frequency unknowns
+     * @param lpos Positions of the Lagrange multipliers
+     * @param a Precision of the first unknown (1-rho^2 for the complete
+     * series)
+     * @param open True if the segment is followed by other observations
+     * @return
+     */
+    BandMatrix matrix(double[] w, int n, int[] last, int[] pos, int[] lpos, double a, boolean open) {
+        int ny = last.length;
+        int bw = 1;
+        for (int i = 1; i < n; ++i) {
+            bw = Math.max(bw, pos[i] - pos[i - 1]);
+        }
+        for (int j = 0; j < ny; ++j) {
+            bw = Math.max(bw, lpos[j] - pos[first(last[j])]);
+        }
+        BandMatrix A = new BandMatrix(n + ny, bw, bw);
+        // Q
+        double d = 1 + rho * rho;
+        for (int i = 0; i < n; ++i) {
+            A.set(pos[i], pos[i], i == 0 || i == n - 1 ? 1 : d);
+            if (i > 0) {
+                A.set(pos[i], pos[i - 1], -rho);
+                A.set(pos[i - 1], pos[i], -rho);
+            }
+        }
+        if (n == 1) {
+            A.set(0, 0, a);
+        } else {
+            A.set(0, 0, a + rho * rho);
+        }
+        if (open) {
+            A.add(pos[n - 1], pos[n - 1], rho * rho);
+        }
+        // J*W, W*J'
+        for (int j = 0; j < ny; ++j) {
+            int l = lpos[j];
+            for (int i = first(last[j]); i <= last[j]; ++i) {
+                double wi = w == null ? 1 : w[i];
+                A.set(l, pos[i], wi);
+                A.set(pos[i], l, wi);
+            }
+        }
+        return A;
+    }
+}
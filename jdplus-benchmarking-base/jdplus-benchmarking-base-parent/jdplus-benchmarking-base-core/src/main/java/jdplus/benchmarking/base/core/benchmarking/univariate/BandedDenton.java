@@ -0,0 +1,341 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.univariate;
+
+import jdplus.benchmarking.base.api.benchmarking.univariate.DentonSpec;
+import jdplus.toolkit.base.api.data.AggregationType;
+import jdplus.toolkit.base.api.data.DoubleSeq;
+import jdplus.toolkit.base.core.math.polynomials.Polynomial;
+import jdplus.toolkit.base.core.math.polynomials.UnitRoots;
+
+/**
+ * Denton benchmarking, solved through a banded factorization of the linear
+ * system.
+ * We minimize ||D(b-x)||² under the constraints J*b = y. The corresponding
+ * (Lagrangian) system is
+ * <pre>
+ * D'D*u + J'*l = 0
+ * J*u = y - J*x
+ * </pre>
+ * with u = b-x. The Lagrange multipliers l are interleaved with the
+ * high-frequency unknowns (each multiplier is put just after the last
+ * observation of its aggregation period), so that the system is banded, with
+ * a bandwidth close to conversion + differencing. Memory and time are then
+ * linear in the length of the series.
+ *
+ * @author palatej
+ */
+public class BandedDenton {
+
+    private final boolean multiplicative, modified;
+    private final int differencing, conversion, offset;
+    private final AggregationType type;
+    private final int obsPosition;
+
+    public BandedDenton(DentonSpec spec, int conversion, int offset) {
+        this.conversion = conversion;
+        this.offset = offset;
+        this.multiplicative = spec.isMultiplicative();
+        this.modified = spec.isModified();
+        this.differencing = spec.getDifferencing();
+        this.type = spec.getAggregationType();
+        this.obsPosition = spec.getObservationPosition();
+    }
+
+    /**
+     * First high-frequency position of the given aggregation period
+     *
+     * @param j
+     * @return
+     */
+    private int first(int j) {
+        int pos = offset + j * conversion;
+        return switch (type) {
+            case Sum, Average, First ->
+                pos;
+            case Last ->
+                pos + conversion - 1;
+            case UserDefined ->
+                pos + obsPosition;
+            default ->
+                throw new IllegalArgumentException();
+        };
+    }
+
+    /**
+     * Last high-frequency position of the given aggregation period
+     *
+     * @param j
+     * @return
+     */
+    private int last(int j) {
+        int pos = offset + j * conversion;
+        return switch (type) {
+            case Sum, Average, Last ->
+                pos + conversion - 1;
+            case First ->
+                pos;
+            case UserDefined ->
+                pos + obsPosition;
+            default ->
+                throw new IllegalArgumentException();
+        };
+    }
+
+    public double[] process(DoubleSeq highSeries, DoubleSeq lowSeries) {
+        double[] x = highSeries.toArray(), y = lowSeries.toArray();
+        if (type == AggregationType.Average) {
+            for (int j = 0; j < y.length; ++j) {
+                y[j] *= conversion;
+            }
+        }
+        int n = x.length;
+        double xm = 0;
+        for (int i = 0; i < n; ++i) {
+            xm += x[i];
+        }
+        xm /= n;
+        for (int i = 0; i < n; ++i) {
+            x[i] /= xm;
+        }
+        double[] w = null;
+        if (multiplicative) {
+            w = new double[n];
+            for (int i = 0; i < n; ++i) {
+                w[i] = 1 / x[i];
+            }
+        }
+        // y-Jx
+        for (int j = 0; j < y.length; ++j) {
+            double s = y[j] / xm;
+            for (int i = first(j), imax = last(j); i <= imax; ++i) {
+                s -= x[i];
+            }
+            y[j] = s;
+        }
+        double[] u = solve(w, n, y);
+        for (int i = 0; i < n; ++i) {
+            u[i] = (x[i] + u[i]) * xm;
+        }
+        return u;
+    }
+
+    public double[] process(DoubleSeq lowSeries) {
+        int ny = lowSeries.length();
+        int n = ny * conversion;
+        double[] y = lowSeries.toArray();
+        if (type == AggregationType.Average) {
+            for (int j = 0; j < ny; ++j) {
+                y[j] *= conversion;
+            }
+        }
+        // multiplicative weights are 1
+        return solve(null, n, y);
+    }
+
+    /**
+     * Additive Denton applied on several series with the same length and the
+     * same constraints layout. The linear system doesn't depend on the data
+     * and it is factorized only once; all the right-hand sides are solved
+     * together. In the multiplicative case, the series are processed one by
+     * one.
+     *
+     * @param highSeries The high-frequency series (same length)
+     * @param lowSeries The corresponding aggregation constraints (same length)
+     * @return The benchmarked series
+     */
+    public double[][] process(DoubleSeq[] highSeries, DoubleSeq[] lowSeries) {
+        int m = highSeries.length;
+        double[][] rslt = new double[m][];
+        if (m == 0) {
+            return rslt;
+        }
+        if (multiplicative) {
+            for (int k = 0; k < m; ++k) {
+                rslt[k] = process(highSeries[k], lowSeries[k]);
+            }
+            return rslt;
+        }
+        int n = highSeries[0].length(), ny = lowSeries[0].length();
+        int[][] positions = positions(n, ny);
+        int[] pos = positions[0], lpos = positions[1];
+        // right-hand sides, stored by rows
+        double[] q = new double[(n + ny) * m];
+        double[] xm = new double[m];
+        for (int k = 0; k < m; ++k) {
+            double[] x = highSeries[k].toArray();
+            if (x.length != n || lowSeries[k].length() != ny) {
+                throw new IllegalArgumentException();
+            }
+            double s = 0;
+            for (int i = 0; i < n; ++i) {
+                s += x[i];
+            }
+            s /= n;
+            for (int i = 0; i < n; ++i) {
+                x[i] /= s;
+            }
+            xm[k] = s;
+            for (int j = 0; j < ny; ++j) {
+                double r = lowSeries[k].get(j) / s;
+                if (type == AggregationType.Average) {
+                    r *= conversion;
+                }
+                for (int i = first(j), imax = last(j); i <= imax; ++i) {
+                    r -= x[i];
+                }
+                q[lpos[j] * m + k] = r;
+            }
+            rslt[k] = x;
+        }
+        BandMatrix A = matrix(null, n, pos, lpos);
+        A.lu();
+        A.solve(q, m);
+        for (int k = 0; k < m; ++k) {
+            double[] x = rslt[k];
+            double s = xm[k];
+            for (int i = 0; i < n; ++i) {
+                x[i] = (x[i] + q[pos[i] * m + k]) * s;
+            }
+        }
+        return rslt;
+    }
+
+    /**
+     * Positions of the unknowns in the interleaved ordering
+     *
+     * @param n Number of high-frequency unknowns
+     * @param ny Number of constraints
+     * @return The positions of the high-frequency unknowns and of the Lagrange
+     * multipliers
+     */
+    int[][] positions(int n, int ny) {
+        if (ny > 0 && last(ny - 1) >= n) {
+            throw new IllegalArgumentException();
+        }
+        int[] pos = new int[n], lpos = new int[ny];
+        for (int i = 0, j = 0, cur = 0; i < n; ++i) {
+            pos[i] = cur++;
+            while (j < ny && last(j) == i) {
+                lpos[j++] = cur++;
+            }
+        }
+        return new int[][]{pos, lpos};
+    }
+
+    /**
+     * Builds the (interleaved) matrix of the system
+     *
+     * @param w Weights of the differencing operator (null for unit weights)
+     * @param n Number of high-frequency unknowns
+     * @param pos Positions of the high-frequency unknowns
+     * @param lpos Positions of the Lagrange multipliers
+     * @return
+     */
+    BandMatrix matrix(double[] w, int n, int[] pos, int[] lpos) {
+        int ny = lpos.length;
+        Polynomial pd = UnitRoots.D(1, differencing);
+        int d = pd.degree();
+        double[] c = new double[d + 1];
+        for (int k = 0; k <= d; ++k) {
+            c[k] = pd.get(k);
+        }
+        int bw = 0;
+        for (int i = d; i < n; ++i) {
+            bw = Math.max(bw, pos[i] - pos[i - d]);
+        }
+        for (int j = 0; j < ny; ++j) {
+            bw = Math.max(bw, lpos[j] - pos[first(j)]);
+        }
+        BandMatrix A = new BandMatrix(n + ny, bw, bw);
+        // D'D. Rows of D (modified or not)
+        double[] drow = new double[d + 1];
+        for (int t = modified ? d : 0; t < n; ++t) {
+            int c0 = Math.max(0, t - d);
+            for (int a = c0; a <= t; ++a) {
+                drow[a - c0] = w == null ? c[t - a] : c[t - a] * w[a];
+            }
+            for (int a = c0; a <= t; ++a) {
+                double da = drow[a - c0];
+                int pa = pos[a];
+                for (int b = c0; b <= t; ++b) {
+                    A.add(pa, pos[b], da * drow[b - c0]);
+                }
+            }
+        }
+        // J, J'
+        for (int j = 0; j < ny; ++j) {
+            int l = lpos[j];
+            for (int i = first(j), imax = last(j); i <= imax; ++i) {
+                A.set(l, pos[i], 1);
+                A.set(pos[i], l, 1);
+            }
+        }
+        return A;
+    }
+
+    /**
+     * Solves the system D'D*u + J'*l = 0, J*u = r
+     *
+     * @param w Weights of the differencing operator (null for unit weights)
+     * @param n Number of high-frequency unknowns
+     * @param r Right-hand side of the constraints
+     * @return u
+     */
+    private double[] solve(double[] w, int n, double[] r) {
+        int ny = r.length;
+        int[][] positions = positions(n, ny);
+        int[] pos = positions[0], lpos = positions[1];
+        BandMatrix A = matrix(w, n, pos, lpos);
+        double[] q = new double[n + ny];
+        for (int j = 0; j < ny; ++j) {
+            q[lpos[j]] = r[j];
+        }
+        A.lu();
+        A.solve(q);
+        double[] u = new double[n];
+        for (int i = 0; i < n; ++i) {
+            u[i] = q[pos[i]];
+        }
+        return u;
+    }
+
+    public boolean isMultiplicative() {
+        return multiplicative;
+    }
+
+    public boolean isModified() {
+        return modified;
+    }
+
+    public int getConversionFactor() {
+        return conversion;
+    }
+
+    public int getDifferencingOrder() {
+        return differencing;
+    }
+
+    public AggregationType getAggregationType() {
+        return type;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+}
@@ -41,6 +41,12 @@ import jdplus.toolkit.base.core.ssf.ISsfLoading;
 import jdplus.toolkit.base.core.ssf.StateComponent;
 import jdplus.toolkit.base.core.ssf.basic.WeightedLoading;
 import jdplus.toolkit.base.core.ssf.univariate.Ssf;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 import static jdplus.toolkit.base.core.timeseries.simplets.TsDataToolkit.multiply;
 
 /**
@@ -66,6 +72,59 @@ public class CholetteProcessor implements Cholette.Processor {
         return btmp;
     }
 
+    /**
+     * Benchmarks a set of series. With the GLS engine, without weights
+     * (lambda = 0) and for sum or average constraints, the linear system of
+     * the Cholette model only depends on the length of the series, on the
+     * conversion ratio and on the position of the constraints. The series are
+     * grouped accordingly; the system of a group is factorized once (banded
+     * GLS form) and all its series are solved together, so that a series gives
+     * the same result alone or in a group. In the other cases, the series are
+     * benchmarked one by one, with the engine of the specification. The groups
+     * (or the series) are processed in parallel.
+     *
+     * @param highFreqSeries
+     * @param aggregationConstraints
+     * @param spec
+     * @return
+     */
+    @Override
+    public List<TsData> benchmark(List<TsData> highFreqSeries, List<TsData> aggregationConstraints, CholetteSpec spec) {
+        int m = highFreqSeries.size();
+        if (aggregationConstraints.size() != m) {
+            throw new IllegalArgumentException();
+        }
+        TsData[] rslts = new TsData[m];
+        if (spec.getEngine() != CholetteSpec.Engine.Gls || spec.getLambda() != 0
+                || (spec.getAggregationType() != AggregationType.Sum
+                && spec.getAggregationType() != AggregationType.Average)) {
+            IntStream.range(0, m).parallel().forEach(i -> rslts[i] = benchmark(highFreqSeries.get(i), aggregationConstraints.get(i), spec));
+            return Arrays.asList(rslts);
+        }
+        Problem[] problems = new Problem[m];
+        Map<Shape, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < m; ++i) {
+            TsData s = correctBias(highFreqSeries.get(i), aggregationConstraints.get(i), spec);
+            Problem problem = problem(s, aggregationConstraints.get(i), spec);
+            problems[i] = problem;
+            groups.computeIfAbsent(problem.shape(), k -> new ArrayList<>()).add(i);
+        }
+        groups.entrySet().parallelStream().forEach(group -> {
+            Shape shape = group.getKey();
+            List<Integer> items = group.getValue();
+            double[][] y = new double[items.size()][];
+            for (int k = 0; k < y.length; ++k) {
+                y[k] = problems[items.get(k)].getDiscrepancies();
+            }
+            double[][] u = new BandedCholette(spec.getRho(), shape.getRatio()).process(y);
+            for (int k = 0; k < y.length; ++k) {
+                TsData s = problems[items.get(k)].getHighSeries();
+                rslts[items.get(k)] = TsData.add(s, TsData.ofInternal(s.getStart(), u[k]));
+            }
+        });
+        return Arrays.asList(rslts);
+    }
+
     private TsData correctBias(TsData s, TsData target, CholetteSpec spec) {
         AggregationType agg = spec.getAggregationType();
         if (spec.getBias() == BiasCorrection.None) {
@@ -110,13 +169,27 @@ public class CholetteProcessor implements Cholette.Processor {
         return y;
     }
 
-    /**
-     *
-     * @param s
-     * @param constraints
-     * @return
-     */
-    private TsData cholette(TsData highFreqSeries, TsData aggregationConstraint, CholetteSpec spec) {
+    @lombok.Value
+    private static class Shape {
+
+        int length, ratio;
+        int[] constraints;
+    }
+
+    @lombok.Value
+    private static class Problem {
+
+        TsData highSeries;
+        // discrepancies, put at the position of the constraints (missing values elsewhere)
+        double[] discrepancies;
+        int ratio;
+
+        Shape shape() {
+            return new Shape(discrepancies.length, ratio, BandedCholette.constraints(discrepancies));
+        }
+    }
+
+    private static Problem problem(TsData highFreqSeries, TsData aggregationConstraint, CholetteSpec spec) {
         int ratio = highFreqSeries.getTsUnit().ratioOf(aggregationConstraint.getTsUnit());
         if (ratio == TsUnit.NO_RATIO || ratio == TsUnit.NO_STRICT_RATIO) {
             throw new TsException(TsException.INCOMPATIBLE_FREQ);
@@ -160,6 +233,19 @@ public class CholetteProcessor implements Cholette.Processor {
 
         naggregationConstraint = TsData.subtract(naggregationConstraint, agg);
         double[] y = expand(highFreqSeries.length(), ratio, naggregationConstraint.getValues(), offset);
+        return new Problem(highFreqSeries, y, ratio);
+    }
+
+    /**
+     *
+     * @param s
+     * @param constraints
+     * @return
+     */
+    private TsData cholette(TsData highFreqSeries, TsData aggregationConstraint, CholetteSpec spec) {
+        Problem problem = problem(highFreqSeries, aggregationConstraint, spec);
+        int ratio = problem.getRatio();
+        double[] y = problem.getDiscrepancies();
 
         double[] w = null;
         if (spec.getLambda() != 0) {
@@ -172,7 +258,11 @@ public class CholetteProcessor implements Cholette.Processor {
         }
         TsPeriod start = highFreqSeries.getStart();
         int head = (int) (start.getId() % ratio);
-        if (spec.getAggregationType() == AggregationType.Average
+        if (spec.getEngine() == CholetteSpec.Engine.Gls && (spec.getAggregationType() == AggregationType.Average
+                || spec.getAggregationType() == AggregationType.Sum)) {
+            double[] b = new BandedCholette(spec.getRho(), ratio).process(y, w);
+            return TsData.add(highFreqSeries, TsData.ofInternal(start, b));
+        } else if (spec.getAggregationType() == AggregationType.Average
                 || spec.getAggregationType() == AggregationType.Sum) {
             ISsf ssf = SsfCholette.builder(ratio)
                     .start(head)
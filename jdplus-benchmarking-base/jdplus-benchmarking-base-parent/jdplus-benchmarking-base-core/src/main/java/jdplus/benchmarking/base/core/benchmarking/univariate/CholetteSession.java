@@ -0,0 +1,318 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.univariate;
+
+import java.util.Arrays;
+import jdplus.benchmarking.base.api.benchmarking.BenchmarkingException;
+import jdplus.benchmarking.base.api.benchmarking.univariate.CholetteSpec;
+import jdplus.toolkit.base.api.data.AggregationType;
+import jdplus.toolkit.base.api.data.DoubleSeq;
+import jdplus.toolkit.base.api.timeseries.TsData;
+import jdplus.toolkit.base.api.timeseries.TsException;
+import jdplus.toolkit.base.api.timeseries.TsPeriod;
+import jdplus.toolkit.base.api.timeseries.TsUnit;
+
+/**
+ * Online Cholette benchmarking (flows: sum or average) with fixed-lag
+ * smoothing.
+ * New high-frequency observations and new aggregation constraints are added
+ * incrementally. Only the last "lag" complete low-frequency periods (and the
+ * current incomplete one) are re-estimated at each update; older corrections
+ * are frozen when they leave that window.
+ * The information of the frozen part on the first correction of the window is
+ * summarized by a quadratic form (the filtered distribution of that
+ * correction, in information form), so that the corrections in the window are
+ * identical to the ones obtained on the complete series. The cost of an
+ * update is O(lag) instead of O(n).
+ * The model is the one of CholetteProcessor, without bias correction.
+ * Not thread-safe.
+ *
+ * @author palatej
+ */
+public final class CholetteSession {
+
+    private final BandedCholette engine;
+    private final double rho, lambda;
+    private final boolean average;
+    private final int ratio, lag, h0;
+    private final TsPeriod start, lstart;
+
+    private double[] x, e, c;
+    private int n;
+    // start of the window, information on e[ws]: pa*e^2 - 2*pb*e
+    private int ws;
+    private double pa, pb;
+    private boolean dirty;
+
+    /**
+     *
+     * @param highFreqSeries Initial high-frequency series
+     * @param aggregationConstraint Initial aggregation constraints
+     * @param spec Specification. Only sum or average constraints, without
+     * bias correction, are supported
+     * @param lag Number of complete low-frequency periods that are
+     * re-estimated at each update
+     */
+    public CholetteSession(TsData highFreqSeries, TsData aggregationConstraint, CholetteSpec spec, int lag) {
+        AggregationType type = spec.getAggregationType();
+        if ((type != AggregationType.Sum && type != AggregationType.Average)
+                || spec.getBias() != CholetteSpec.BiasCorrection.None) {
+            throw new TsException(TsException.INVALID_OPERATION);
+        }
+        if (lag < 0 || highFreqSeries.length() == 0) {
+            throw new IllegalArgumentException();
+        }
+        TsUnit lunit = aggregationConstraint.getTsUnit();
+        this.ratio = highFreqSeries.getTsUnit().ratioOf(lunit);
+        if (ratio == TsUnit.NO_RATIO || ratio == TsUnit.NO_STRICT_RATIO) {
+            throw new TsException(TsException.INCOMPATIBLE_FREQ);
+        }
+        this.rho = spec.getRho();
+        this.lambda = spec.getLambda();
+        this.average = type == AggregationType.Average;
+        this.lag = lag;
+        this.engine = new BandedCholette(rho, ratio);
+        this.start = highFreqSeries.getStart();
+        // first complete low-frequency period
+        TsPeriod l = TsPeriod.of(lunit, start.start());
+        if (!l.start().equals(start.start())) {
+            l = l.next();
+        }
+        this.lstart = l;
+        this.h0 = start.until(TsPeriod.of(start.getUnit(), l.start()));
+        this.x = new double[0];
+        this.e = new double[0];
+        this.c = new double[0];
+        this.pa = 1 - rho * rho;
+        add(highFreqSeries.getValues());
+        addConstraints(aggregationConstraint);
+    }
+
+    /**
+     * Appends new high-frequency observations at the end of the series
+     *
+     * @param values
+     */
+    public void add(DoubleSeq values) {
+        int m = values.length();
+        if (n + m > x.length) {
+            int nlen = Math.max(n + m, 2 * x.length);
+            x = Arrays.copyOf(x, nlen);
+            e = Arrays.copyOf(e, nlen);
+        }
+        values.copyTo(x, n);
+        n += m;
+        dirty = true;
+    }
+
+    /**
+     * Adds (or revises) aggregation constraints. Constraints that precede the
+     * high-frequency series are ignored. Constraints on frozen periods can't
+     * be modified
+     *
+     * @param aggregationConstraint
+     */
+    public void addConstraints(TsData aggregationConstraint) {
+        if (!aggregationConstraint.getTsUnit().equals(lstart.getUnit())) {
+            throw new TsException(TsException.INCOMPATIBLE_FREQ);
+        }
+        int k0 = lstart.until(aggregationConstraint.getStart()), m = aggregationConstraint.length();
+        if (k0 + m > c.length) {
+            int olen = c.length, nlen = Math.max(k0 + m, 2 * olen);
+            c = Arrays.copyOf(c, nlen);
+            Arrays.fill(c, olen, nlen, Double.NaN);
+        }
+        for (int i = 0; i < m; ++i) {
+            int k = k0 + i;
+            if (k < 0) {
+                continue;
+            }
+            double v = aggregationConstraint.getValue(i);
+            if (h0 + k * ratio < ws) {
+                if (Double.doubleToLongBits(v) != Double.doubleToLongBits(c[k])) {
+                    throw new BenchmarkingException("Constraint on a frozen period");
+                }
+            } else {
+                c[k] = v;
+            }
+        }
+        dirty = true;
+    }
+
+    /**
+     * Adds new observations and constraints and computes the updated
+     * benchmarked series
+     *
+     * @param values New high-frequency observations (appended to the series).
+     * May be null
+     * @param aggregationConstraint New or revised aggregation constraints.
+     * May be null
+     * @return
+     */
+    public TsData update(DoubleSeq values, TsData aggregationConstraint) {
+        if (values != null) {
+            add(values);
+        }
+        if (aggregationConstraint != null) {
+            addConstraints(aggregationConstraint);
+        }
+        return getBenchmark();
+    }
+
+    /**
+     * Current benchmarked series
+     *
+     * @return
+     */
+    public TsData getBenchmark() {
+        if (dirty) {
+            smooth();
+            int kcur = Math.floorDiv(n - 1 - h0, ratio);
+            int target = h0 + (kcur - lag) * ratio;
+            while (ws < target) {
+                fold(ws < h0 ? h0 : ratio);
+            }
+            dirty = false;
+        }
+        double[] b = new double[n];
+        for (int i = 0; i < n; ++i) {
+            b[i] = x[i] + weight(i) * e[i];
+        }
+        return TsData.ofInternal(start, b);
+    }
+
+    /**
+     * Start of the window (first correction that is not frozen)
+     *
+     * @return
+     */
+    public TsPeriod getWindowStart() {
+        return start.plus(ws);
+    }
+
+    public int getLag() {
+        return lag;
+    }
+
+    private double weight(int i) {
+        if (lambda == 0) {
+            return 1;
+        } else if (lambda == 1) {
+            return x[i];
+        } else {
+            return Math.pow(Math.abs(x[i]), lambda);
+        }
+    }
+
+    private double[] weights(int i0, int m) {
+        if (lambda == 0) {
+            return null;
+        }
+        double[] w = new double[m];
+        for (int i = 0; i < m; ++i) {
+            w[i] = weight(i0 + i);
+        }
+        return w;
+    }
+
+    /**
+     * Discrepancies of the complete periods in [i0, i0+m[, put at the last
+     * position of each period (missing values elsewhere)
+     *
+     * @param i0
+     * @param m
+     * @return
+     */
+    private double[] discrepancies(int i0, int m) {
+        double[] y = new double[m];
+        Arrays.fill(y, Double.NaN);
+        int k = i0 <= h0 ? 0 : (i0 - h0) / ratio;
+        for (int j = h0 + k * ratio; j + ratio <= i0 + m && k < c.length; j += ratio, ++k) {
+            double ck = c[k];
+            if (Double.isFinite(ck)) {
+                double d = average ? ck * ratio : ck;
+                for (int i = j; i < j + ratio; ++i) {
+                    d -= x[i];
+                }
+                y[j + ratio - 1 - i0] = d;
+            }
+        }
+        return y;
+    }
+
+    /**
+     * Computes the corrections of the window
+     */
+    private void smooth() {
+        int m = n - ws;
+        double[] y = discrepancies(ws, m);
+        int[] last = BandedCholette.constraints(y);
+        int ny = last.length;
+        if (ny == 0) {
+            double cur = pa == 0 ? 0 : pb / pa;
+            for (int i = ws; i < n; ++i) {
+                e[i] = cur;
+                cur *= rho;
+            }
+            return;
+        }
+        int[][] positions = BandedCholette.positions(m, last);
+        int[] pos = positions[0], lpos = positions[1];
+        BandMatrix A = engine.matrix(weights(ws, m), m, last, pos, lpos, pa, false);
+        double[] q = new double[m + ny];
+        q[pos[0]] = pb;
+        for (int j = 0; j < ny; ++j) {
+            q[lpos[j]] = y[last[j]];
+        }
+        A.lu();
+        A.solve(q);
+        for (int i = 0; i < m; ++i) {
+            e[ws + i] = q[pos[i]];
+        }
+    }
+
+    /**
+     * Freezes the m first corrections of the window and updates the
+     * information on the next one.
+     * If f(v) is the minimum of the quadratic form of the frozen part (under
+     * its constraints) for e[ws+m] = v, f(v) = pa*v^2 - 2*pb*v + cst. pa and pb
+     * are obtained from the solutions of the segment for v = 0 (e0) and for
+     * the derivative in v (e1): pa = 1 - rho*e1[m-1], pb = rho*e0[m-1].
+     *
+     * @param m
+     */
+    private void fold(int m) {
+        double[] y = discrepancies(ws, m);
+        int[] last = BandedCholette.constraints(y);
+        int ny = last.length;
+        int[][] positions = BandedCholette.positions(m, last);
+        int[] pos = positions[0], lpos = positions[1];
+        BandMatrix A = engine.matrix(weights(ws, m), m, last, pos, lpos, pa, true);
+        double[] q0 = new double[m + ny], q1 = new double[m + ny];
+        q0[pos[0]] = pb;
+        for (int j = 0; j < ny; ++j) {
+            q0[lpos[j]] = y[last[j]];
+        }
+        q1[pos[m - 1]] = rho;
+        A.lu();
+        A.solve(q0);
+        A.solve(q1);
+        pa = 1 - rho * q1[pos[m - 1]];
+        pb = rho * q0[pos[m - 1]];
+        ws += m;
+    }
+}
@@ -23,7 +23,15 @@ import jdplus.toolkit.base.api.timeseries.TsException;
 import jdplus.toolkit.base.api.timeseries.TsUnit;
 import jdplus.toolkit.base.api.timeseries.TsPeriod;
 import jdplus.toolkit.base.api.timeseries.TsData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.DoubleUnaryOperator;
+import java.util.stream.IntStream;
+import jdplus.toolkit.base.api.data.AggregationType;
+import jdplus.toolkit.base.api.data.DoubleSeqCursor;
 import nbbrd.service.ServiceProvider;
 
 /**
@@ -68,6 +76,135 @@ public class CubicSplineProcessor implements CubicSpline.Processor {
         return TsData.ofInternal(sh, r);
     }
 
+    /**
+     * Benchmarks a set of series. For point-in-time constraints (first, last,
+     * user-defined), the cubic spline interpolation of the benchmark-to-indicator
+     * ratios is a linear operator that only depends on the layout of the knots
+     * (length of the series, number of constraints, ratio and position of the
+     * first knot). The series are grouped accordingly; the operator of each
+     * group (see DisaggregationOperators) is built once, with the factorized
+     * spline system and the weights of each high-frequency position, and it
+     * is applied on all the series of the group in a single pass. The other
+     * series are processed one by one. The groups are processed in parallel.
+     *
+     * @param highFreqSeries
+     * @param aggregationConstraints
+     * @param spec
+     * @return
+     */
+    @Override
+    public List<TsData> benchmark(List<TsData> highFreqSeries, List<TsData> aggregationConstraints, CubicSplineSpec spec) {
+        int m = highFreqSeries.size();
+        if (aggregationConstraints.size() != m) {
+            throw new IllegalArgumentException();
+        }
+        TsData[] rslts = new TsData[m];
+        AggregationType type = spec.getAggregationType();
+        if (type != AggregationType.First && type != AggregationType.Last && type != AggregationType.UserDefined) {
+            IntStream.range(0, m).parallel().forEach(i -> rslts[i] = benchmark(highFreqSeries.get(i), aggregationConstraints.get(i), spec));
+            return Arrays.asList(rslts);
+        }
+        Problem[] problems = new Problem[m];
+        Map<Layout, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < m; ++i) {
+            Problem problem = problem(highFreqSeries.get(i), aggregationConstraints.get(i), spec);
+            problems[i] = problem;
+            groups.computeIfAbsent(problem.layout(spec), k -> new ArrayList<>()).add(i);
+        }
+        groups.entrySet().parallelStream().forEach(group -> {
+            Layout layout = group.getKey();
+            List<Integer> items = group.getValue();
+            if (items.size() > 1) {
+                DisaggregationOperators.Operator op = DisaggregationOperators.cubicSplineInterpolation(layout.getLength(), layout.getKnotsCount(), layout.getRatio(), layout.getPosition());
+                double[][] f = new double[items.size()][];
+                for (int k = 0; k < f.length; ++k) {
+                    Problem problem = problems[items.get(k)];
+                    double[] obs = problem.getHighSeries().toArray();
+                    double[] fk = problem.getLowSeries().toArray();
+                    for (int j = 0, pos = layout.getPosition(); j < fk.length; ++j, pos += layout.getRatio()) {
+                        fk[j] /= obs[pos];
+                    }
+                    f[k] = fk;
+                }
+                double[][] r = op.apply(f);
+                for (int k = 0; k < f.length; ++k) {
+                    Problem problem = problems[items.get(k)];
+                    double[] rk = r[k];
+                    DoubleSeqCursor cursor = problem.getHighSeries().cursor();
+                    for (int i = 0; i < rk.length; ++i) {
+                        rk[i] *= cursor.getAndNext();
+                    }
+                    rslts[items.get(k)] = TsData.ofInternal(problem.getStart(), rk);
+                }
+            } else {
+                items.parallelStream().forEach(i -> {
+                    Problem problem = problems[i];
+                    double[] r = process(spec, problem.getRatio(), problem.getOffset(), problem.getHighSeries(), problem.getLowSeries());
+                    rslts[i] = TsData.ofInternal(problem.getStart(), r);
+                });
+            }
+        });
+        return Arrays.asList(rslts);
+    }
+
+    @lombok.Value
+    private static class Layout {
+
+        int length, knotsCount, ratio, position;
+    }
+
+    @lombok.Value
+    private static class Problem {
+
+        TsPeriod start;
+        DoubleSeq highSeries, lowSeries;
+        int ratio, offset;
+
+        Layout layout(CubicSplineSpec spec) {
+            return new Layout(highSeries.length(), lowSeries.length(), ratio, offset + position(spec, ratio));
+        }
+    }
+
+    private static Problem problem(TsData highFreqSeries, TsData aggregationConstraint, CubicSplineSpec spec) {
+        int ratio = highFreqSeries.getTsUnit().ratioOf(aggregationConstraint.getTsUnit());
+        if (ratio == TsUnit.NO_RATIO || ratio == TsUnit.NO_STRICT_RATIO) {
+            throw new TsException(TsException.INCOMPATIBLE_FREQ);
+        }
+        TsData naggregationConstraint = switch (spec.getAggregationType()) {
+            case Last ->
+                BenchmarkingUtility.constraintsByPosition(highFreqSeries, aggregationConstraint, ratio - 1);
+            case First ->
+                BenchmarkingUtility.constraintsByPosition(highFreqSeries, aggregationConstraint, 0);
+            case UserDefined ->
+                BenchmarkingUtility.constraintsByPosition(highFreqSeries, aggregationConstraint, spec.getObservationPosition());
+            default ->
+                throw new TsException(TsException.INVALID_OPERATION);
+        };
+        TsPeriod sh = highFreqSeries.getStart();
+        TsPeriod sl = TsPeriod.of(sh.getUnit(), naggregationConstraint.getStart().start());
+        int offset = sh.until(sl);
+        return new Problem(sh, highFreqSeries.getValues(), naggregationConstraint.getValues(), ratio, offset);
+    }
+
+    /**
+     * Position of the observation in a low-frequency period (point-in-time
+     * constraints)
+     *
+     * @param spec
+     * @param ratio
+     * @return
+     */
+    private static int position(CubicSplineSpec spec, int ratio) {
+        return switch (spec.getAggregationType()) {
+            case Last ->
+                ratio - 1;
+            case UserDefined ->
+                Math.min(ratio - 1, spec.getObservationPosition());
+            default ->
+                0;
+        };
+    }
+
     @Override
     public TsData benchmark(TsUnit highFreq, TsData aggregationConstraint, CubicSplineSpec spec) {
         int ratio = highFreq.ratioOf(aggregationConstraint.getTsUnit());
@@ -76,7 +213,8 @@ public class CubicSplineProcessor implements CubicSpline.Processor {
         }
         // Y is limited to q !
         TsPeriod sh = TsPeriod.of(highFreq, aggregationConstraint.getStart().start());
-        double[] r = process(spec, ratio, aggregationConstraint.getValues());
+        double[] r = DisaggregationOperators.cubicSpline(spec, ratio, aggregationConstraint.length())
+                .apply(aggregationConstraint.getValues());
         return TsData.ofInternal(sh, r);
     }
 
@@ -123,7 +261,7 @@ public class CubicSplineProcessor implements CubicSpline.Processor {
         }
     }
 
-    private double[] process(CubicSplineSpec spec, int ratio, DoubleSeq lvals) {
+    static double[] process(CubicSplineSpec spec, int ratio, DoubleSeq lvals) {
         double[] fxi = lvals.toArray();
         int n = fxi.length;
         double[] xi = new double[n];
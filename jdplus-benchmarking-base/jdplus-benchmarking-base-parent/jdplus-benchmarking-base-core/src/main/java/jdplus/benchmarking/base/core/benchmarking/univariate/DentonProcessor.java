@@ -18,6 +18,11 @@ package jdplus.benchmarking.base.core.benchmarking.univariate;
 
 import jdplus.benchmarking.base.api.benchmarking.univariate.Denton;
 import jdplus.benchmarking.base.api.benchmarking.univariate.DentonSpec;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jdplus.toolkit.base.api.data.DoubleSeq;
 import jdplus.toolkit.base.api.timeseries.TsException;
 import jdplus.toolkit.base.api.timeseries.TsUnit;
 import jdplus.toolkit.base.api.timeseries.TsPeriod;
@@ -33,8 +38,113 @@ public class DentonProcessor implements Denton.Processor {
 
     public static final DentonProcessor PROCESSOR=new DentonProcessor();
 
+    /**
+     * Length of the high-frequency series above which the banded engine is
+     * used by default
+     */
+    public static final int BANDED_THRESHOLD = 120;
+
+    static boolean isBanded(DentonSpec spec, int n) {
+        return switch (spec.getEngine()) {
+            case Banded -> true;
+            case Dense -> false;
+            default -> n > BANDED_THRESHOLD;
+        };
+    }
+
+    static double[] process(DentonSpec spec, int ratio, int offset, DoubleSeq highSeries, DoubleSeq lowSeries) {
+        if (isBanded(spec, highSeries.length())) {
+            return new BandedDenton(spec, ratio, offset).process(highSeries, lowSeries);
+        } else {
+            return new MatrixDenton(spec, ratio, offset).process(highSeries, lowSeries);
+        }
+    }
+
     @Override
     public TsData benchmark(TsData highFreqSeries, TsData aggregationConstraint, DentonSpec spec) {
+        Problem problem = problem(highFreqSeries, aggregationConstraint, spec);
+        double[] r = process(spec, problem.getRatio(), problem.getOffset(), problem.getHighSeries(), problem.getLowSeries());
+        return TsData.ofInternal(problem.getStart(), r);
+    }
+
+    /**
+     * Benchmarks a set of series. The series are grouped by shape (length of
+     * the high-frequency series, number of constraints, conversion ratio and
+     * offset). The batch always uses the banded engine, whatever the engine
+     * of the specification (the engines agree up to rounding errors). In the
+     * additive case, the banded linear system of a group is factorized once
+     * and all its series are solved together. In the multiplicative case, the
+     * system depends on the indicator and each series is solved by its own
+     * banded factorization. The groups (and the series of a group in the
+     * multiplicative case) are processed in parallel.
+     *
+     * @param highFreqSeries
+     * @param aggregationConstraints
+     * @param spec
+     * @return
+     */
+    @Override
+    public List<TsData> benchmark(List<TsData> highFreqSeries, List<TsData> aggregationConstraints, DentonSpec spec) {
+        int m = highFreqSeries.size();
+        if (aggregationConstraints.size() != m) {
+            throw new IllegalArgumentException();
+        }
+        Problem[] problems = new Problem[m];
+        Map<Shape, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < m; ++i) {
+            Problem problem = problem(highFreqSeries.get(i), aggregationConstraints.get(i), spec);
+            problems[i] = problem;
+            groups.computeIfAbsent(problem.shape(), k -> new ArrayList<>()).add(i);
+        }
+        double[][] rslts = new double[m][];
+        groups.entrySet().parallelStream().forEach(group -> {
+            Shape shape = group.getKey();
+            List<Integer> items = group.getValue();
+            if (!spec.isMultiplicative() && items.size() > 1) {
+                DoubleSeq[] highs = new DoubleSeq[items.size()], lows = new DoubleSeq[items.size()];
+                for (int k = 0; k < highs.length; ++k) {
+                    Problem problem = problems[items.get(k)];
+                    highs[k] = problem.getHighSeries();
+                    lows[k] = problem.getLowSeries();
+                }
+                double[][] r = new BandedDenton(spec, shape.getRatio(), shape.getOffset()).process(highs, lows);
+                for (int k = 0; k < highs.length; ++k) {
+                    rslts[items.get(k)] = r[k];
+                }
+            } else {
+                items.parallelStream().forEach(i -> {
+                    Problem problem = problems[i];
+                    rslts[i] = new BandedDenton(spec, problem.getRatio(), problem.getOffset())
+                            .process(problem.getHighSeries(), problem.getLowSeries());
+                });
+            }
+        });
+        List<TsData> rslt = new ArrayList<>(m);
+        for (int i = 0; i < m; ++i) {
+            rslt.add(TsData.ofInternal(problems[i].getStart(), rslts[i]));
+        }
+        return rslt;
+    }
+
+    @lombok.Value
+    private static class Shape {
+
+        int length, constraintsCount, ratio, offset;
+    }
+
+    @lombok.Value
+    private static class Problem {
+
+        TsPeriod start;
+        DoubleSeq highSeries, lowSeries;
+        int ratio, offset;
+
+        Shape shape() {
+            return new Shape(highSeries.length(), lowSeries.length(), ratio, offset);
+        }
+    }
+
+    private static Problem problem(TsData highFreqSeries, TsData aggregationConstraint, DentonSpec spec) {
         int ratio = highFreqSeries.getTsUnit().ratioOf(aggregationConstraint.getTsUnit());
         if (ratio == TsUnit.NO_RATIO || ratio == TsUnit.NO_STRICT_RATIO) {
             throw new TsException(TsException.INCOMPATIBLE_FREQ);
@@ -53,9 +163,7 @@ public class DentonProcessor implements Denton.Processor {
         TsPeriod sh = highFreqSeries.getStart();
         TsPeriod sl = TsPeriod.of(sh.getUnit(), naggregationConstraint.getStart().start());
         int offset = sh.until(sl);
-        MatrixDenton denton = new MatrixDenton(spec, ratio, offset);
-        double[] r = denton.process(highFreqSeries.getValues(), naggregationConstraint.getValues());
-        return TsData.ofInternal(sh, r);
+        return new Problem(sh, highFreqSeries.getValues(), naggregationConstraint.getValues(), ratio, offset);
     }
 
     @Override
@@ -66,8 +174,10 @@ public class DentonProcessor implements Denton.Processor {
         }
         // Y is limited to q !
         TsPeriod sh = TsPeriod.of(highFreq, aggregationConstraint.getStart().start());
-        MatrixDenton denton = new MatrixDenton(spec, ratio, 0);
-        double[] r = denton.process(aggregationConstraint.getValues());
+        int ny = aggregationConstraint.length();
+        double[] r = isBanded(spec, ny * ratio)
+                ? DisaggregationOperators.denton(spec, ratio, ny).apply(aggregationConstraint.getValues())
+                : new MatrixDenton(spec, ratio, 0).process(aggregationConstraint.getValues());
         return TsData.ofInternal(sh, r);
     }
 
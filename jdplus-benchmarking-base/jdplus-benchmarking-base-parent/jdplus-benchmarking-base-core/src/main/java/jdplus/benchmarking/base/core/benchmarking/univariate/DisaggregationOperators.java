@@ -0,0 +1,621 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.univariate;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import jdplus.benchmarking.base.api.benchmarking.univariate.CubicSplineSpec;
+import jdplus.benchmarking.base.api.benchmarking.univariate.DentonSpec;
+import jdplus.toolkit.base.api.data.AggregationType;
+import jdplus.toolkit.base.api.data.DoubleSeq;
+import jdplus.toolkit.base.core.math.splines.CubicSpline;
+
+/**
+ * Linear operators used by the disaggregation routines without indicator
+ * (Denton and cubic splines). Those routines are linear maps from the
+ * low-frequency series to the high-frequency series, which only depend on the
+ * "shape" of the problem (number of low-frequency periods, conversion ratio,
+ * specification).
+ * The Denton operators are stored as the banded LU factorization of the
+ * (interleaved) Lagrangian system, so that their memory and the cost of their
+ * application are linear in the length of the series. They are kept in a
+ * least recently used cache, bounded by its memory.
+ * The cubic spline operators keep the factorized (tridiagonal) system of the
+ * second derivatives of the natural spline and, for each evaluated position,
+ * its interval and its weights, so that each application is a single
+ * sequential pass on the series. They are kept in the same cache.
+ *
+ * @author palatej
+ */
+@lombok.experimental.UtilityClass
+public class DisaggregationOperators {
+
+    /**
+     * Maximum memory (in bytes) of the cached operators. Larger operators are
+     * not cached
+     */
+    public final long MAX_BYTES = 1L << 25;
+
+    /**
+     * Linear operator x = O*y, where y is the low-frequency series and x the
+     * disaggregated series. Immutable
+     */
+    public abstract static class Operator {
+
+        final int n, ny;
+
+        private Operator(int n, int ny) {
+            this.n = n;
+            this.ny = ny;
+        }
+
+        /**
+         * Length of the high-frequency series
+         *
+         * @return
+         */
+        public int getHighFrequencyLength() {
+            return n;
+        }
+
+        /**
+         * Length of the low-frequency series
+         *
+         * @return
+         */
+        public int getLowFrequencyLength() {
+            return ny;
+        }
+
+        /**
+         * Memory used by the operator (in bytes, approximately)
+         *
+         * @return
+         */
+        public abstract long getMemorySize();
+
+        public abstract double[] apply(DoubleSeq y);
+
+        /**
+         * Applies the operator on several low-frequency series (x(k) =
+         * O*y(k))
+         *
+         * @param y The low-frequency series
+         * @return The corresponding high-frequency series
+         */
+        public abstract double[][] apply(double[][] y);
+
+        void check(int m) {
+            if (m != ny) {
+                throw new IllegalArgumentException();
+            }
+        }
+    }
+
+    /**
+     * Denton interpolation, stored as the factorized system of BandedDenton.
+     * The factorization is only read by the solver, so that the operator can
+     * be used by several threads
+     */
+    private static final class DentonOperator extends Operator {
+
+        private final BandMatrix A;
+        private final int[] pos, lpos;
+        private final double c;
+
+        private DentonOperator(int n, int ny, BandMatrix A, int[] pos, int[] lpos, double c) {
+            super(n, ny);
+            this.A = A;
+            this.pos = pos;
+            this.lpos = lpos;
+            this.c = c;
+        }
+
+        @Override
+        public long getMemorySize() {
+            return A.getMemorySize() + 4L * (n + ny);
+        }
+
+        @Override
+        public double[] apply(DoubleSeq y) {
+            check(y.length());
+            double[] q = new double[n + ny];
+            for (int j = 0; j < ny; ++j) {
+                q[lpos[j]] = c * y.get(j);
+            }
+            A.solve(q);
+            double[] x = new double[n];
+            for (int i = 0; i < n; ++i) {
+                x[i] = q[pos[i]];
+            }
+            return x;
+        }
+
+        /**
+         * All the right-hand sides are solved together (the factorization is
+         * read once)
+         *
+         * @param y
+         * @return
+         */
+        @Override
+        public double[][] apply(double[][] y) {
+            int m = y.length;
+            for (int l = 0; l < m; ++l) {
+                check(y[l].length);
+            }
+            double[][] x = new double[m][n];
+            if (m == 0) {
+                return x;
+            }
+            double[] q = new double[(n + ny) * m];
+            for (int j = 0; j < ny; ++j) {
+                for (int l = 0, k = lpos[j] * m; l < m; ++l) {
+                    q[k++] = c * y[l][j];
+                }
+            }
+            A.solve(q, m);
+            for (int i = 0; i < n; ++i) {
+                for (int l = 0, k = pos[i] * m; l < m; ++l) {
+                    x[l][i] = q[k++];
+                }
+            }
+            return x;
+        }
+    }
+
+    /**
+     * Cubic spline disaggregation computed by the toolkit at each application
+     * (used when the natural spline kernel doesn't reproduce it)
+     */
+    private static final class SplineOperator extends Operator {
+
+        private final Function<double[], double[]> fn;
+
+        private SplineOperator(int n, int ny, Function<double[], double[]> fn) {
+            super(n, ny);
+            this.fn = fn;
+        }
+
+        @Override
+        public long getMemorySize() {
+            return 0;
+        }
+
+        @Override
+        public double[] apply(DoubleSeq y) {
+            check(y.length());
+            return fn.apply(y.toArray());
+        }
+
+        @Override
+        public double[][] apply(double[][] y) {
+            double[][] x = new double[y.length][];
+            for (int l = 0; l < y.length; ++l) {
+                check(y[l].length);
+                x[l] = fn.apply(y[l]);
+            }
+            return x;
+        }
+    }
+
+    /**
+     * Natural cubic spline through the knots position+j*ratio (j in [0, m[),
+     * evaluated at the positions of [0, n[. Outside the knots, the polynomial
+     * of the first (last) interval is used. The tridiagonal system of the
+     * second derivatives at the interior knots, (1 4 1) for equally spaced
+     * knots, is factorized once; the interval of each evaluated position and
+     * its weights are precomputed. Immutable
+     */
+    private static final class SplineKernel {
+
+        private final int n, m;
+        private final double q;
+        // factorization of the tridiagonal system (multipliers, pivots)
+        private final double[] l, d;
+        // interval and weights of each evaluated position
+        private final int[] k;
+        private final double[] wa, wb, wc, wd;
+
+        private SplineKernel(int n, int m, int ratio, int position) {
+            this.n = n;
+            this.m = m;
+            double h = ratio;
+            this.q = 6 / (h * h);
+            int r = m - 2;
+            l = new double[r];
+            d = new double[r];
+            if (r > 0) {
+                d[0] = 4;
+                for (int j = 1; j < r; ++j) {
+                    l[j] = 1 / d[j - 1];
+                    d[j] = 4 - l[j];
+                }
+            }
+            k = new int[n];
+            wa = new double[n];
+            wb = new double[n];
+            wc = new double[n];
+            wd = new double[n];
+            double h6 = h * h / 6;
+            for (int i = 0; i < n; ++i) {
+                int cur = Math.floorDiv(i - position, ratio);
+                if (cur < 0) {
+                    cur = 0;
+                } else if (cur > m - 2) {
+                    cur = m - 2;
+                }
+                double b = (i - position - cur * h) / h, a = 1 - b;
+                k[i] = cur;
+                wa[i] = a;
+                wb[i] = b;
+                wc[i] = (a * a * a - a) * h6;
+                wd[i] = (b * b * b - b) * h6;
+            }
+        }
+
+        long getMemorySize() {
+            return 36L * n + 16L * m;
+        }
+
+        /**
+         * Evaluates the spline through y
+         *
+         * @param y The values at the knots (length m)
+         * @param x The buffer of the results (length n)
+         * @param M Buffer of the second derivatives (length m)
+         */
+        void apply(double[] y, double[] x, double[] M) {
+            int r = m - 2;
+            M[0] = 0;
+            M[m - 1] = 0;
+            // forward substitution
+            double z = 0;
+            for (int j = 0; j < r; ++j) {
+                double rhs = q * (y[j] - 2 * y[j + 1] + y[j + 2]);
+                z = j == 0 ? rhs : rhs - l[j] * z;
+                M[j + 1] = z;
+            }
+            // backward substitution
+            for (int j = r - 1; j >= 0; --j) {
+                double next = j == r - 1 ? 0 : M[j + 2];
+                M[j + 1] = (M[j + 1] - next) / d[j];
+            }
+            for (int i = 0; i < n; ++i) {
+                int cur = k[i];
+                x[i] = wa[i] * y[cur] + wb[i] * y[cur + 1] + wc[i] * M[cur] + wd[i] * M[cur + 1];
+            }
+        }
+
+        /**
+         * Checks the kernel against the cubic spline of the toolkit on a
+         * given series
+         *
+         * @param xi The knots
+         * @return
+         */
+        boolean check(double[] xi) {
+            double[] y = new double[m];
+            double scale = 0;
+            for (int j = 0; j < m; ++j) {
+                y[j] = (1 + j) * Math.cos(j);
+                scale = Math.max(scale, Math.abs(y[j]));
+            }
+            double[] x = new double[n];
+            apply(y, x, new double[m]);
+            DoubleUnaryOperator cs = CubicSpline.of(xi, y);
+            for (int i = 0; i < n; ++i) {
+                if (Math.abs(cs.applyAsDouble(i) - x[i]) > 1e-9 * scale) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Cubic spline interpolation, computed by a spline kernel
+     */
+    private static final class InterpolationOperator extends Operator {
+
+        private final SplineKernel kernel;
+
+        private InterpolationOperator(SplineKernel kernel) {
+            super(kernel.n, kernel.m);
+            this.kernel = kernel;
+        }
+
+        @Override
+        public long getMemorySize() {
+            return kernel.getMemorySize();
+        }
+
+        @Override
+        public double[] apply(DoubleSeq y) {
+            check(y.length());
+            double[] x = new double[n];
+            kernel.apply(y.toArray(), x, new double[ny]);
+            return x;
+        }
+
+        /**
+         * The series are processed one by one, with the same buffer for the
+         * second derivatives
+         *
+         * @param y
+         * @return
+         */
+        @Override
+        public double[][] apply(double[][] y) {
+            double[][] x = new double[y.length][];
+            double[] M = new double[ny];
+            for (int l = 0; l < y.length; ++l) {
+                check(y[l].length);
+                x[l] = new double[n];
+                kernel.apply(y[l], x[l], M);
+            }
+            return x;
+        }
+    }
+
+    /**
+     * Cubic spline disaggregation of flows: the spline kernel is applied on
+     * the cumulated low-frequency series and the result is differenced
+     */
+    private static final class CumulatedSplineOperator extends Operator {
+
+        private final SplineKernel kernel;
+        private final double factor;
+
+        private CumulatedSplineOperator(SplineKernel kernel, double factor) {
+            super(kernel.n - 1, kernel.m - 1);
+            this.kernel = kernel;
+            this.factor = factor;
+        }
+
+        @Override
+        public long getMemorySize() {
+            return kernel.getMemorySize();
+        }
+
+        @Override
+        public double[] apply(DoubleSeq y) {
+            check(y.length());
+            double[] x = new double[n];
+            apply(y.toArray(), x, new double[ny + 1], new double[ny + 1], new double[n + 1]);
+            return x;
+        }
+
+        @Override
+        public double[][] apply(double[][] y) {
+            double[][] x = new double[y.length][];
+            double[] c = new double[ny + 1], M = new double[ny + 1], z = new double[n + 1];
+            for (int l = 0; l < y.length; ++l) {
+                check(y[l].length);
+                x[l] = new double[n];
+                apply(y[l], x[l], c, M, z);
+            }
+            return x;
+        }
+
+        private void apply(double[] y, double[] x, double[] c, double[] M, double[] z) {
+            c[0] = 0;
+            for (int j = 0; j < ny; ++j) {
+                c[j + 1] = c[j] + y[j];
+            }
+            kernel.apply(c, z, M);
+            for (int i = 0; i < n; ++i) {
+                x[i] = factor * (z[i + 1] - z[i]);
+            }
+        }
+    }
+
+    @lombok.Value
+    private static class SplineKey {
+
+        int n, ny, ratio, position;
+        boolean cumulated;
+        double factor;
+    }
+
+    @lombok.Value
+    private static class DentonKey {
+
+        int ny, ratio, differencing;
+        boolean modified;
+        AggregationType type;
+        int position;
+    }
+
+    private long bytes;
+
+    private final LinkedHashMap<Object, Operator> CACHE = new LinkedHashMap<>(16, .75f, true);
+
+    private Operator get(Object key) {
+        synchronized (CACHE) {
+            return CACHE.get(key);
+        }
+    }
+
+    private Operator put(Object key, Operator op) {
+        long size = op.getMemorySize();
+        if (size > MAX_BYTES) {
+            return op;
+        }
+        synchronized (CACHE) {
+            Operator cur = CACHE.putIfAbsent(key, op);
+            if (cur != null) {
+                return cur;
+            }
+            bytes += size;
+            Iterator<Operator> iter = CACHE.values().iterator();
+            while (bytes > MAX_BYTES) {
+                bytes -= iter.next().getMemorySize();
+                iter.remove();
+            }
+            return op;
+        }
+    }
+
+    /**
+     * Removes all the cached operators
+     */
+    public void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Number of cached operators
+     *
+     * @return
+     */
+    public int size() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    /**
+     * Memory used by the cached operators (in bytes, approximately)
+     *
+     * @return
+     */
+    public long memorySize() {
+        synchronized (CACHE) {
+            return bytes;
+        }
+    }
+
+    /**
+     * Operator of the Denton interpolation without indicator
+     *
+     * @param spec Denton specification
+     * @param ratio Conversion ratio
+     * @param ny Number of low-frequency periods
+     * @return The operator (cached if its memory doesn't exceed MAX_BYTES)
+     */
+    public Operator denton(DentonSpec spec, int ratio, int ny) {
+        // multiplicative/additive is irrelevant without indicator
+        AggregationType type = spec.getAggregationType();
+        DentonKey key = new DentonKey(ny, ratio, spec.getDifferencing(), spec.isModified(),
+                type, type == AggregationType.UserDefined ? spec.getObservationPosition() : 0);
+        Operator op = get(key);
+        if (op != null) {
+            return op;
+        }
+        int n = ny * ratio;
+        BandedDenton denton = new BandedDenton(spec, ratio, 0);
+        int[][] positions = denton.positions(n, ny);
+        BandMatrix A = denton.matrix(null, n, positions[0], positions[1]);
+        A.lu();
+        return put(key, new DentonOperator(n, ny, A, positions[0], positions[1],
+                type == AggregationType.Average ? ratio : 1));
+    }
+
+    /**
+     * Operator of the cubic spline disaggregation without indicator
+     *
+     * @param spec Cubic spline specification
+     * @param ratio Conversion ratio
+     * @param ny Number of low-frequency periods
+     * @return The operator (cached if its memory doesn't exceed MAX_BYTES)
+     */
+    public Operator cubicSpline(CubicSplineSpec spec, int ratio, int ny) {
+        int n = ny * ratio;
+        return switch (spec.getAggregationType()) {
+            case First ->
+                cubicSplineInterpolation(n, ny, ratio, 0);
+            case Last ->
+                cubicSplineInterpolation(n, ny, ratio, ratio - 1);
+            case UserDefined ->
+                cubicSplineInterpolation(n, ny, ratio, Math.min(ratio - 1, spec.getObservationPosition()));
+            case Sum ->
+                cumulatedSpline(spec, ratio, ny, 1);
+            case Average ->
+                cumulatedSpline(spec, ratio, ny, ratio);
+            default ->
+                throw new IllegalArgumentException();
+        };
+    }
+
+    private Operator cumulatedSpline(CubicSplineSpec spec, int ratio, int ny, double factor) {
+        int n = ny * ratio;
+        SplineKey key = new SplineKey(n, ny, ratio, 0, true, factor);
+        Operator op = get(key);
+        if (op != null) {
+            return op;
+        }
+        // spline of the cumulated series, at the knots 0, ratio, ..., n
+        double[] xi = new double[ny + 1];
+        for (int j = 0; j <= ny; ++j) {
+            xi[j] = j * ratio;
+        }
+        SplineKernel kernel = new SplineKernel(n + 1, ny + 1, ratio, 0);
+        if (kernel.check(xi)) {
+            op = new CumulatedSplineOperator(kernel, factor);
+        } else {
+            op = new SplineOperator(n, ny, y -> CubicSplineProcessor.process(spec, ratio, DoubleSeq.of(y)));
+        }
+        return put(key, op);
+    }
+
+    /**
+     * Operator of the cubic spline interpolation of values observed at the
+     * positions position+j*ratio (j in [0, ny[), evaluated at all the positions
+     * of [0, n[. It only depends on the layout of the knots.
+     * The natural spline kernel is checked once against the cubic spline of
+     * the toolkit; if they don't agree, the operator uses the toolkit at each
+     * application.
+     *
+     * @param n Number of evaluated positions (length of the high-frequency
+     * series)
+     * @param ny Number of knots
+     * @param ratio Distance between two successive knots
+     * @param position Position of the first knot
+     * @return The operator (cached if its memory doesn't exceed MAX_BYTES)
+     */
+    public Operator cubicSplineInterpolation(int n, int ny, int ratio, int position) {
+        SplineKey key = new SplineKey(n, ny, ratio, position, false, 1);
+        Operator op = get(key);
+        if (op != null) {
+            return op;
+        }
+        double[] xi = new double[ny];
+        for (int j = 0; j < ny; ++j) {
+            xi[j] = position + j * ratio;
+        }
+        if (ny >= 2) {
+            SplineKernel kernel = new SplineKernel(n, ny, ratio, position);
+            if (kernel.check(xi)) {
+                return put(key, new InterpolationOperator(kernel));
+            }
+        }
+        return put(key, new SplineOperator(n, ny, y -> {
+            DoubleUnaryOperator cs = CubicSpline.of(xi, y);
+            double[] x = new double[n];
+            for (int i = 0; i < n; ++i) {
+                x[i] = cs.applyAsDouble(i);
+            }
+            return x;
+        }));
+    }
+}
@@ -9,9 +9,6 @@ import jdplus.benchmarking.base.api.benchmarking.univariate.DentonSpec;
 import jdplus.benchmarking.base.api.benchmarking.univariate.GrpSpec;
 import jdplus.toolkit.base.api.data.AggregationType;
 import jdplus.toolkit.base.api.data.DoubleSeq;
-import jdplus.toolkit.base.api.data.DoubleSeqCursor;
-import jdplus.toolkit.base.core.data.DataBlock;
-import jdplus.toolkit.base.core.data.DataBlockIterator;
 import jdplus.toolkit.base.core.math.functions.IFunction;
 import jdplus.toolkit.base.core.math.functions.IFunctionDerivatives;
 import jdplus.toolkit.base.core.math.functions.IFunctionPoint;
@@ -19,8 +16,6 @@ import jdplus.toolkit.base.core.math.functions.bfgs.Bfgs;
 import jdplus.toolkit.base.core.math.functions.DefaultDomain;
 import jdplus.toolkit.base.core.math.functions.IParametersDomain;
 import jdplus.toolkit.base.core.math.matrices.FastMatrix;
-import jdplus.toolkit.base.core.math.matrices.GeneralMatrix;
-import jdplus.toolkit.base.core.math.matrices.SymmetricMatrix;
 
 /**
  * Growth rate preservation Algorithm based on the paper: A Newton's method for
@@ -34,6 +29,64 @@ public class GRP {
     private final int conversion, offset;
     private final GrpSpec spec;
     private final boolean flow;
+    private Convergence convergence, coldStart;
+
+    /**
+     * Information on the last optimization
+     */
+    @lombok.Value
+    public static class Convergence {
+
+        GrpSpec.Solver solver;
+        /**
+         * True if the optimization started from a previous solution
+         */
+        boolean warmStart;
+        /**
+         * Objective function at the starting point
+         */
+        double initialObjective;
+        /**
+         * Number of iterations
+         */
+        int iterations;
+        /**
+         * Number of evaluations of the objective function
+         */
+        int evaluations;
+        double objective;
+        /**
+         * Maximum absolute value of the (reduced) gradient at the solution
+         */
+        double gradientNorm;
+        boolean converged;
+        /**
+         * Convergence of a cold start (typically on a previous vintage of the
+         * data), which is the baseline of a warm start. Null for a cold start
+         * or if no cold start is available
+         */
+        Convergence baseline;
+
+        /**
+         * Number of iterations saved by the warm start, compared to its
+         * baseline (0 if it is not available)
+         *
+         * @return
+         */
+        public int getSavedIterations() {
+            return baseline == null ? 0 : baseline.iterations - iterations;
+        }
+
+        /**
+         * Number of evaluations of the objective function saved by the warm
+         * start, compared to its baseline (0 if it is not available)
+         *
+         * @return
+         */
+        public int getSavedEvaluations() {
+            return baseline == null ? 0 : baseline.evaluations - evaluations;
+        }
+    }
 
     public GRP(GrpSpec spec, int conversion, int offset) {
         switch (spec.getAggregationType()) {
@@ -53,46 +106,101 @@ public class GRP {
     }
 
     public double[] process(DoubleSeq highSeries, DoubleSeq lowSeries) {
-        double[] start;
+        return process(highSeries, lowSeries, null);
+    }
+
+    /**
+     * Benchmarking with a warm start. The baseline of the warm start is the
+     * last cold start of this object
+     *
+     * @param highSeries
+     * @param lowSeries
+     * @param previous Previous solution, aligned on the high-frequency series
+     * (missing values are allowed). May be null or shorter than the
+     * high-frequency series
+     * @return
+     */
+    public double[] process(DoubleSeq highSeries, DoubleSeq lowSeries, DoubleSeq previous) {
+        return process(highSeries, lowSeries, previous, coldStart);
+    }
+
+    /**
+     * Benchmarking with a warm start
+     *
+     * @param highSeries
+     * @param lowSeries
+     * @param previous Previous solution, aligned on the high-frequency series
+     * (missing values are allowed). May be null or shorter than the
+     * high-frequency series
+     * @param baseline Convergence of a cold start (typically on the previous
+     * vintage), used as the baseline of a warm start. May be null
+     * @return
+     */
+    public double[] process(DoubleSeq highSeries, DoubleSeq lowSeries, DoubleSeq previous, Convergence baseline) {
+        double[] start = null;
         int n = flow ? conversion * lowSeries.length() : (1 + conversion * (lowSeries.length() - 1));
-        if (spec.isDentonInitialization()) {
-            DentonSpec dspec = DentonSpec.builder()
-                    .modified(true)
-                    .multiplicative(true)
-                    .differencing(1)
-                    .aggregationType(spec.getAggregationType())
-                    .observationPosition(0)
-                    .buildWithoutValidation();
-            MatrixDenton denton = new MatrixDenton(dspec, conversion, 0);
-            start = denton.process(highSeries.range(offset, offset + n), lowSeries);
-        } else {
-            start = new double[n];
-            if (flow) {
-                addXbar(start, lowSeries.toArray(), conversion, flow);
+        double[] p = highSeries.range(offset, offset + n).toArray(), b = lowSeries.toArray();
+        if (previous != null) {
+            start = warmStart(p, b, previous);
+        }
+        boolean warm = start != null;
+        if (!warm) {
+            if (spec.isDentonInitialization()) {
+                DentonSpec dspec = DentonSpec.builder()
+                        .modified(true)
+                        .multiplicative(true)
+                        .differencing(1)
+                        .aggregationType(spec.getAggregationType())
+                        .observationPosition(0)
+                        .buildWithoutValidation();
+                start = DentonProcessor.process(dspec, conversion, 0, highSeries.range(offset, offset + n), lowSeries);
             } else {
-                init(start, lowSeries.toArray(), conversion);
+                start = new double[n];
+                if (flow) {
+                    addXbar(start, b, conversion, flow);
+                } else {
+                    init(start, b, conversion);
+                }
             }
         }
 
-        Bfgs bfgs = Bfgs.builder()
-                .functionPrecision(spec.getPrecision())
-                .maxIter(spec.getMaxIter())
-                .build();
-        FastMatrix K = FastMatrix.make(conversion, conversion - 1);
-        K(K, flow);
-        GRPFunction fn = new GRPFunction(highSeries.range(offset, offset + n).toArray(), lowSeries.toArray(), K, flow);
-        IFunctionPoint ps = fn.evaluate(DoubleSeq.of(Ztx(start, K, flow)));
+        GRPBasis basis = new GRPBasis(conversion, flow);
+        GRPWorkspace ws = new GRPWorkspace(p, b, basis);
+        GRPFunction fn = new GRPFunction(ws);
+        IFunctionPoint ps = fn.evaluate(DoubleSeq.of(Ztx(start, basis)));
         if (!Double.isFinite(ps.getValue())) {
-            init(start, lowSeries.toArray(), conversion);
-            ps = fn.evaluate(DoubleSeq.of(Ztx(start, K, flow)));
+            warm = false;
+            init(start, b, conversion);
+            ps = fn.evaluate(DoubleSeq.of(Ztx(start, basis)));
+        }
+        double f0 = ps.getValue();
+        Convergence wbaseline = warm ? baseline : null;
+        double[] x;
+        if (spec.getSolver() == GrpSpec.Solver.Newton) {
+            GRPNewton newton = new GRPNewton(ws, spec.getMaxIter(), spec.getPrecision());
+            x = newton.minimize(ps.getParameters().toArray());
+            convergence = new Convergence(GrpSpec.Solver.Newton, warm, f0, newton.getIterationsCount(),
+                    newton.getEvaluationsCount(), newton.getObjective(), newton.getGradientNorm(), newton.isConverged(), wbaseline);
+        } else {
+            Bfgs bfgs = Bfgs.builder()
+                    .functionPrecision(spec.getPrecision())
+                    .maxIter(spec.getMaxIter())
+                    .build();
+            boolean ok = bfgs.minimize(ps);
+            GRPFunction.Point rslt = (GRPFunction.Point) bfgs.getResult();
+            x = rslt.x();
+            double gnorm = DoubleSeq.of(mg(x, p, basis)).normInf();
+            convergence = new Convergence(GrpSpec.Solver.Bfgs, warm, f0, bfgs.getIterCount(),
+                    fn.getEvaluationsCount(), rslt.getValue(), gnorm, ok, wbaseline);
+        }
+        if (!warm) {
+            coldStart = convergence;
         }
-        bfgs.minimize(ps);
-        GRPFunction.Point rslt = (GRPFunction.Point) bfgs.getResult();
         if (n == highSeries.length()) {
-            return rslt.x;
+            return x;
         } else {
             double[] q = new double[highSeries.length()];
-            System.arraycopy(rslt.x, 0, q, offset, n);
+            System.arraycopy(x, 0, q, offset, n);
             if (offset > 0) {
                 for (int i = offset; i > 0; --i) {
                     double r = highSeries.get(i - 1) / highSeries.get(i);
@@ -108,6 +216,77 @@ public class GRP {
         }
     }
 
+    /**
+     * Starting values computed from a previous solution. The previous
+     * solution is extended (backward and forward) with the growth rates of
+     * the reference series and it is then adjusted to the constraints: flows
+     * are pro-rated in each period and stocks are replaced by the
+     * constraints.
+     *
+     * @param p Reference series (on the optimization span)
+     * @param b Constraints
+     * @param previous Previous solution, aligned on the complete high-frequency
+     * series
+     * @return The starting values or null if the previous solution is not
+     * usable
+     */
+    private double[] warmStart(double[] p, double[] b, DoubleSeq previous) {
+        int n = p.length;
+        double[] x = new double[n];
+        boolean any = false;
+        for (int i = 0, j = offset; i < n; ++i, ++j) {
+            double v = j < previous.length() ? previous.get(j) : Double.NaN;
+            if (Double.isFinite(v) && v > 0) {
+                x[i] = v;
+                any = true;
+            } else {
+                x[i] = Double.NaN;
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        for (int i = 1; i < n; ++i) {
+            if (Double.isNaN(x[i]) && !Double.isNaN(x[i - 1])) {
+                x[i] = x[i - 1] * p[i] / p[i - 1];
+            }
+        }
+        for (int i = n - 2; i >= 0; --i) {
+            if (Double.isNaN(x[i])) {
+                x[i] = x[i + 1] * p[i] / p[i + 1];
+            }
+        }
+        if (flow) {
+            for (int i = 0, j = 0; i < b.length; ++i, j += conversion) {
+                double sum = 0;
+                for (int k = 0; k < conversion; ++k) {
+                    sum += x[j + k];
+                }
+                double c = b[i] / sum;
+                if (!Double.isFinite(c) || c <= 0) {
+                    return null;
+                }
+                for (int k = 0; k < conversion; ++k) {
+                    x[j + k] *= c;
+                }
+            }
+        } else {
+            for (int i = 0, j = 0; i < b.length; ++i, j += conversion) {
+                x[j] = b[i];
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Convergence statistics of the last call to process
+     *
+     * @return null if process has not been called
+     */
+    public Convergence getConvergence() {
+        return convergence;
+    }
+
     /**
      * Computes the gradient of the GRP objective function
      *
@@ -162,6 +341,60 @@ public class GRP {
         }
     }
 
+    /**
+     * Computes the reduced hessian Z'hZ. It is a band matrix: h is tridiagonal
+     * and only the first element of a period (for flows) is linked to the
+     * previous period
+     *
+     * @param x current value of the objective function
+     * @param p reference series (unbenchmarked)
+     * @param basis
+     * @param H Band matrix (bandwidth given by basis.hessianBandwidth())
+     */
+    static void hessian(double[] x, double[] p, GRPBasis basis, SymmetricBandMatrix H) {
+        int s = basis.getRatio(), s1 = s - 1;
+        hessian(x, p, basis, H, new double[s], new double[s], new double[s], new double[s1 * s1]);
+    }
+
+    /**
+     * Computes the reduced hessian, using the given buffers
+     *
+     * @param x
+     * @param p
+     * @param basis
+     * @param H
+     * @param d Buffer of length s
+     * @param e Buffer of length s
+     * @param w Buffer of length s
+     * @param blk Buffer of length (s-1)*(s-1)
+     */
+    static void hessian(double[] x, double[] p, GRPBasis basis, SymmetricBandMatrix H,
+            double[] d, double[] e, double[] w, double[] blk) {
+        H.clear();
+        int s = basis.getRatio(), s1 = s - 1, m = H.getDim() / s1;
+        for (int i = 0, j = 0, v = 0; i < m; ++i, j += s, v += s1) {
+            for (int l = 0; l < s; ++l) {
+                d[l] = h(j + l, j + l, x, p);
+                if (l > 0) {
+                    e[l] = h(j + l - 1, j + l, x, p);
+                }
+            }
+            basis.ktk(d, e, w, blk);
+            for (int r = 0; r < s1; ++r) {
+                for (int c = 0; c <= r; ++c) {
+                    H.set(v + r, v + c, blk[r * s1 + c]);
+                }
+            }
+            if (basis.isFlow() && i + 1 < m) {
+                // K(0, c) = 0 for c > 0
+                double hv = h(j + s1, j + s, x, p) * basis.get(0, 0);
+                for (int c = 0; c < s1; ++c) {
+                    H.set(v + s1, v + c, hv * basis.get(s1, c));
+                }
+            }
+        }
+    }
+
     static double f(double[] x, double[] p) {
         double s = 0;
         for (int i = 1; i < p.length; ++i) {
@@ -175,23 +408,24 @@ public class GRP {
     }
 
     static void K(FastMatrix k, boolean flow) {
-        if (flow) {
-            int s = k.getRowsCount();
-            DataBlockIterator cols = k.columnsIterator();
-            int c = 0;
-
-            while (cols.hasNext()) {
-                double sm1 = s - 1;
-                DataBlock col = cols.next();
-                col.set(c++, Math.sqrt(sm1 / s));
-                col.drop(c, 0).set(-Math.sqrt(1 / (s * sm1)));
-                --s;
+        GRPBasis basis = new GRPBasis(k.getRowsCount(), flow);
+        for (int c = 0; c < k.getColumnsCount(); ++c) {
+            for (int r = 0; r < k.getRowsCount(); ++r) {
+                k.set(r, c, basis.get(r, c));
             }
-        } else {
-            k.subDiagonal(-1).set(1);
         }
     }
 
+    /**
+     * Basis corresponding to a matrix generated by K(FastMatrix, boolean)
+     *
+     * @param K
+     * @return
+     */
+    static GRPBasis basis(FastMatrix K) {
+        return new GRPBasis(K.getRowsCount(), K.get(0, 0) != 0);
+    }
+
     /**
      * Gradient of the unconstrained problem
      *
@@ -201,29 +435,35 @@ public class GRP {
      * @return
      */
     static double[] mg(double[] x, double[] p, FastMatrix K) {
-        int s = K.getRowsCount();
-        int m = x.length / s; // x.length should be a multiple of s
-        int n = m * (s - 1);
-        double[] g = new double[n];
-        double[] gcur = new double[s];
-        for (int i = 0, j = 0, k = 0; i < m; ++i) {
-            for (int l = 0; l < s; ++l) {
-                gcur[l] = g(j++, x, p);
-            }
-            for (int l = 0; l < s - 1; ++l) {
-                DataBlock col = K.column(l);
-                DoubleSeqCursor cursor = col.cursor();
-                cursor.skip(l);
-                double q = 0;
-                for (int t = l; t < s; ++t) {
-                    q += gcur[t] * cursor.getAndNext();
-                }
-                g[k++] = q;
-            }
-        }
+        return mg(x, p, basis(K));
+    }
+
+    static double[] mg(double[] x, double[] p, GRPBasis basis) {
+        int s = basis.getRatio();
+        int m = x.length / s;
+        double[] g = new double[m * (s - 1)];
+        mg(x, p, basis, new double[m * s], g);
         return g;
     }
 
+    /**
+     * Gradient of the unconstrained problem, without allocation
+     *
+     * @param x
+     * @param p
+     * @param basis
+     * @param gx Workspace (gradient in x). Its length should be at least
+     * s*g.length/(s-1)
+     * @param g Result
+     */
+    static void mg(double[] x, double[] p, GRPBasis basis, double[] gx, double[] g) {
+        int nx = g.length / (basis.getRatio() - 1) * basis.getRatio();
+        for (int j = 0; j < nx; ++j) {
+            gx[j] = g(j, x, p);
+        }
+        basis.ztv(gx, g);
+    }
+
     static double[] xbar(double[] b, int s) {
         double[] xbar = new double[b.length * s];
         for (int i = 0, j = 0; i < b.length; ++i) {
@@ -266,112 +506,99 @@ public class GRP {
     }
 
     static double[] Ztx(double[] x, FastMatrix K, boolean flow) {
-        int s = K.getRowsCount();
-        if (flow) {
-            int m = x.length / s; // x.length should be a multiple of s
-            int n = m * (s - 1);
-            double[] zx = new double[n];
-            for (int i = 0, j = 0, k = 0; i < m; ++i, j += s) {
-                boolean zero = true;
-                for (int l = j; l < j + s; ++l) {
-                    if (x[l] != 0) {
-                        zero = false;
-                        break;
-                    }
-                }
-                if (!zero) {
-                    for (int l = 0; l < s - 1; ++l) {
-                        DataBlock col = K.column(l);
-                        DoubleSeqCursor cursor = col.cursor();
-                        cursor.skip(l);
-                        double q = 0;
-                        for (int t = l, u = j + l; t < s; ++t, ++u) {
-                            q += x[u] * cursor.getAndNext();
-                        }
-                        zx[k++] = q;
-                    }
-                }
-            }
-            return zx;
-        } else {
-            int m = (x.length - 1) / s;
-            int n = m * (s - 1);
-            double[] zx = new double[n];
-            for (int j = 0, k = 0; j < n;) {
-                ++k;
-                for (int l = 0; l < s - 1; ++l) {
-                    zx[j++] = x[k++];
-                }
-            }
-            return zx;
-        }
+        return Ztx(x, new GRPBasis(K.getRowsCount(), flow));
+    }
+
+    static double[] Ztx(double[] x, GRPBasis basis) {
+        int s = basis.getRatio();
+        int m = basis.isFlow() ? x.length / s : (x.length - 1) / s;
+        double[] zx = new double[m * (s - 1)];
+        basis.ztv(x, zx);
+        return zx;
     }
 
     static double[] Zz(double[] z, FastMatrix K, boolean flow) {
-        int s = K.getRowsCount();
-        if (flow) {
-            int m = z.length / (s - 1); // x.length should be a multiple of s-1
-            int n = m * s;
-            double[] zz = new double[n];
-            for (int i = 0, j = 0, k = 0; i < m; ++i, j += s - 1) {
-                for (int l = 0; l < s; ++l) {
-                    DataBlock row = K.row(l);
-                    DoubleSeqCursor cursor = row.cursor();
-                    double q = 0;
-                    for (int t = 0, u = j; t < Math.min(s - 1, l + 1); ++t, ++u) {
-                        q += z[u] * cursor.getAndNext();
-                    }
-                    zz[k++] = q;
-                }
-            }
-            return zz;
-        } else {
-            int m = z.length / (s - 1);
-            int n = z.length + m + 1;// we add the obs we suppressed in Ztx
-            double[] zz = new double[n];
-            for (int j = 0, k = 0; j < z.length;) {
-                k++;
-                for (int l = 0; l < s - 1; ++l) {
-                    zz[k++] = z[j++];
-                }
-            }
-            return zz;
-        }
+        return Zz(z, new GRPBasis(K.getRowsCount(), flow));
+    }
+
+    static double[] Zz(double[] z, GRPBasis basis) {
+        double[] zz = new double[basis.xlength(z.length)];
+        basis.zz(z, zz);
+        return zz;
     }
 }
 
+/**
+ * GRP objective function in the reduced parameters z. The points only keep z
+ * and the value of the function: x and the gradient are computed in the
+ * (shared) workspace of the function.
+ * Not thread-safe.
+ */
 class GRPFunction implements IFunction {
 
-    private final double[] p, b;
-    private final FastMatrix K;
-    private final boolean flow;
+    private final GRPWorkspace ws;
+    private final IParametersDomain domain;
+    private int evaluations;
+    // point whose x is currently stored in the workspace
+    private Point current;
+    private double[] xcur;
 
-    GRPFunction(double[] p, double[] b, FastMatrix K, boolean flow) {
-        this.p = p;
-        this.b = b;
-        this.K = K;
-        this.flow = flow;
+    GRPFunction(GRPWorkspace ws) {
+        this.ws = ws;
+        this.domain = new DefaultDomain(ws.getParametersCount(), 1e-6);
     }
 
+    /**
+     * The series and the hessian are computed in the buffers of the
+     * workspace. The optimizers keep several points alive, so that each point
+     * owns a copy of its parameters and, once requested, its gradient
+     *
+     * @param ds
+     * @return
+     */
     @Override
     public IFunctionPoint evaluate(DoubleSeq ds) {
+        ++evaluations;
         return new Point(ds.toArray());
     }
 
+    int getEvaluationsCount() {
+        return evaluations;
+    }
+
     @Override
     public IParametersDomain getDomain() {
-        return new DefaultDomain(p.length - b.length, 1e-6);
+        return domain;
+    }
+
+    private double[] x(Point pt) {
+        if (current != pt) {
+            xcur = ws.x(pt.z);
+            current = pt;
+        }
+        return xcur;
     }
 
-    class Point implements IFunctionPoint {
+    class Point implements IFunctionPoint, IFunctionDerivatives {
 
         final double[] z;
-        final double[] x;
+        final double value;
+        private DoubleSeq g;
 
         Point(double[] z) {
             this.z = z;
-            this.x = GRP.Zz(z, K, flow);
-            GRP.addXbar(x, b, K.getRowsCount(), flow);
+            this.value = ws.f(x(this));
+        }
+
+        /**
+         * Benchmarked series corresponding to this point (new array)
+         *
+         * @return
+         */
+        double[] x() {
+            double[] x = new double[ws.getReference().length];
+            ws.x(z, x);
+            return x;
         }
 
         @Override
@@ -381,7 +608,7 @@ class GRPFunction implements IFunction {
 
         @Override
         public IFunctionDerivatives derivatives() {
-            return new Derivatives(z, x);
+            return this;
         }
 
         @Override
@@ -391,63 +618,37 @@ class GRPFunction implements IFunction {
 
         @Override
         public double getValue() {
-            return GRP.f(x, p);
-        }
-
-    }
-
-    class Derivatives implements IFunctionDerivatives {
-
-        final double[] z, x;
-
-        Derivatives(double[] z, double[] x) {
-            this.z = z;
-            this.x = x;
-        }
-
-        @Override
-        public IFunction getFunction() {
-            return GRPFunction.this;
+            return value;
         }
 
+        /**
+         * The gradient is computed once for each point
+         *
+         * @return
+         */
         @Override
         public DoubleSeq gradient() {
-            double[] mg = GRP.mg(x, p, K);
-            return DoubleSeq.of(mg);
+            if (g == null) {
+                double[] gz = new double[z.length];
+                ws.gradient(x(this), gz);
+                g = DoubleSeq.of(gz);
+            }
+            return g;
         }
 
         @Override
         public void hessian(FastMatrix matrix) {
-            FastMatrix h = FastMatrix.square(x.length);
-            DataBlock hd = h.diagonal();
-            for (int i = 0; i < x.length; ++i) {
-                hd.set(i, GRP.h(i, i, x, p));
-            }
-            hd = h.subDiagonal(-1);
-            for (int i = 0; i < x.length - 1; ++i) {
-                hd.set(i, GRP.h(i, i + 1, x, p));
-            }
-            h.subDiagonal(1).copy(hd);
-            // H = Zt*h*Z
-            FastMatrix H = FastMatrix.square(z.length);
-            // diagonal blocks
-            int s = K.getRowsCount();
-            int m = x.length / s;
-            for (int j = 0, k = 0; j < x.length; j += s, k += s - 1) {
-                FastMatrix dh = h.extract(j, s, j, s);
-                FastMatrix dH = H.extract(k, s - 1, k, s - 1);
-                SymmetricMatrix.XtSX(dh, K, dH);
-                if (j + s < x.length) {
-                    dh = h.extract(j + s, s, j, s);
-                    dH = H.extract(k + s - 1, s - 1, k, s - 1);
-                    FastMatrix tmp = GeneralMatrix.AtB(K, dh);
-                    GeneralMatrix.setABt(tmp, K, dH);
-                    FastMatrix dH2 = H.extract(k, s - 1, k + s - 1, s - 1);
-                    dH2.copyTranspose(dH);
+            SymmetricBandMatrix H = ws.hessian(x(this));
+            matrix.set(0);
+            int bw = H.getBandwidth();
+            for (int r = 0; r < z.length; ++r) {
+                for (int c = Math.max(0, r - bw); c <= r; ++c) {
+                    double v = H.get(r, c);
+                    matrix.set(r, c, v);
+                    matrix.set(c, r, v);
                 }
             }
         }
-
     }
 
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.univariate;
+
+/**
+ * Basis K (s x (s-1)) of the null space of the aggregation constraints of a
+ * period, used by GRP (x = Z*z + xbar, with Z = diag(K, ..., K)).
+ * For flows, K is the Helmert basis: column c contains sqrt((r-1)/r) in row c
+ * and -1/sqrt(r(r-1)) below it (r = s-c). For stocks, K selects the s-1 last
+ * elements of the period.
+ * The products with K are computed in O(s) operations per period by means of
+ * running sums, without any allocation.
+ *
+ * @author palatej
+ */
+final class GRPBasis {
+
+    private final int s;
+    private final boolean flow;
+    // K(c, c) = a[c], K(r, c) = b[c] for r > c (flow)
+    private final double[] a, b;
+
+    GRPBasis(int s, boolean flow) {
+        this.s = s;
+        this.flow = flow;
+        this.a = new double[Math.max(0, s - 1)];
+        this.b = new double[Math.max(0, s - 1)];
+        if (flow) {
+            for (int c = 0; c < s - 1; ++c) {
+                double r = s - c, rm1 = r - 1;
+                a[c] = Math.sqrt(rm1 / r);
+                b[c] = -Math.sqrt(1 / (r * rm1));
+            }
+        }
+    }
+
+    int getRatio() {
+        return s;
+    }
+
+    boolean isFlow() {
+        return flow;
+    }
+
+    /**
+     * Element of K
+     *
+     * @param r Row (in [0, s[)
+     * @param c Column (in [0, s-1[)
+     * @return
+     */
+    double get(int r, int c) {
+        if (flow) {
+            if (r < c) {
+                return 0;
+            } else {
+                return r == c ? a[c] : b[c];
+            }
+        } else {
+            return r == c + 1 ? 1 : 0;
+        }
+    }
+
+    /**
+     * Number of sub-diagonals of the reduced hessian Z'hZ (h tridiagonal)
+     *
+     * @return
+     */
+    int hessianBandwidth() {
+        return flow ? s - 1 : Math.max(0, s - 2);
+    }
+
+    /**
+     * Length of x for a given number of reduced parameters
+     *
+     * @param nz
+     * @return
+     */
+    int xlength(int nz) {
+        int m = nz / (s - 1);
+        return flow ? m * s : m * s + 1;
+    }
+
+    /**
+     * z = Z'v. The number of periods is defined by the length of z. v should
+     * contain at least s*z.length/(s-1) elements
+     *
+     * @param v
+     * @param z
+     */
+    void ztv(double[] v, double[] z) {
+        int s1 = s - 1, m = z.length / s1;
+        if (flow) {
+            for (int i = 0, j = 0, k = 0; i < m; ++i, j += s, k += s1) {
+                double q = v[j + s1];
+                for (int c = s1 - 1; c >= 0; --c) {
+                    double vc = v[j + c];
+                    z[k + c] = a[c] * vc + b[c] * q;
+                    q += vc;
+                }
+            }
+        } else {
+            for (int i = 0, j = 1, k = 0; i < m; ++i, j += s, k += s1) {
+                System.arraycopy(v, j, z, k, s1);
+            }
+        }
+    }
+
+    /**
+     * x = Z*z. x should contain at least xlength(z.length) elements
+     *
+     * @param z
+     * @param x
+     */
+    void zz(double[] z, double[] x) {
+        int s1 = s - 1, m = z.length / s1;
+        if (flow) {
+            for (int i = 0, j = 0, k = 0; i < m; ++i, j += s, k += s1) {
+                double q = 0;
+                for (int l = 0; l < s1; ++l) {
+                    double zl = z[k + l];
+                    x[j + l] = a[l] * zl + q;
+                    q += b[l] * zl;
+                }
+                x[j + s1] = q;
+            }
+        } else {
+            for (int i = 0, j = 0, k = 0; i < m; ++i, j += s, k += s1) {
+                x[j] = 0;
+                System.arraycopy(z, k, x, j + 1, s1);
+            }
+            x[m * s] = 0;
+        }
+    }
+
+    /**
+     * Computes the diagonal block K'TK of the reduced hessian, where T is a
+     * symmetric tridiagonal matrix.
+     *
+     * @param d Diagonal of T (length s)
+     * @param e Sub-diagonal of T: e[l] = T(l-1, l). e[0] is unused
+     * @param w Workspace (length s)
+     * @param out Result ((s-1) x (s-1), stored by rows). Only the lower part is
+     * filled (out(r, c), r &ge; c)
+     */
+    void ktk(double[] d, double[] e, double[] w, double[] out) {
+        int s1 = s - 1;
+        if (flow) {
+            for (int c = 0; c < s1; ++c) {
+                // w = T * K(., c), rows c..s-1 (K(., c) = 0 above c)
+                double ac = a[c], bc = b[c];
+                for (int l = c; l < s; ++l) {
+                    double kl = l == c ? ac : bc;
+                    double q = d[l] * kl;
+                    if (l > c) {
+                        q += e[l] * (l - 1 == c ? ac : bc);
+                    }
+                    if (l < s1) {
+                        q += e[l + 1] * bc;
+                    }
+                    w[l] = q;
+                }
+                // out(r, c) = K(., r)' w, r >= c
+                double q = w[s1];
+                for (int r = s1 - 1; r >= c; --r) {
+                    double wr = w[r];
+                    out[r * s1 + c] = a[r] * wr + b[r] * q;
+                    q += wr;
+                }
+            }
+        } else {
+            for (int r = 0; r < s1; ++r) {
+                out[r * s1 + r] = d[r + 1];
+                if (r > 0) {
+                    out[r * s1 + r - 1] = e[r + 1];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.univariate;
+
+/**
+ * Damped Newton method (Levenberg-Marquardt trust region) for the GRP problem,
+ * expressed in the reduced parameters z (x = Z*z + xbar).
+ * The hessian of the GRP objective is tridiagonal in x and Z is block
+ * diagonal (blocks K of size s x (s-1)), so that the reduced hessian Z'hZ is
+ * a band matrix with s-1 sub-diagonals (s-2 for stocks). Each iteration
+ * solves (Z'hZ + mu*I) dz = -Z'g by a banded Cholesky factorization, in
+ * O(n*s^2) operations. All the buffers are allocated before the iterations.
+ *
+ * @author palatej
+ */
+final class GRPNewton {
+
+    private static final double TAU = 1e-6, MAX_MU = 1e30, ACCEPT = 1e-4;
+
+    private final GRPWorkspace ws;
+    private final int maxIter;
+    private final double precision;
+
+    private int iterations, evaluations;
+    private double objective, gradientNorm;
+    private boolean converged;
+
+    /**
+     *
+     * @param ws Workspace of the problem
+     * @param maxIter Maximum number of iterations
+     * @param precision Relative precision on the objective function: the
+     * iterations stop when the (actual or predicted) decrease of the objective
+     * is smaller than precision*(1+|f|)
+     */
+    GRPNewton(GRPWorkspace ws, int maxIter, double precision) {
+        this.ws = ws;
+        this.maxIter = maxIter;
+        this.precision = precision;
+    }
+
+    int getIterationsCount() {
+        return iterations;
+    }
+
+    int getEvaluationsCount() {
+        return evaluations;
+    }
+
+    double getObjective() {
+        return objective;
+    }
+
+    double getGradientNorm() {
+        return gradientNorm;
+    }
+
+    boolean isConverged() {
+        return converged;
+    }
+
+    /**
+     * Minimizes the GRP objective function
+     *
+     * @param z0 Starting values (reduced parameters)
+     * @return The optimal x
+     */
+    double[] minimize(double[] z0) {
+        iterations = 0;
+        converged = false;
+        int nz = z0.length, nx = ws.getReference().length;
+        double[] z = z0.clone(), znew = new double[nz], dz = new double[nz], g = new double[nz];
+        double[] x = new double[nx], xnew = new double[nx];
+        ws.x(z, x);
+        double f = ws.f(x);
+        evaluations = 1;
+        if (nz == 0) {
+            objective = f;
+            gradientNorm = 0;
+            converged = true;
+            return x;
+        }
+        double mu = -1, nu = 2;
+        ws.gradient(x, g);
+        outer:
+        while (iterations < maxIter) {
+            if (norm(g) == 0) {
+                converged = true;
+                break;
+            }
+            ++iterations;
+            while (true) {
+                SymmetricBandMatrix A = ws.hessian(x);
+                if (mu < 0) {
+                    double dmax = 0;
+                    for (int i = 0; i < nz; ++i) {
+                        dmax = Math.max(dmax, Math.abs(A.get(i, i)));
+                    }
+                    mu = TAU * (dmax == 0 ? 1 : dmax);
+                }
+                A.addDiagonal(mu);
+                if (!A.cholesky()) {
+                    mu *= nu;
+                    nu *= 2;
+                    if (!(mu < MAX_MU)) {
+                        break outer;
+                    }
+                    continue;
+                }
+                for (int i = 0; i < nz; ++i) {
+                    dz[i] = -g[i];
+                }
+                A.solve(dz);
+                double gdz = 0, dz2 = 0;
+                for (int i = 0; i < nz; ++i) {
+                    gdz += g[i] * dz[i];
+                    dz2 += dz[i] * dz[i];
+                    znew[i] = z[i] + dz[i];
+                }
+                // predicted reduction of the quadratic model
+                double pred = 0.5 * (mu * dz2 - gdz);
+                ws.x(znew, xnew);
+                double fnew = ws.f(xnew);
+                ++evaluations;
+                double dec = f - fnew, tol = precision * (1 + Math.abs(f));
+                if (Double.isFinite(fnew) && dec > ACCEPT * pred) {
+                    double r = 2 * dec / pred - 1;
+                    mu *= Math.max(1.0 / 3.0, 1 - r * r * r);
+                    nu = 2;
+                    double[] tmp = z;
+                    z = znew;
+                    znew = tmp;
+                    tmp = x;
+                    x = xnew;
+                    xnew = tmp;
+                    f = fnew;
+                    ws.gradient(x, g);
+                    if (dec <= tol) {
+                        converged = true;
+                        break outer;
+                    }
+                    break;
+                } else if (pred <= tol) {
+                    converged = true;
+                    break outer;
+                } else {
+                    mu *= nu;
+                    nu *= 2;
+                    if (!(mu < MAX_MU)) {
+                        break outer;
+                    }
+                }
+            }
+        }
+        objective = f;
+        gradientNorm = norm(g);
+        return x;
+    }
+
+    private static double norm(double[] g) {
+        double n = 0;
+        for (int i = 0; i < g.length; ++i) {
+            n = Math.max(n, Math.abs(g[i]));
+        }
+        return n;
+    }
+}
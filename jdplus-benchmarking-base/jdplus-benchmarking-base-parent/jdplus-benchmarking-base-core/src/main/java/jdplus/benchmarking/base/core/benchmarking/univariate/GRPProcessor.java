@@ -19,6 +19,7 @@ package jdplus.benchmarking.base.core.benchmarking.univariate;
 import jdplus.benchmarking.base.api.benchmarking.univariate.GrowthRatePreservation;
 import jdplus.benchmarking.base.api.benchmarking.univariate.GrpSpec;
 import jdplus.toolkit.base.api.data.AggregationType;
+import jdplus.toolkit.base.api.data.DoubleSeq;
 import jdplus.toolkit.base.api.timeseries.TsException;
 import jdplus.toolkit.base.api.timeseries.TsUnit;
 import jdplus.toolkit.base.api.timeseries.TsPeriod;
@@ -34,9 +35,40 @@ public class GRPProcessor implements GrowthRatePreservation.Processor {
     
     public static final GRPProcessor PROCESSOR=new GRPProcessor();
     
+    /**
+     * Benchmarked series and convergence of the optimization
+     */
+    @lombok.Value
+    public static class Results {
+
+        TsData benchmark;
+        GRP.Convergence convergence;
+    }
 
     @Override
     public TsData benchmark(TsData highFreqSeries, TsData aggregationConstraint, GrpSpec spec) {
+        return benchmark(highFreqSeries, aggregationConstraint, spec, null);
+    }
+
+    @Override
+    public TsData benchmark(TsData highFreqSeries, TsData aggregationConstraint, GrpSpec spec, TsData previous) {
+        return process(highFreqSeries, aggregationConstraint, spec, previous, null).getBenchmark();
+    }
+
+    /**
+     * Benchmarking, with the convergence of the optimization
+     *
+     * @param highFreqSeries
+     * @param aggregationConstraint
+     * @param spec
+     * @param previous Previous benchmarked series, used as starting point. May
+     * be null
+     * @param baseline Convergence of a cold start (typically the results of
+     * the previous vintage), used to compute the savings of a warm start. May
+     * be null
+     * @return
+     */
+    public Results process(TsData highFreqSeries, TsData aggregationConstraint, GrpSpec spec, TsData previous, GRP.Convergence baseline) {
         int ratio = highFreqSeries.getTsUnit().ratioOf(aggregationConstraint.getTsUnit());
         if (ratio == TsUnit.NO_RATIO || ratio == TsUnit.NO_STRICT_RATIO) {
             throw new TsException(TsException.INCOMPATIBLE_FREQ);
@@ -67,11 +99,29 @@ public class GRPProcessor implements GrowthRatePreservation.Processor {
         int offset = sh.until(sl);
         GRP grp = new GRP(spec, ratio, offset);
         
-        double[] r = grp.process(highFreqSeries.getValues(), naggregationConstraint.getValues());
+        double[] prev = null;
+        if (previous != null) {
+            if (!previous.getTsUnit().equals(sh.getUnit())) {
+                throw new TsException(TsException.INCOMPATIBLE_FREQ);
+            }
+            // previous solution aligned on the high-frequency series
+            prev = new double[highFreqSeries.length()];
+            int del = sh.until(previous.getStart());
+            for (int i = 0; i < prev.length; ++i) {
+                int j = i - del;
+                prev[i] = j >= 0 && j < previous.length() ? previous.getValue(j) : Double.NaN;
+            }
+            if (spec.getAggregationType() == AggregationType.Average) {
+                for (int i = 0; i < prev.length; ++i) {
+                    prev[i] /= ratio;
+                }
+            }
+        }
+        double[] r = grp.process(highFreqSeries.getValues(), naggregationConstraint.getValues(), prev == null ? null : DoubleSeq.of(prev), baseline);
         TsData rslt = TsData.ofInternal(sh, r);
         if (spec.getAggregationType() == AggregationType.Average)
             rslt=rslt.multiply(ratio);
-        return rslt;
+        return new Results(rslt, grp.getConvergence());
     }
     
 }
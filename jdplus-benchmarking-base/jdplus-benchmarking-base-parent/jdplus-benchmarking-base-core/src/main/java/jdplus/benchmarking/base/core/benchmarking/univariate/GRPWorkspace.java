@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.univariate;
+
+/**
+ * Buffers used by one optimization of the GRP problem. They are allocated
+ * once and reused by all the evaluations of the objective function and of its
+ * derivatives.
+ * Not thread-safe: a workspace should be used by one optimization at a time.
+ *
+ * @author palatej
+ */
+final class GRPWorkspace {
+
+    private final double[] p, b;
+    private final GRPBasis basis;
+    private final int nz;
+    private final double[] x, gx, d, e, w, blk;
+    private SymmetricBandMatrix h;
+
+    /**
+     *
+     * @param p Reference series (unbenchmarked)
+     * @param b Low-frequency series
+     * @param basis
+     */
+    GRPWorkspace(double[] p, double[] b, GRPBasis basis) {
+        this.p = p;
+        this.b = b;
+        this.basis = basis;
+        int s = basis.getRatio(), s1 = s - 1;
+        this.nz = basis.isFlow() ? b.length * s1 : (b.length - 1) * s1;
+        this.x = new double[p.length];
+        this.gx = new double[p.length];
+        this.d = new double[s];
+        this.e = new double[s];
+        this.w = new double[s];
+        this.blk = new double[s1 * s1];
+    }
+
+    double[] getReference() {
+        return p;
+    }
+
+    GRPBasis getBasis() {
+        return basis;
+    }
+
+    /**
+     * Number of reduced parameters (z)
+     *
+     * @return
+     */
+    int getParametersCount() {
+        return nz;
+    }
+
+    /**
+     * x = Z*z + xbar, computed in the internal buffer of the workspace. The
+     * result is only valid until the next call
+     *
+     * @param z
+     * @return
+     */
+    double[] x(double[] z) {
+        x(z, x);
+        return x;
+    }
+
+    /**
+     * x = Z*z + xbar
+     *
+     * @param z
+     * @param x Buffer of length p.length
+     */
+    void x(double[] z, double[] x) {
+        basis.zz(z, x);
+        GRP.addXbar(x, b, basis.getRatio(), basis.isFlow());
+    }
+
+    double f(double[] x) {
+        return GRP.f(x, p);
+    }
+
+    /**
+     * Gradient of the reduced problem (Z'g)
+     *
+     * @param x
+     * @param g Buffer of length getParametersCount()
+     */
+    void gradient(double[] x, double[] g) {
+        GRP.mg(x, p, basis, gx, g);
+    }
+
+    /**
+     * Reduced hessian
+     *
+     * @param x
+     * @param H Band matrix (bandwidth given by basis.hessianBandwidth())
+     */
+    void hessian(double[] x, SymmetricBandMatrix H) {
+        GRP.hessian(x, p, basis, H, d, e, w, blk);
+    }
+
+    /**
+     * Reduced hessian, computed in the internal band matrix of the workspace.
+     * The result is only valid until the next call
+     *
+     * @param x
+     * @return
+     */
+    SymmetricBandMatrix hessian(double[] x) {
+        if (h == null) {
+            h = new SymmetricBandMatrix(nz, basis.hessianBandwidth());
+        }
+        hessian(x, h);
+        return h;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.benchmarking.univariate;
+
+/**
+ * Symmetric band matrix with bw sub-diagonals. Only the lower part is stored
+ * (by rows). The Cholesky factorization (A = LL') is done in place.
+ *
+ * @author palatej
+ */
+final class SymmetricBandMatrix {
+
+    private final int n, bw, w;
+    private final double[] data;
+    private boolean factorized;
+
+    SymmetricBandMatrix(int n, int bw) {
+        this.n = n;
+        this.bw = bw;
+        this.w = bw + 1;
+        this.data = new double[n * w];
+    }
+
+    private int index(int r, int c) {
+        return r * w + c - r + bw;
+    }
+
+    int getDim() {
+        return n;
+    }
+
+    int getBandwidth() {
+        return bw;
+    }
+
+    boolean isFactorized() {
+        return factorized;
+    }
+
+    /**
+     * Gets an element of the lower part of the matrix (c &le; r)
+     *
+     * @param r
+     * @param c
+     * @return
+     */
+    double get(int r, int c) {
+        if (r - c > bw) {
+            return 0;
+        }
+        return data[index(r, c)];
+    }
+
+    /**
+     * Sets an element of the lower part of the matrix (0 &le; r-c &le; bw)
+     *
+     * @param r
+     * @param c
+     * @param v
+     */
+    void set(int r, int c, double v) {
+        data[index(r, c)] = v;
+    }
+
+    void add(int r, int c, double v) {
+        data[index(r, c)] += v;
+    }
+
+    void clear() {
+        java.util.Arrays.fill(data, 0);
+        factorized = false;
+    }
+
+    void addDiagonal(double v) {
+        for (int i = 0, j = bw; i < n; ++i, j += w) {
+            data[j] += v;
+        }
+    }
+
+    /**
+     * y = A*x
+     *
+     * @param x
+     * @param y
+     */
+    void product(double[] x, double[] y) {
+        for (int i = 0; i < n; ++i) {
+            y[i] = 0;
+        }
+        for (int r = 0; r < n; ++r) {
+            int c0 = Math.max(0, r - bw);
+            double xr = x[r];
+            double s = 0;
+            for (int c = c0, k = index(r, c0); c < r; ++c, ++k) {
+                double a = data[k];
+                s += a * x[c];
+                y[c] += a * xr;
+            }
+            y[r] += s + data[index(r, r)] * xr;
+        }
+    }
+
+    /**
+     * In place Cholesky factorization
+     *
+     * @return false if the matrix is not positive definite. The content of
+     * the matrix is then undefined
+     */
+    boolean cholesky() {
+        for (int j = 0; j < n; ++j) {
+            int i0 = Math.max(0, j - bw);
+            for (int i = i0; i <= j; ++i) {
+                int k0 = Math.max(i0, i - bw);
+                double s = data[index(j, i)];
+                for (int k = k0, kj = index(j, k0), ki = index(i, k0); k < i; ++k) {
+                    s -= data[kj++] * data[ki++];
+                }
+                if (i == j) {
+                    if (s <= 0 || !Double.isFinite(s)) {
+                        return false;
+                    }
+                    data[index(j, j)] = Math.sqrt(s);
+                } else {
+                    data[index(j, i)] = s / data[index(i, i)];
+                }
+            }
+        }
+        factorized = true;
+        return true;
+    }
+
+    /**
+     * Solves Ax=b, where A is this (factorized) matrix. b is overwritten by x
+     *
+     * @param b
+     */
+    void solve(double[] b) {
+        // L y = b
+        for (int r = 0; r < n; ++r) {
+            int c0 = Math.max(0, r - bw);
+            double s = b[r];
+            for (int c = c0, k = index(r, c0); c < r; ++c) {
+                s -= data[k++] * b[c];
+            }
+            b[r] = s / data[index(r, r)];
+        }
+        // L' x = y
+        for (int r = n - 1; r >= 0; --r) {
+            double xr = b[r] / data[index(r, r)];
+            b[r] = xr;
+            int c0 = Math.max(0, r - bw);
+            for (int c = c0, k = index(r, c0); c < r; ++c) {
+                b[c] -= data[k++] * xr;
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.univariate;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Brent's method (golden section search with parabolic interpolation) for
+ * the minimization of a function of one variable on a bounded interval
+ * [a, b]. The function is only evaluated at interior points of the
+ * interval, at least tol/3 away from its bounds, so that it may be undefined
+ * at the bounds. Non finite values of the function are considered as +inf.
+ * If the function is unimodal, the method converges to its minimum (possibly
+ * close to a bound).
+ *
+ * @author palatej
+ */
+final class BrentMinimizer {
+
+    @lombok.Value
+    static class Result {
+
+        double x, fx;
+        int iterations;
+        boolean converged;
+    }
+
+    private static final double CGOLD = .5 * (3 - Math.sqrt(5)), EPS = Math.sqrt(Math.ulp(1.0));
+
+    private final double tol;
+    private final int maxIter;
+
+    /**
+     *
+     * @param tol Absolute tolerance on the position of the minimum
+     * @param maxIter Maximum number of iterations (one evaluation of the
+     * function by iteration)
+     */
+    BrentMinimizer(double tol, int maxIter) {
+        this.tol = tol;
+        this.maxIter = maxIter;
+    }
+
+    Result minimize(DoubleUnaryOperator fn, double a, double b) {
+        double x = a + CGOLD * (b - a), w = x, v = x;
+        double fx = value(fn, x), fw = fx, fv = fx;
+        double d = 0, e = 0;
+        for (int iter = 0; iter < maxIter; ++iter) {
+            double xm = .5 * (a + b);
+            double tol1 = EPS * Math.abs(x) + tol / 3, tol2 = 2 * tol1;
+            if (Math.abs(x - xm) <= tol2 - .5 * (b - a)) {
+                return new Result(x, fx, iter, true);
+            }
+            boolean golden = true;
+            if (Math.abs(e) > tol1) {
+                // parabolic interpolation through x, w, v
+                double r = (x - w) * (fx - fv);
+                double q = (x - v) * (fx - fw);
+                double p = (x - v) * q - (x - w) * r;
+                q = 2 * (q - r);
+                if (q > 0) {
+                    p = -p;
+                } else {
+                    q = -q;
+                }
+                double etmp = e;
+                e = d;
+                if (Math.abs(p) < Math.abs(.5 * q * etmp) && p > q * (a - x) && p < q * (b - x)) {
+                    d = p / q;
+                    double u = x + d;
+                    if (u - a < tol2 || b - u < tol2) {
+                        d = xm >= x ? tol1 : -tol1;
+                    }
+                    golden = false;
+                }
+            }
+            if (golden) {
+                e = x >= xm ? a - x : b - x;
+                d = CGOLD * e;
+            }
+            double u = Math.abs(d) >= tol1 ? x + d : x + (d > 0 ? tol1 : -tol1);
+            double fu = value(fn, u);
+            if (fu <= fx) {
+                if (u >= x) {
+                    a = x;
+                } else {
+                    b = x;
+                }
+                v = w;
+                fv = fw;
+                w = x;
+                fw = fx;
+                x = u;
+                fx = fu;
+            } else {
+                if (u < x) {
+                    a = u;
+                } else {
+                    b = u;
+                }
+                if (fu <= fw || w == x) {
+                    v = w;
+                    fv = fw;
+                    w = u;
+                    fw = fu;
+                } else if (fu <= fv || v == x || v == w) {
+                    v = u;
+                    fv = fu;
+                }
+            }
+        }
+        return new Result(x, fx, maxIter, false);
+    }
+
+    private static double value(DoubleUnaryOperator fn, double x) {
+        double f = fn.applyAsDouble(x);
+        return Double.isFinite(f) ? f : Double.POSITIVE_INFINITY;
+    }
+}
@@ -16,16 +16,12 @@
  */
 package jdplus.benchmarking.base.core.univariate;
 
-import jdplus.toolkit.base.core.data.transformation.Cumulator;
 import jdplus.toolkit.base.api.data.AggregationType;
 import jdplus.toolkit.base.core.data.DataBlock;
-import jdplus.toolkit.base.core.data.DataBlockIterator;
 import jdplus.toolkit.base.api.data.DoubleSeqCursor;
 import jdplus.toolkit.base.core.data.normalizer.AbsMeanNormalizer;
 import nbbrd.design.BuilderPattern;
 import nbbrd.design.Development;
-import jdplus.toolkit.base.api.timeseries.regression.ITsVariable;
-import jdplus.toolkit.base.core.modelling.regression.Regression;
 import jdplus.toolkit.base.api.timeseries.TsData;
 import jdplus.toolkit.base.api.timeseries.TsDomain;
 import jdplus.toolkit.base.api.timeseries.TsException;
@@ -53,6 +49,7 @@ public class DisaggregationModelBuilder {
     private AggregationType aType = AggregationType.Sum;
     private int observationPosition; // only used in custom interpolation
     private boolean rescale = true;
+    private DisaggregationRegressors shared;
 
     // local information used in the building operation
     double[] hO, hY, hEY;
@@ -101,6 +98,23 @@ public class DisaggregationModelBuilder {
         return this;
     }
 
+    /**
+     * Uses regressors shared with other models. They define the
+     * disaggregation domain and the regression variables (which replace the
+     * current ones). The aggregation type and the rescaling option must be
+     * the same as in the shared regressors
+     *
+     * @param regressors
+     * @return
+     */
+    DisaggregationModelBuilder regressors(@NonNull DisaggregationRegressors regressors) {
+        this.shared = regressors;
+        this.disaggregationDomain = regressors.getDomain();
+        this.regressors.clear();
+        this.regressors.addAll(regressors.getVariables());
+        return this;
+    }
+
     public DisaggregationModel build() {
         clearTmp();
         startDataPreparation();
@@ -130,6 +144,10 @@ public class DisaggregationModelBuilder {
         if (disaggregationDomain == null) {
             throw new IllegalArgumentException("disaggregation domain not set");
         }
+        if (shared != null && (shared.getAggregationType() != aType || shared.isRescale() != rescale
+                || !shared.getDomain().equals(disaggregationDomain) || !shared.getVariables().equals(regressors))) {
+            throw new IllegalArgumentException("incompatible shared regressors");
+        }
         int c = disaggregationDomain.getTsUnit().ratioOf(y.getTsUnit());
         if (c <= 1) {
             throw new TsException(TsException.INCOMPATIBLE_FREQ);
@@ -240,19 +258,14 @@ public class DisaggregationModelBuilder {
         };
         hEDom = TsDomain.of(eStart, np);
         prepareY(lEDom);
+        scale(rescale ? new AbsMeanNormalizer() : null);
         if (!regressors.isEmpty()) {
-            prepareX();
+            prepareX(shared != null ? shared
+                    : new DisaggregationRegressors(disaggregationDomain, regressors, aType, rescale));
         }
-        scale(rescale ? new AbsMeanNormalizer() : null);
     }
 
-    private void prepareX() {
-        ITsVariable[] vars = new ITsVariable[regressors.size()];
-        int vpos = 0;
-        for (Variable var : regressors) {
-            vars[vpos++] = var.getCore();
-        }
-        hX = Regression.matrix(disaggregationDomain, vars);
+    private void prepareX(DisaggregationRegressors xr) {
         int pos = hDom.indexOf(hEDom.getStartPeriod());
         int del = pos % frequencyRatio;
         if (del != 0) {
@@ -260,26 +273,11 @@ public class DisaggregationModelBuilder {
         } else {
             start = 0;
         }
-        if (aType != AggregationType.Average
-                && aType != AggregationType.Sum) {
-            hEX = hX.extract(pos, hEDom.length(), 0, hX.getColumnsCount());
-            hXC = hX;
-        } else {
-            hXC = hX.deepClone();
-            FastMatrix xc;
-            if (del != 0){
-                xc=hXC.dropTopLeft(del, 0);
-                hXC.top(del).get().set(Double.NaN);
-            }else
-                xc=hXC;
-            hEX = hX.extract(pos, hEDom.length(), 0, hX.getColumnsCount()).deepClone();
-            Cumulator cumul = new Cumulator(frequencyRatio);
-            DataBlockIterator cX = hEX.columnsIterator(), cXC=xc.columnsIterator();
-            while (cX.hasNext()) {
-                cumul.transform(cX.next());
-                cumul.transform(cXC.next());
-            }
-        }
+        hX = xr.getHX();
+        xfactor = xr.xfactor();
+        DisaggregationRegressors.Cumulated cumulated = xr.cumulated(frequencyRatio, pos, hEDom.length());
+        hXC = cumulated.getHXC();
+        hEX = cumulated.getHEX();
     }
 
     private void prepareY(TsDomain yDom) {
@@ -329,40 +327,6 @@ public class DisaggregationModelBuilder {
             hO = hY;
             yfactor = 1;
         }
-        if (hX == null) {
-            return;
-        }
-
-        int nx = hX.getColumnsCount();
-        xfactor = new double[nx];
-
-        if (normalizer != null) {
-            DataBlockIterator cols = hX.columnsIterator();
-            int i = 0;
-            while (cols.hasNext()) {
-                double z = normalizer.normalize(cols.next());
-                xfactor[i++] = z;
-            }
-            if (aType == AggregationType.Average
-                    || aType == AggregationType.Sum) {
-                // in the other cases, hEX is a sub-matrix of hX; so it is already
-                // scaled;
-                DataBlockIterator ecols = hEX.columnsIterator();
-                i = 0;
-                while (ecols.hasNext()) {
-                    ecols.next().mul(xfactor[i++]);
-                }
-                DataBlockIterator eccols = hXC.columnsIterator();
-                i = 0;
-                while (eccols.hasNext()) {
-                    eccols.next().mul(xfactor[i++]);
-                }
-            }
-        } else {
-            for (int i = 0; i < xfactor.length; ++i) {
-                xfactor[i] = 1;
-            }
-        }
     }
 
 }
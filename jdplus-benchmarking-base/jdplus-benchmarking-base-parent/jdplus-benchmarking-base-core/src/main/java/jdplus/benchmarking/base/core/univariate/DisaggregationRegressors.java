@@ -0,0 +1,208 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.univariate;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import jdplus.toolkit.base.api.data.AggregationType;
+import jdplus.toolkit.base.api.timeseries.TsDomain;
+import jdplus.toolkit.base.api.timeseries.regression.ITsVariable;
+import jdplus.toolkit.base.api.timeseries.regression.Variable;
+import jdplus.toolkit.base.core.data.DataBlockIterator;
+import jdplus.toolkit.base.core.data.normalizer.AbsMeanNormalizer;
+import jdplus.toolkit.base.core.data.normalizer.DataNormalizer;
+import jdplus.toolkit.base.core.data.transformation.Cumulator;
+import jdplus.toolkit.base.core.math.matrices.FastMatrix;
+import jdplus.toolkit.base.core.modelling.regression.Regression;
+
+/**
+ * Regression variables of a disaggregation model, defined on the
+ * disaggregation domain. The (scaled) matrix of the regressors is computed
+ * once; the cumulated regressors are computed once by shape of the
+ * estimation domain and, when the parameter of the model is fixed, the
+ * smoothed regressors once by pattern of observations. So, the regressors
+ * can be shared by the models of different aggregated series. The matrices
+ * are shared by those models and must not be modified.
+ * Thread-safe.
+ *
+ * @author palatej
+ */
+final class DisaggregationRegressors {
+
+    @lombok.Value
+    private static class Shape {
+
+        int ratio, position, length;
+    }
+
+    @lombok.Value
+    private static class Pattern {
+
+        Shape shape;
+        BitSet observations;
+    }
+
+    @lombok.Value
+    static class Cumulated {
+
+        /**
+         * Cumulated regressors on the disaggregation domain
+         */
+        FastMatrix hXC;
+        /**
+         * Regressors on the estimation domain, transformed to match the
+         * aggregation mode
+         */
+        FastMatrix hEX;
+    }
+
+    @lombok.Getter
+    private final TsDomain domain;
+    @lombok.Getter
+    private final List<Variable> variables;
+    @lombok.Getter
+    private final AggregationType aggregationType;
+    @lombok.Getter
+    private final boolean rescale;
+    // unscaled regressors
+    private final FastMatrix x;
+    @lombok.Getter
+    private final FastMatrix hX;
+    private final double[] xfactor;
+    private final Map<Shape, Cumulated> cumulated = new ConcurrentHashMap<>();
+    private final Map<Pattern, FastMatrix> smoothed = new ConcurrentHashMap<>();
+
+    /**
+     *
+     * @param domain The disaggregation domain
+     * @param variables The regression variables (not empty)
+     * @param aggregationType
+     * @param rescale
+     */
+    DisaggregationRegressors(TsDomain domain, List<Variable> variables, AggregationType aggregationType, boolean rescale) {
+        this.domain = domain;
+        this.variables = List.copyOf(variables);
+        this.aggregationType = aggregationType;
+        this.rescale = rescale;
+        ITsVariable[] vars = new ITsVariable[variables.size()];
+        int vpos = 0;
+        for (Variable var : variables) {
+            vars[vpos++] = var.getCore();
+        }
+        x = Regression.matrix(domain, vars);
+        xfactor = new double[x.getColumnsCount()];
+        if (rescale) {
+            hX = x.deepClone();
+            DataNormalizer normalizer = new AbsMeanNormalizer();
+            DataBlockIterator cols = hX.columnsIterator();
+            int i = 0;
+            while (cols.hasNext()) {
+                xfactor[i++] = normalizer.normalize(cols.next());
+            }
+        } else {
+            hX = x;
+            for (int i = 0; i < xfactor.length; ++i) {
+                xfactor[i] = 1;
+            }
+        }
+    }
+
+    /**
+     * Scaling factors of the regressors
+     *
+     * @return A new array
+     */
+    double[] xfactor() {
+        return xfactor.clone();
+    }
+
+    /**
+     * Cumulated regressors for a given estimation domain
+     *
+     * @param ratio The frequency ratio
+     * @param pos The position of the estimation domain in the disaggregation
+     * domain
+     * @param length The length of the estimation domain
+     * @return
+     */
+    Cumulated cumulated(int ratio, int pos, int length) {
+        return cumulated.computeIfAbsent(new Shape(ratio, pos, length), this::cumulate);
+    }
+
+    /**
+     * Regressors smoothed by the noise model of a disaggregation model, when
+     * the parameter of the noise is fixed. They only depend on the
+     * estimation domain and on the missing observations of the model.
+     *
+     * @param model The model
+     * @param fn Computes the smoothed regressors if they are not yet
+     * available
+     * @return
+     */
+    FastMatrix smoothed(DisaggregationModel model, Supplier<FastMatrix> fn) {
+        double[] hy = model.getHY();
+        BitSet obs = new BitSet(hy.length);
+        for (int i = 0; i < hy.length; ++i) {
+            if (Double.isFinite(hy[i])) {
+                obs.set(i);
+            }
+        }
+        Shape shape = new Shape(model.getFrequencyRatio(), model.getHDom().indexOf(model.getHEDom().getStartPeriod()), model.getHEDom().length());
+        return smoothed.computeIfAbsent(new Pattern(shape, obs), p -> fn.get());
+    }
+
+    private Cumulated cumulate(Shape shape) {
+        int ratio = shape.getRatio(), pos = shape.getPosition(), length = shape.getLength();
+        if (aggregationType != AggregationType.Average
+                && aggregationType != AggregationType.Sum) {
+            // hEX is a sub-matrix of hX; so it is already scaled
+            return new Cumulated(hX, hX.extract(pos, length, 0, hX.getColumnsCount()));
+        }
+        int del = pos % ratio;
+        FastMatrix hXC = x.deepClone();
+        FastMatrix xc;
+        if (del != 0) {
+            xc = hXC.dropTopLeft(del, 0);
+            hXC.top(del).get().set(Double.NaN);
+        } else {
+            xc = hXC;
+        }
+        FastMatrix hEX = x.extract(pos, length, 0, x.getColumnsCount()).deepClone();
+        Cumulator cumul = new Cumulator(ratio);
+        DataBlockIterator cX = hEX.columnsIterator(), cXC = xc.columnsIterator();
+        while (cX.hasNext()) {
+            cumul.transform(cX.next());
+            cumul.transform(cXC.next());
+        }
+        if (rescale) {
+            DataBlockIterator ecols = hEX.columnsIterator();
+            int i = 0;
+            while (ecols.hasNext()) {
+                ecols.next().mul(xfactor[i++]);
+            }
+            DataBlockIterator eccols = hXC.columnsIterator();
+            i = 0;
+            while (eccols.hasNext()) {
+                eccols.next().mul(xfactor[i++]);
+            }
+        }
+        return new Cumulated(hXC, hEX);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.univariate;
+
+/**
+ * Concentrated log-likelihood of a disaggregation model for a grid of
+ * values of the parameter of the residuals model (rho).
+ * The log-likelihoods are expressed in the scale of the original data; they
+ * are NaN for the values of the parameter that are not admissible or for
+ * which the likelihood couldn't be computed.
+ *
+ * @author palatej
+ */
+@lombok.Value
+public class LikelihoodProfile {
+
+    double[] parameters;
+    double[] logLikelihoods;
+
+    /**
+     * Position of the maximum of the profile
+     *
+     * @return -1 if no log-likelihood is available
+     */
+    public int maximumPosition() {
+        int pos = -1;
+        for (int i = 0; i < logLikelihoods.length; ++i) {
+            double ll = logLikelihoods[i];
+            if (Double.isFinite(ll) && (pos < 0 || ll > logLikelihoods[pos])) {
+                pos = i;
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Regular grid in the open interval ]lbound, ubound[
+     *
+     * @param lbound
+     * @param ubound
+     * @param npoints Number of points
+     * @return
+     */
+    public static double[] grid(double lbound, double ubound, int npoints) {
+        double[] grid = new double[npoints];
+        double step = (ubound - lbound) / (npoints + 1);
+        for (int i = 0; i < npoints; ++i) {
+            grid[i] = lbound + (i + 1) * step;
+        }
+        return grid;
+    }
+}
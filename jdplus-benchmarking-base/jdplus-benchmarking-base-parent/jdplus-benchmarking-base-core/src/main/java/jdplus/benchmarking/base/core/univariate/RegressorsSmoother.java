@@ -0,0 +1,194 @@
+/*
+ * Copyright 2024 National Bank of Belgium.
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ *      https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jdplus.benchmarking.base.core.univariate;
+
+import jdplus.toolkit.base.core.data.DataBlock;
+import jdplus.toolkit.base.core.math.matrices.FastMatrix;
+import jdplus.toolkit.base.core.ssf.ISsfDynamics;
+import jdplus.toolkit.base.core.ssf.ISsfLoading;
+import jdplus.toolkit.base.core.ssf.dk.DefaultDiffuseFilteringResults;
+import jdplus.toolkit.base.core.ssf.univariate.ISsf;
+
+/**
+ * Smoothing of the whole matrix of the regressors of a disaggregation model
+ * by the noise model, and correction of the variances of the disaggregated
+ * series for the estimation of the coefficients.
+ * The smoother re-uses the gains of a single run of the (diffuse) filter. The
+ * forward and backward (Durbin-Koopman) recursions are applied to the matrix
+ * of the regressors: at each period, all the columns are updated with the
+ * stored quantities of that period. The diffuse part of the backward
+ * recursion (r0, r1) only concerns the first d periods.
+ *
+ * @author palatej
+ */
+final class RegressorsSmoother {
+
+    private static final double EPS = 1e-9;
+
+    private final ISsf ssf;
+    private final DefaultDiffuseFilteringResults frslts;
+    private final ISsfLoading loading;
+    private final int offset;
+
+    /**
+     *
+     * @param ssf The state space model of the noise (possibly cumulated)
+     * @param frslts The (complete) filtering results of the model
+     * @param loading The loading of the noise
+     * @param offset The position of the noise in the state vector (1 for a
+     * cumulated model, 0 otherwise)
+     */
+    RegressorsSmoother(ISsf ssf, DefaultDiffuseFilteringResults frslts, ISsfLoading loading, int offset) {
+        this.ssf = ssf;
+        this.frslts = frslts;
+        this.loading = loading;
+        this.offset = offset;
+    }
+
+    /**
+     * LX-X, where LX is the smoothed regressors
+     *
+     * @param X The regressors
+     * @param XS The regressors used in the state space model (X or the
+     * cumulated X). They are not modified
+     * @return A new matrix
+     */
+    FastMatrix smooth(FastMatrix X, FastMatrix XS) {
+        int n = X.getRowsCount(), nx = X.getColumnsCount(), dim = ssf.getStateDim();
+        int d = frslts.getEndDiffusePosition();
+        ISsfLoading zl = ssf.loading();
+        ISsfDynamics dyn = ssf.dynamics();
+        FastMatrix LX = FastMatrix.make(n, nx);
+        // prediction errors of the regressors
+        FastMatrix E = FastMatrix.make(n, nx);
+
+        // forward recursion: a(t+1) = T(a(t) + C(t) e(t)/c(t))
+        FastMatrix A = FastMatrix.make(dim, nx);
+        ssf.initialization().a0(A.column(0));
+        for (int j = 1; j < nx; ++j) {
+            A.column(j).copy(A.column(0));
+        }
+        for (int t = 0; t < n; ++t) {
+            boolean diffuse = isDiffuse(t, d), obs = isObserved(t, diffuse);
+            DataBlock C = diffuse ? frslts.Mi(t) : frslts.M(t);
+            double c = diffuse ? frslts.diffuseNorm2(t) : frslts.errorVariance(t);
+            for (int j = 0; j < nx; ++j) {
+                DataBlock a = A.column(j);
+                LX.set(t, j, loading.ZX(t, noise(a)));
+                if (obs) {
+                    double e = XS.get(t, j) - zl.ZX(t, a);
+                    E.set(t, j, e);
+                    a.addAY(e / c, C);
+                }
+                dyn.TX(t, a);
+            }
+        }
+
+        // backward recursion: smoothed states = a(t) + P(t) r0(t-1) + Pi(t) r1(t-1)
+        FastMatrix R0 = FastMatrix.make(dim, nx);
+        FastMatrix R1 = d > 0 ? FastMatrix.make(dim, nx) : null;
+        DataBlock zp = DataBlock.make(dim), zpi = DataBlock.make(dim);
+        for (int t = n - 1; t >= 0; --t) {
+            if (t < n - 1) {
+                for (int j = 0; j < nx; ++j) {
+                    dyn.XT(t, R0.column(j));
+                    if (t < d) {
+                        dyn.XT(t, R1.column(j));
+                    }
+                }
+            }
+            boolean diffuse = isDiffuse(t, d);
+            if (isObserved(t, diffuse)) {
+                DataBlock M = frslts.M(t);
+                double f = frslts.errorVariance(t);
+                if (diffuse) {
+                    // r0 = L0'r0, r1 = Z'e/fi + L0'r1 + L1'r0
+                    DataBlock Mi = frslts.Mi(t);
+                    double fi = frslts.diffuseNorm2(t);
+                    for (int j = 0; j < nx; ++j) {
+                        DataBlock r0 = R0.column(j), r1 = R1.column(j);
+                        double mr0 = M.dot(r0), mir0 = Mi.dot(r0), mir1 = Mi.dot(r1);
+                        zl.XpZd(t, r0, -mir0 / fi);
+                        zl.XpZd(t, r1, (E.get(t, j) - mir1 - mr0) / fi + mir0 * f / (fi * fi));
+                    }
+                } else {
+                    // r0 = Z'e/f + L'r0 (r1 is unchanged)
+                    for (int j = 0; j < nx; ++j) {
+                        DataBlock r0 = R0.column(j);
+                        zl.XpZd(t, r0, (E.get(t, j) - M.dot(r0)) / f);
+                    }
+                }
+            }
+            // loadings of the noise on P(t) r0 and Pi(t) r1 (P, Pi are symmetric)
+            loading.ZM(t, noise(frslts.P(t)), zp);
+            if (t < d) {
+                loading.ZM(t, noise(frslts.Pi(t)), zpi);
+            }
+            for (int j = 0; j < nx; ++j) {
+                double s = zp.dot(R0.column(j));
+                if (t < d) {
+                    s += zpi.dot(R1.column(j));
+                }
+                LX.set(t, j, LX.get(t, j) + s - X.get(t, j));
+            }
+        }
+        return LX;
+    }
+
+    private boolean isDiffuse(int t, int d) {
+        return t < d && frslts.diffuseNorm2(t) > EPS;
+    }
+
+    private boolean isObserved(int t, boolean diffuse) {
+        return !Double.isNaN(frslts.error(t)) && (diffuse || frslts.errorVariance(t) > EPS);
+    }
+
+    private DataBlock noise(DataBlock a) {
+        return offset == 0 ? a : a.drop(offset, 0);
+    }
+
+    private FastMatrix noise(FastMatrix P) {
+        return offset == 0 ? P : P.extract(offset, P.getRowsCount() - offset, 0, P.getColumnsCount());
+    }
+
+    /**
+     * Diagonal of A V A'. The product is computed by pairs of columns of A
+     * (using the symmetry of V), instead of a quadratic form by row.
+     *
+     * @param A n x k matrix (typically LX-X)
+     * @param V k x k symmetric matrix (covariance of the coefficients)
+     * @return The n variances
+     */
+    static double[] varianceCorrection(FastMatrix A, FastMatrix V) {
+        int n = A.getRowsCount(), k = A.getColumnsCount();
+        double[] d = new double[n];
+        double[] c = new double[n];
+        for (int j = 0; j < k; ++j) {
+            DataBlock aj = A.column(j);
+            // c = sum(l<j) 2*V(l,j)*a(l) + V(j,j)*a(j)
+            DataBlock cj = DataBlock.of(c);
+            cj.setAY(V.get(j, j), aj);
+            for (int l = 0; l < j; ++l) {
+                cj.addAY(2 * V.get(l, j), A.column(l));
+            }
+            for (int i = 0; i < n; ++i) {
+                d[i] += c[i] * aj.get(i);
+            }
+        }
+        return d;
+    }
+}
@@ -29,6 +29,7 @@ import jdplus.toolkit.base.core.ssf.dk.SsfFunctionPoint;
 import jdplus.toolkit.base.core.ssf.basic.RegSsf;
 import jdplus.toolkit.base.core.ssf.univariate.DefaultSmoothingResults;
 import jdplus.toolkit.base.core.ssf.univariate.ISsf;
+import jdplus.toolkit.base.core.ssf.univariate.ISsfData;
 import jdplus.toolkit.base.core.ssf.univariate.Ssf;
 import jdplus.toolkit.base.core.ssf.univariate.SsfData;
 import jdplus.toolkit.base.core.ssf.univariate.SsfRegressionModel;
@@ -39,7 +40,11 @@ import jdplus.benchmarking.base.api.univariate.TemporalDisaggregationSpec.Model;
 import jdplus.toolkit.base.api.timeseries.TsPeriod;
 import jdplus.toolkit.base.api.timeseries.TsUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import jdplus.toolkit.base.api.data.DoubleSeq;
 import jdplus.toolkit.base.api.data.DoubleSeqCursor;
 import jdplus.toolkit.base.api.data.Doubles;
@@ -49,11 +54,8 @@ import jdplus.toolkit.base.api.timeseries.regression.Variable;
 import jdplus.toolkit.base.core.data.DataBlockIterator;
 import jdplus.toolkit.base.core.math.matrices.FastMatrix;
 import jdplus.toolkit.base.core.math.functions.ssq.SsqFunctionMinimizer;
-import jdplus.toolkit.base.core.math.matrices.QuadraticForm;
-import jdplus.toolkit.base.core.ssf.DataBlockResults;
 import jdplus.toolkit.base.core.ssf.dk.DefaultDiffuseFilteringResults;
 import jdplus.toolkit.base.core.ssf.dk.DiffuseSmoother;
-import jdplus.toolkit.base.core.ssf.dk.FastDkSmoother;
 import jdplus.toolkit.base.core.ssf.sts.Noise;
 
 /**
@@ -71,8 +73,46 @@ public class TemporalDisaggregationProcessor {
         DiffuseConcentratedLikelihood dll;
         StateComponent noise;
         ISsfLoading loading;
+        int evaluations;
     }
 
+    /**
+     * Output of the fast path, computed from a single run of the filter on
+     * the disaggregation domain
+     */
+    @lombok.Value
+    private static class FastSmoothing {
+
+        /**
+         * Disaggregated series and their standard deviations (scaled data)
+         */
+        double[] values, stdevs;
+        /**
+         * Standardized one-step-ahead forecast errors on the estimation domain
+         * (scaled data)
+         */
+        TsData residuals;
+    }
+
+    @lombok.Value
+    private static class MaximumLikelihood {
+
+        SsfFunctionPoint<Parameter, Ssf> point;
+        ObjectiveFunctionPoint ml;
+    }
+
+    /**
+     * Step used in the numerical derivatives of the Brent optimizer
+     */
+    private static final double DSTEP = 1e-4;
+    /**
+     * Absolute tolerance on the parameter in the Brent optimizer. The
+     * estimation precision of the specification is a tolerance on the
+     * objective function (Levenberg-Marquardt) and is not used here
+     */
+    private static final double BRENT_XTOL = 1e-7;
+    private static final int BRENT_MAXITER = 100;
+
     public TemporalDisaggregationResults process(TsData aggregatedSeries, TsData[] indicators, TemporalDisaggregationSpec spec) {
         aggregatedSeries = aggregatedSeries.select(spec.getEstimationSpan());
         if (indicators == null || indicators.length == 0) {
@@ -84,20 +124,141 @@ public class TemporalDisaggregationProcessor {
             return process(aggregatedSeries, domain, spec);
         }
         DisaggregationModel model = createModel(aggregatedSeries, indicators, spec);
-        return compute(model, spec);
+        return compute(model, spec, null);
+    }
+
+    /**
+     * Disaggregates a set of aggregated series with the same indicators.
+     * The regression variables and the (scaled) regressors are built once.
+     * The cumulated regressors and, when the parameter of the model is fixed,
+     * the regressors smoothed by the noise model (fast algorithm) are
+     * computed once for all the series with the same estimation domain (and
+     * the same missing values). The series are processed in parallel. The
+     * results are identical to those of the separate processing of each
+     * series.
+     *
+     * @param aggregatedSeries
+     * @param indicators
+     * @param spec
+     * @return The results, in the order of the aggregated series
+     */
+    public List<TemporalDisaggregationResults> process(List<TsData> aggregatedSeries, TsData[] indicators, TemporalDisaggregationSpec spec) {
+        TemporalDisaggregationResults[] rslts = new TemporalDisaggregationResults[aggregatedSeries.size()];
+        if (indicators == null || indicators.length == 0) {
+            IntStream.range(0, rslts.length).parallel().forEach(i -> rslts[i] = process(aggregatedSeries.get(i), indicators, spec));
+            return Arrays.asList(rslts);
+        }
+        TsDomain hdomain = domain(indicators);
+        DisaggregationRegressors regressors = new DisaggregationRegressors(hdomain, variables(hdomain, indicators, spec),
+                spec.getAggregationType(), spec.isRescale());
+        IntStream.range(0, rslts.length).parallel().forEach(i -> {
+            DisaggregationModel model = new DisaggregationModelBuilder(aggregatedSeries.get(i).select(spec.getEstimationSpan()))
+                    .regressors(regressors)
+                    .aggregationType(spec.getAggregationType())
+                    .rescale(spec.isRescale())
+                    .build();
+            rslts[i] = compute(model, spec, regressors);
+        });
+        return Arrays.asList(rslts);
     }
 
     public TemporalDisaggregationResults process(TsData aggregatedSeries, TsDomain domain, TemporalDisaggregationSpec spec) {
         DisaggregationModel model = createModel(aggregatedSeries, domain, spec);
-        return compute(model, spec);
+        return compute(model, spec, null);
+    }
+
+    /**
+     * Profile of the concentrated likelihood in the parameter of the
+     * residuals model (Chow-Lin, Litterman), on a regular grid of its
+     * admissible values. See likelihoodProfile(DisaggregationModel, ...)
+     *
+     * @param aggregatedSeries
+     * @param indicators
+     * @param spec
+     * @param npoints Number of points of the grid
+     * @return null if the residuals model has no parameter
+     */
+    public LikelihoodProfile likelihoodProfile(TsData aggregatedSeries, TsData[] indicators, TemporalDisaggregationSpec spec, int npoints) {
+        if (!spec.getResidualsModel().hasParameter()) {
+            return null;
+        }
+        aggregatedSeries = aggregatedSeries.select(spec.getEstimationSpan());
+        DisaggregationModel model;
+        if (indicators == null || indicators.length == 0) {
+            int hfreq = spec.getDefaultPeriod(), lfreq = aggregatedSeries.getAnnualFrequency();
+            if (lfreq >= hfreq) {
+                return null;
+            }
+            TsDomain domain = TsDomain.of(TsPeriod.of(TsUnit.ofAnnualFrequency(hfreq), aggregatedSeries.getDomain().getStartPeriod().start()), aggregatedSeries.length() * hfreq / lfreq);
+            model = createModel(aggregatedSeries, domain, spec);
+        } else {
+            model = createModel(aggregatedSeries, indicators, spec);
+        }
+        Double lbound = spec.getTruncatedParameter();
+        return likelihoodProfile(model, spec, LikelihoodProfile.grid(lbound == null ? -1 : lbound, 1, npoints));
+    }
+
+    /**
+     * Profile of the concentrated likelihood in the parameter of the
+     * residuals model (Chow-Lin, Litterman). The likelihood of each value of
+     * the grid is computed by its own evaluation of the likelihood function
+     * of the model (the one used in the estimation of the parameter), in
+     * parallel.
+     *
+     * @param model
+     * @param spec
+     * @param grid The values of the parameter
+     * @return null if the residuals model has no parameter
+     */
+    public LikelihoodProfile likelihoodProfile(DisaggregationModel model, TemporalDisaggregationSpec spec, double[] grid) {
+        if (!spec.getResidualsModel().hasParameter()) {
+            return null;
+        }
+        double yfac = model.getYfactor();
+        if (spec.getAggregationType() == AggregationType.Average) {
+            yfac /= model.getFrequencyRatio();
+        }
+        double[] xfac = model.getXfactor();
+        double yfactor = yfac;
+        Double lbound = spec.getTruncatedParameter();
+        Mapping mapping = new Mapping(lbound == null ? -1 : lbound);
+        double[] ll = new double[grid.length];
+        IntStream.range(0, grid.length).parallel().forEach(i -> {
+            DoubleSeq p = Doubles.of(grid[i]);
+            if (!mapping.checkBoundaries(p)) {
+                ll[i] = Double.NaN;
+                return;
+            }
+            SsfFunction<Parameter, Ssf> fn = ssfFunction(model, spec);
+            try {
+                SsfFunctionPoint<Parameter, Ssf> pt = (SsfFunctionPoint<Parameter, Ssf>) fn.evaluate(p);
+                ll[i] = pt.getLikelihood().rescale(yfactor, xfac).logLikelihood();
+            } catch (RuntimeException err) {
+                ll[i] = Double.NaN;
+            }
+        });
+        return new LikelihoodProfile(grid.clone(), ll);
     }
 
     private DisaggregationModel createModel(TsData aggregatedSeries, TsData[] indicators, TemporalDisaggregationSpec spec) {
+        TsDomain hdomain = domain(indicators);
+        return new DisaggregationModelBuilder(aggregatedSeries)
+                .disaggregationDomain(hdomain)
+                .aggregationType(spec.getAggregationType())
+                .addX(variables(hdomain, indicators, spec))
+                .rescale(spec.isRescale())
+                .build();
+    }
+
+    private TsDomain domain(TsData[] indicators) {
         TsDomain hdomain = indicators[0].getDomain();
         for (int i = 1; i < indicators.length; ++i) {
             hdomain = hdomain.intersection(indicators[i].getDomain());
         }
+        return hdomain;
+    }
 
+    private List<Variable> variables(TsDomain hdomain, TsData[] indicators, TemporalDisaggregationSpec spec) {
         List<Variable> vars = new ArrayList<>();
         if (spec.isConstant()) {
             vars.add(Variable.variable("C", Constant.C));
@@ -108,12 +269,7 @@ public class TemporalDisaggregationProcessor {
         for (int i = 0; i < indicators.length; ++i) {
             vars.add(Variable.variable("var" + (i + 1), new UserVariable(null, indicators[i])));
         }
-        return new DisaggregationModelBuilder(aggregatedSeries)
-                .disaggregationDomain(hdomain)
-                .aggregationType(spec.getAggregationType())
-                .addX(vars)
-                .rescale(spec.isRescale())
-                .build();
+        return vars;
     }
 
     private DisaggregationModel createModel(TsData aggregatedSeries, TsDomain hdomain, TemporalDisaggregationSpec spec) {
@@ -132,26 +288,32 @@ public class TemporalDisaggregationProcessor {
                 .build();
     }
 
-    private TemporalDisaggregationResults compute(DisaggregationModel model, TemporalDisaggregationSpec spec) {
+    /**
+     *
+     * @param model
+     * @param spec
+     * @param regressors Regressors shared with other models (possibly null)
+     * @return
+     */
+    private TemporalDisaggregationResults compute(DisaggregationModel model, TemporalDisaggregationSpec spec, DisaggregationRegressors regressors) {
+        // the smoothed regressors can only be shared when the noise model is fixed
+        DisaggregationRegressors smoothing = spec.isParameterEstimation() ? null : regressors;
         return switch (spec.getAggregationType()) {
             case Sum, Average ->
                 spec.isFast()
-                ? disaggregate2(model, spec) : disaggregate(model, spec);
+                ? disaggregate2(model, spec, smoothing) : disaggregate(model, spec);
             case First, Last, UserDefined ->
                 spec.isFast()
-                ? interpolate2(model, spec) : interpolate(model, spec);
+                ? interpolate2(model, spec, smoothing) : interpolate(model, spec);
             default ->
                 null;
         };
     }
 
-    private TemporalDisaggregationResults interpolate2(DisaggregationModel model, TemporalDisaggregationSpec spec) {
+    private TemporalDisaggregationResults interpolate2(DisaggregationModel model, TemporalDisaggregationSpec spec, DisaggregationRegressors smoothing) {
         TemporalDisaggregationEstimation eim = estimateInterpolationModel(model, spec);
-        TsDomain hDom = model.getHDom();
-        double[] yh = new double[hDom.length()];
-        double[] eyh = new double[hDom.length()];
-
-        interpolateEstimation(model, eim, yh, eyh);
+        AtomicInteger passes = new AtomicInteger();
+        FastSmoothing fs = interpolateEstimation(model, spec, eim, smoothing, passes);
 
         double yfac = model.getYfactor();
         double[] xfac = model.getXfactor();
@@ -161,8 +323,7 @@ public class TemporalDisaggregationProcessor {
         if (regeffect != null && yfac != 1) {
             regeffect = regeffect.divide(yfac);
         }
-        Ssf ssf = Ssf.of(eim.getNoise(), eim.getLoading());
-        TsData res = hresiduals(model, dll.coefficients(), ssf);
+        TsData res = fs.getResiduals();
         if (yfac != 1) {
             res = res.divide(yfac);
         }
@@ -174,11 +335,13 @@ public class TemporalDisaggregationProcessor {
                 .disaggregationDomain(model.getHDom())
                 .indicators(model.getIndicators())
                 .maximum(eim.getMl())
+                .likelihoodEvaluations(eim.getEvaluations())
+                .filterPasses(passes.get())
                 .likelihood(dll)
                 .hyperParametersCount(nparams)
                 .stats(dll.stats(0, nparams))
-                .disaggregatedSeries(TsData.ofInternal(model.getHDom().getStartPeriod(), yh))
-                .stdevDisaggregatedSeries(TsData.ofInternal(model.getHDom().getStartPeriod(), eyh))
+                .disaggregatedSeries(TsData.ofInternal(model.getHDom().getStartPeriod(), fs.getValues()))
+                .stdevDisaggregatedSeries(TsData.ofInternal(model.getHDom().getStartPeriod(), fs.getStdevs()))
                 .regressionEffects(regeffect)
                 .residualsDiagnostics(diagnostic(res))
                 .build();
@@ -191,19 +354,8 @@ public class TemporalDisaggregationProcessor {
 
         ISsf rssf = RegSsf.ssf(nmodel, model.getHX());
         SsfData ssfdata = new SsfData(model.getHY());
-        DefaultSmoothingResults srslts;
-        srslts = switch (spec.getAlgorithm()) {
-            case Augmented ->
-                AkfToolkit.smooth(rssf, ssfdata, true, false, false);
-            case SqrtDiffuse ->
-                DkToolkit.sqrtSmooth(rssf, ssfdata, true, false);
-            case Augmented_NoCollapsing ->
-                AkfToolkit.smooth(rssf, ssfdata, true, false, true);
-            case Augmented_Robust ->
-                AkfToolkit.robustSmooth(rssf, ssfdata, true, false).getSmoothing();
-            default ->
-                DkToolkit.smooth(rssf, ssfdata, true, false);
-        };
+        AtomicInteger passes = new AtomicInteger();
+        DefaultSmoothingResults srslts = smooth(rssf, ssfdata, spec, passes);
         double[] Y = model.getHY();
         double[] O = model.getHO();
         double[] yh = new double[Y.length];
@@ -225,7 +377,7 @@ public class TemporalDisaggregationProcessor {
         if (regeffect != null) {
             regeffect = regeffect.multiply(f);
         }
-        TsData res = hresiduals(model, dll.coefficients(), nmodel);
+        TsData res = hresiduals(model, dll.coefficients(), nmodel, passes);
         res = res.multiply(f);
         res = res.aggregate(model.getLDom().getTsUnit(), AggregationType.Sum, false).cleanExtremities();
         dll = dll.rescale(model.getYfactor(), model.getXfactor());
@@ -235,6 +387,8 @@ public class TemporalDisaggregationProcessor {
                 .disaggregationDomain(model.getHDom())
                 .indicators(model.getIndicators())
                 .maximum(edm.getMl())
+                .likelihoodEvaluations(edm.getEvaluations())
+                .filterPasses(passes.get())
                 .likelihood(dll)
                 .hyperParametersCount(nparams)
                 .stats(dll.stats(0, nparams))
@@ -259,35 +413,23 @@ public class TemporalDisaggregationProcessor {
                     null,
                     DkToolkit.concentratedLikelihoodComputer(true, false, true).compute(ssfmodel),
                     ncmp,
-                    nloading
+                    nloading,
+                    0
             );
         } else {
-            SsfFunction<Parameter, Ssf> fn = ssfFunction(model, spec);
-            SsqFunctionMinimizer fmin = LevenbergMarquardtMinimizer
-                    .builder()
-                    .functionPrecision(spec.getEstimationPrecision())
-                    .build();
-            double start = spec.getParameter().getType() == ParameterType.Undefined
-                    ? .9 : spec.getParameter().getValue();
-            fmin.minimize(fn.ssqEvaluate(Doubles.of(start)));
-            SsfFunctionPoint<Parameter, Ssf> rslt = (SsfFunctionPoint<Parameter, Ssf>) fmin.getResult();
+            AtomicInteger evaluations = new AtomicInteger();
+            SsfFunction<Parameter, Ssf> fn = ssfFunction(model, spec, evaluations);
+            MaximumLikelihood max = maximumLikelihood(fn, spec, true);
+            SsfFunctionPoint<Parameter, Ssf> rslt = max.getPoint();
             DoubleSeq p = rslt.getParameters();
             DiffuseConcentratedLikelihood dll = rslt.getLikelihood();
-            double c = -.5 * (dll.degreesOfFreedom() - 1) / rslt.getValue();
-            double[] grad = fmin.gradientAtMinimum().toArray();
-            for (int i = 0; i < grad.length; ++i) {
-                grad[i] *= c;
-            }
-            FastMatrix hessian = fmin.curvatureAtMinimum().times(c);
-            ObjectiveFunctionPoint ml = new ObjectiveFunctionPoint(rslt.getLikelihood().logLikelihood(),
-                    p.toArray(), grad, hessian);
             if (spec.getResidualsModel() == Model.Ar1) {
                 ncmp = AR1.of(p.get(0), 1, spec.isZeroInitialization());
             } else {
                 ncmp = Arima_1_1_0.of(p.get(0), 1, spec.isZeroInitialization());
             }
             return new TemporalDisaggregationEstimation(
-                    ml, dll, ncmp, nloading
+                    max.getMl(), dll, ncmp, nloading, evaluations.get()
             );
         }
     }
@@ -305,195 +447,362 @@ public class TemporalDisaggregationProcessor {
                     null,
                     DkToolkit.concentratedLikelihoodComputer(true, false, true).compute(ssfmodel),
                     ncmp,
-                    nloading
+                    nloading,
+                    0
             );
         } else {
-            SsfFunction<Parameter, Ssf> fn = ssfFunction(model, spec);
-            SsqFunctionMinimizer fmin = LevenbergMarquardtMinimizer
-                    .builder()
-                    .build();
-            double start = spec.getParameter().getType() == ParameterType.Undefined
-                    ? .9 : spec.getParameter().getValue();
-            fmin.minimize(fn.ssqEvaluate(Doubles.of(start)));
-            SsfFunctionPoint<Parameter, Ssf> rslt = (SsfFunctionPoint<Parameter, Ssf>) fmin.getResult();
-            DoubleSeq p = rslt.getParameters();
+            AtomicInteger evaluations = new AtomicInteger();
+            SsfFunction<Parameter, Ssf> fn = ssfFunction(model, spec, evaluations);
+            MaximumLikelihood max = maximumLikelihood(fn, spec, false);
+            SsfFunctionPoint<Parameter, Ssf> rslt = max.getPoint();
             DiffuseConcentratedLikelihood dll = rslt.getLikelihood();
-            double c = -.5 * (dll.degreesOfFreedom() - 1) / rslt.getValue();
-            double[] grad = fmin.gradientAtMinimum().toArray();
-            for (int i = 0; i < grad.length; ++i) {
-                grad[i] *= c;
-            }
-            FastMatrix hessian = fmin.curvatureAtMinimum().times(c);
-            ObjectiveFunctionPoint ml = new ObjectiveFunctionPoint(rslt.getLikelihood().logLikelihood(),
-                    p.toArray(), grad, hessian);
             ncmp = rslt.getSsf().asComponent();
             return new TemporalDisaggregationEstimation(
-                    ml, dll, ncmp, nloading
+                    max.getMl(), dll, ncmp, nloading, evaluations.get()
             );
         }
     }
 
-    private void interpolateEstimation(DisaggregationModel model, TemporalDisaggregationEstimation estimation, final double[] z, final double[] e) {
+    /**
+     * Maximizes the likelihood of a model with one parameter
+     *
+     * @param fn The likelihood function
+     * @param spec
+     * @param precision Uses the precision of the specification in the
+     * Levenberg-Marquardt optimizer
+     * @return
+     */
+    private MaximumLikelihood maximumLikelihood(SsfFunction<Parameter, Ssf> fn, TemporalDisaggregationSpec spec, boolean precision) {
+        if (spec.getOptimizer() == TemporalDisaggregationSpec.Optimizer.Brent) {
+            return brent(fn, spec);
+        }
+        SsqFunctionMinimizer fmin = precision
+                ? LevenbergMarquardtMinimizer
+                        .builder()
+                        .functionPrecision(spec.getEstimationPrecision())
+                        .build()
+                : LevenbergMarquardtMinimizer
+                        .builder()
+                        .build();
+        double start = spec.getParameter().getType() == ParameterType.Undefined
+                ? .9 : spec.getParameter().getValue();
+        fmin.minimize(fn.ssqEvaluate(Doubles.of(start)));
+        SsfFunctionPoint<Parameter, Ssf> rslt = (SsfFunctionPoint<Parameter, Ssf>) fmin.getResult();
+        DoubleSeq p = rslt.getParameters();
+        DiffuseConcentratedLikelihood dll = rslt.getLikelihood();
+        double c = -.5 * (dll.degreesOfFreedom() - 1) / rslt.getValue();
+        double[] grad = fmin.gradientAtMinimum().toArray();
+        for (int i = 0; i < grad.length; ++i) {
+            grad[i] *= c;
+        }
+        FastMatrix hessian = fmin.curvatureAtMinimum().times(c);
+        ObjectiveFunctionPoint ml = new ObjectiveFunctionPoint(rslt.getLikelihood().logLikelihood(),
+                p.toArray(), grad, hessian);
+        return new MaximumLikelihood(rslt, ml);
+    }
+
+    /**
+     * Brent's method on the admissible interval of the parameter, ]-1, 1[ or
+     * [truncated, 1[. The objective function is the one minimized by the
+     * Levenberg-Marquardt optimizer. When the solution lies at the
+     * truncation bound (up to the tolerance on the parameter), the bound
+     * itself is taken. The derivatives at the solution are computed by
+     * (second) differences with a dedicated step and scaled as in the
+     * Levenberg-Marquardt case.
+     *
+     * @param fn
+     * @param spec
+     * @return
+     */
+    private MaximumLikelihood brent(SsfFunction<Parameter, Ssf> fn, TemporalDisaggregationSpec spec) {
+        Double truncated = spec.getTruncatedParameter();
+        double lbound = truncated == null ? -1 : truncated;
+        BrentMinimizer brent = new BrentMinimizer(BRENT_XTOL, BRENT_MAXITER);
+        // keeps the point of the solution (the best evaluated point)
+        List<SsfFunctionPoint<Parameter, Ssf>> best = new ArrayList<>(1);
+        BrentMinimizer.Result rslt = brent.minimize(x -> {
+            SsfFunctionPoint<Parameter, Ssf> cur = point(fn, x);
+            double v = cur.getValue();
+            if (best.isEmpty()) {
+                best.add(cur);
+            } else if (v <= best.get(0).getValue()) {
+                best.set(0, cur);
+            }
+            return v;
+        }, lbound, 1);
+        double x = rslt.getX();
+        SsfFunctionPoint<Parameter, Ssf> pt = best.get(0);
+        if (pt.getParameters().get(0) != x) {
+            pt = point(fn, x);
+        }
+        double fx = pt.getValue();
+        if (truncated != null && x - lbound <= 2 * BRENT_XTOL) {
+            SsfFunctionPoint<Parameter, Ssf> bpt = point(fn, lbound);
+            if (bpt.getValue() <= fx) {
+                x = lbound;
+                pt = bpt;
+                fx = bpt.getValue();
+            }
+        }
+        // numerical derivatives (one-sided near the bounds)
+        double h = DSTEP, f1, f2, g, c2;
+        if (x + h >= 1) {
+            f1 = point(fn, x - h).getValue();
+            f2 = point(fn, x - 2 * h).getValue();
+            g = (fx - f1) / h;
+            c2 = (fx - 2 * f1 + f2) / (h * h);
+        } else if (x - h < lbound || (truncated == null && x - h <= -1)) {
+            f1 = point(fn, x + h).getValue();
+            f2 = point(fn, x + 2 * h).getValue();
+            g = (f1 - fx) / h;
+            c2 = (f2 - 2 * f1 + fx) / (h * h);
+        } else {
+            double fp = point(fn, x + h).getValue(), fm = point(fn, x - h).getValue();
+            g = (fp - fm) / (2 * h);
+            c2 = (fp - 2 * fx + fm) / (h * h);
+        }
+        DiffuseConcentratedLikelihood dll = pt.getLikelihood();
+        double c = -.5 * (dll.degreesOfFreedom() - 1) / fx;
+        FastMatrix hessian = FastMatrix.make(1, 1);
+        hessian.set(0, 0, c * c2);
+        ObjectiveFunctionPoint ml = new ObjectiveFunctionPoint(dll.logLikelihood(),
+                new double[]{x}, new double[]{c * g}, hessian);
+        return new MaximumLikelihood(pt, ml);
+    }
+
+    private static SsfFunctionPoint<Parameter, Ssf> point(SsfFunction<Parameter, Ssf> fn, double x) {
+        return (SsfFunctionPoint<Parameter, Ssf>) fn.evaluate(Doubles.of(x));
+    }
+
+    /**
+     * Fast interpolation of the estimated model. The filter is applied once,
+     * on y-Xb; its results are used for the smoothing of y-Xb, for the
+     * smoothing of the regressors and for the residuals.
+     *
+     * @param model
+     * @param spec
+     * @param estimation
+     * @param smoothing Shared smoothed regressors (null if they can't be
+     * shared)
+     * @param passes Counts the runs of the filter
+     * @return
+     */
+    private FastSmoothing interpolateEstimation(DisaggregationModel model, TemporalDisaggregationSpec spec, TemporalDisaggregationEstimation estimation, DisaggregationRegressors smoothing, AtomicInteger passes) {
         double[] hy = model.getHY();
         FastMatrix hX = model.getHX();
         double[] O = model.getHO();
         double f = 1 / model.getYfactor();
+        double[] z = new double[hy.length], e = new double[hy.length];
 
         StateComponent ncmp = estimation.getNoise();
         ISsfLoading nloading = estimation.getLoading();
         Ssf ssf = Ssf.of(ncmp, nloading);
-        DiffuseSmoother smoother = DiffuseSmoother.builder(ssf)
-                .calcVariance(true)
-                .rescaleVariance(false)
-                .build();
-        DefaultSmoothingResults srslts = DefaultSmoothingResults.full();
-        srslts.prepare(ssf.getStateDim(), 0, hy.length);
         DiffuseConcentratedLikelihood dll = estimation.getDll();
         double sigma = f * Math.sqrt(dll.sigma2());
-        if (hX == null || hX.isEmpty()) {
-            SsfData data = new SsfData(hy);
-            DefaultDiffuseFilteringResults frslts = DkToolkit.filter(ssf, data, true);
-            smoother.process(hy.length, frslts, srslts);
-            for (int i = 0; i < z.length; ++i) {
-                if (Double.isFinite(hy[i])) {
-                    z[i] = O[i];
-                    e[i] = 0;
-                } else {
-                    z[i] = f * nloading.ZX(i, srslts.a(i));
-                    double v = nloading.ZVZ(i, srslts.P(i));
-                    e[i] = v <= 0 ? 0 : sigma * Math.sqrt(v);
-                }
-            }
-        } else {
-            // Xb
-            DoubleSeq b = dll.coefficients();
-            DataBlock Xb = DataBlock.make(hX.getRowsCount());
-            DoubleSeqCursor bcur = b.cursor();
-            DataBlockIterator xcols = hX.columnsIterator();
-            double c = bcur.getAndNext();
-            Xb.setAY(c, xcols.next());
-            while (xcols.hasNext()) {
-                Xb.addAY(bcur.getAndNext(), xcols.next());
-            }
-            // u=y-Xb
-            DataBlock u = DataBlock.copyOf(hy);
+        boolean noregs = hX == null || hX.isEmpty();
+        // Xb
+        DataBlock Xb = noregs ? null : regressionEffect(hX, dll.coefficients());
+        // u=y-Xb
+        DataBlock u = DataBlock.copyOf(hy);
+        if (Xb != null) {
             u.sub(Xb);
+        }
+        //L(y-Xb)
+        DefaultDiffuseFilteringResults frslts = filter(ssf, new SsfData(u), true, passes);
+        DefaultSmoothingResults srslts = smooth(ssf, frslts, hy.length);
 
-            //L(y-Xb)
-            SsfData data = new SsfData(u);
-            DefaultDiffuseFilteringResults frslts = DkToolkit.filter(ssf, data, true);
-            smoother.process(hy.length, frslts, srslts);
-
-            // Z = L(y-Xb) + Xb  
-            // V = V(L(y-Xb)) + (LX-X) V(B) (LX-X)'
-            FastMatrix Vb = dll.unscaledCovariance();
-            FastMatrix LhX = FastMatrix.make(hX.getRowsCount(), hX.getColumnsCount());
-            DataBlockIterator lxcols = LhX.columnsIterator();
-            xcols.reset();
-            FastDkSmoother fsmoother = new FastDkSmoother(ssf, frslts);
-            while (xcols.hasNext()) {
-                fsmoother.smooth(xcols.next());
-                DataBlockResults ss = fsmoother.smoothedStates();
-                lxcols.next().set(i -> nloading.ZX(i, ss.datablock(i)));
-            }
-
-            LhX.sub(hX);
-            for (int i = 0; i < z.length; ++i) {
-                if (Double.isFinite(hy[i])) {
-                    z[i] = O[i];
-                    e[i] = 0;
+        // Z = L(y-Xb) + Xb  
+        // V = V(L(y-Xb)) + (LX-X) V(B) (LX-X)'
+        double[] vx = noregs ? null : varianceCorrection(model, dll, smoothing,
+                () -> new RegressorsSmoother(ssf, frslts, nloading, 0).smooth(hX, hX));
+        for (int i = 0; i < z.length; ++i) {
+            if (Double.isFinite(hy[i])) {
+                z[i] = O[i];
+                e[i] = 0;
+            } else {
+                double v = nloading.ZVZ(i, srslts.P(i));
+                if (noregs) {
+                    z[i] = f * nloading.ZX(i, srslts.a(i));
                 } else {
                     z[i] = f * (nloading.ZX(i, srslts.a(i)) + Xb.get(i));
-                    double v = nloading.ZVZ(i, srslts.P(i));
-                    v += QuadraticForm.apply(Vb, LhX.row(i));
-                    e[i] = v <= 0 ? 0 : sigma * Math.sqrt(v);
+                    v += vx[i];
                 }
+                e[i] = v <= 0 ? 0 : sigma * Math.sqrt(v);
             }
         }
+        return new FastSmoothing(z, e, residuals(model, spec, dll.coefficients(), ssf, frslts, passes));
     }
 
-    private void disaggregateEstimation(DisaggregationModel model, TemporalDisaggregationEstimation estimation, final double[] z, final double[] e) {
+    /**
+     * Fast disaggregation of the estimated model. The filter is applied once,
+     * on y-XCb; its results are used for the smoothing of y-XCb, for the
+     * smoothing of the cumulated regressors and for the residuals.
+     *
+     * @param model
+     * @param spec
+     * @param estimation
+     * @param smoothing Shared smoothed regressors (null if they can't be
+     * shared)
+     * @param passes Counts the runs of the filter
+     * @return
+     */
+    private FastSmoothing disaggregateEstimation(DisaggregationModel model, TemporalDisaggregationSpec spec, TemporalDisaggregationEstimation estimation, DisaggregationRegressors smoothing, AtomicInteger passes) {
         double[] hy = model.getHY();
         FastMatrix hX = model.getHX();
         FastMatrix hXC = model.getHXC();
+        double[] z = new double[hy.length], e = new double[hy.length];
 
         StateComponent ncmp = estimation.getNoise();
         ISsfLoading nloading = estimation.getLoading();
         Ssf cssf = Ssf.of(SsfCumulator.of(ncmp, nloading, model.getFrequencyRatio(), model.getStart()),
                 SsfCumulator.defaultLoading(nloading, model.getFrequencyRatio(), model.getStart()));
-        DiffuseSmoother smoother = DiffuseSmoother.builder(cssf)
-                .calcVariance(true)
-                .rescaleVariance(false)
-                .build();
-        DefaultSmoothingResults srslts = DefaultSmoothingResults.full();
-        srslts.prepare(cssf.getStateDim(), 0, hy.length);
         DiffuseConcentratedLikelihood dll = estimation.getDll();
         double sigma = Math.sqrt(dll.sigma2());
         int dim = ncmp.dim();
-        if (hX == null || hX.isEmpty()) {
-            SsfData data = new SsfData(hy);
-            DefaultDiffuseFilteringResults frslts = DkToolkit.filter(cssf, data, true);
-            smoother.process(hy.length, frslts, srslts);
-            for (int i = 0; i < z.length; ++i) {
-                z[i] = nloading.ZX(i, srslts.a(i).drop(1, 0));
-                double v = nloading.ZVZ(i, srslts.P(i).extract(1, dim, 1, dim));
-                e[i] = v <= 0 ? 0 : sigma * Math.sqrt(v);
-            }
-        } else {
-            // Xb
-            DoubleSeq b = dll.coefficients();
-            DataBlock Xb = DataBlock.make(hXC.getRowsCount());
-            DataBlock Xbc = DataBlock.make(hXC.getRowsCount());
-            DoubleSeqCursor bcur = b.cursor();
-            DataBlockIterator xcols = hX.columnsIterator();
-            DataBlockIterator xccols = hXC.columnsIterator();
-            double c = bcur.getAndNext();
-            Xb.setAY(c, xcols.next());
-            Xbc.setAY(c, xccols.next());
-            while (xcols.hasNext()) {
-                c = bcur.getAndNext();
-                Xb.addAY(c, xcols.next());
-                Xbc.addAY(c, xccols.next());
-            }
-            // u=y-Xb
-            DataBlock u = DataBlock.copyOf(hy);
+        boolean noregs = hX == null || hX.isEmpty();
+        // Xb, XCb
+        DataBlock Xb = noregs ? null : regressionEffect(hX, dll.coefficients());
+        DataBlock Xbc = noregs ? null : regressionEffect(hXC, dll.coefficients());
+        // u=y-XCb
+        DataBlock u = DataBlock.copyOf(hy);
+        if (Xbc != null) {
             u.sub(Xbc);
+        }
+        //L(y-XCb)
+        DefaultDiffuseFilteringResults frslts = filter(cssf, new SsfData(u), true, passes);
+        DefaultSmoothingResults srslts = smooth(cssf, frslts, hy.length);
 
-            //L(y-Xb)
-            SsfData data = new SsfData(u);
-            DefaultDiffuseFilteringResults frslts = DkToolkit.filter(cssf, data, true);
-            smoother.process(hy.length, frslts, srslts);
-
-            // Z = L(y-Xb) + Xb  
-            // V = V(L(y-Xb)) + (LX-X) V(B) (LX-X)'
-            FastMatrix Vb = dll.unscaledCovariance();
-            FastMatrix LhX = FastMatrix.make(hX.getRowsCount(), hX.getColumnsCount());
-            DataBlockIterator lxcols = LhX.columnsIterator();
-            xccols.reset();
-            while (xccols.hasNext()) {
-                FastDkSmoother fsmoother = new FastDkSmoother(cssf, frslts);
-                fsmoother.smooth(xccols.next());
-                DataBlockResults ss = fsmoother.smoothedStates();
-                lxcols.next().set(i -> nloading.ZX(i, ss.datablock(i).drop(1, 0)));
+        // Z = L(y-XCb) + Xb  
+        // V = V(L(y-XCb)) + (LX-X) V(B) (LX-X)'
+        double[] vx = noregs ? null : varianceCorrection(model, dll, smoothing,
+                () -> new RegressorsSmoother(cssf, frslts, nloading, 1).smooth(hX, hXC));
+        for (int i = 0; i < z.length; ++i) {
+            z[i] = nloading.ZX(i, srslts.a(i).drop(1, 0));
+            double v = nloading.ZVZ(i, srslts.P(i).extract(1, dim, 1, dim));
+            if (!noregs) {
+                z[i] += Xb.get(i);
+                v += vx[i];
             }
+            e[i] = v <= 0 ? 0 : sigma * Math.sqrt(v);
+        }
+        return new FastSmoothing(z, e, residuals(model, spec, dll.coefficients(), cssf, frslts, passes));
+    }
 
-            LhX.sub(hX);
-            for (int i = 0; i < z.length; ++i) {
-                z[i] = nloading.ZX(i, srslts.a(i).drop(1, 0)) + Xb.get(i);
-                double v = nloading.ZVZ(i, srslts.P(i).extract(1, dim, 1, dim));
-                v += QuadraticForm.apply(Vb, LhX.row(i));
-                e[i] = v <= 0 ? 0 : sigma * Math.sqrt(v);
-            }
+    private DataBlock regressionEffect(FastMatrix X, DoubleSeq b) {
+        DataBlock Xb = DataBlock.make(X.getRowsCount());
+        DoubleSeqCursor bcur = b.cursor();
+        DataBlockIterator xcols = X.columnsIterator();
+        Xb.setAY(bcur.getAndNext(), xcols.next());
+        while (xcols.hasNext()) {
+            Xb.addAY(bcur.getAndNext(), xcols.next());
         }
+        return Xb;
     }
 
-    private TemporalDisaggregationResults disaggregate2(DisaggregationModel model, TemporalDisaggregationSpec spec) {
+    /**
+     * Diffuse filter, counted in the runs of the filter of the results.
+     * The filters used in the estimation of the model (likelihood) are not
+     * counted here (see the number of likelihood evaluations)
+     *
+     * @param ssf
+     * @param data
+     * @param all
+     * @param passes
+     * @return
+     */
+    private static DefaultDiffuseFilteringResults filter(ISsf ssf, ISsfData data, boolean all, AtomicInteger passes) {
+        passes.incrementAndGet();
+        return DkToolkit.filter(ssf, data, all);
+    }
+
+    /**
+     * Smoothing of the complete model by the algorithm of the specification.
+     * The smoothers of the toolkit run the filter once, which is counted in
+     * the runs of the filter
+     *
+     * @param ssf
+     * @param data
+     * @param spec
+     * @param passes
+     * @return
+     */
+    private static DefaultSmoothingResults smooth(ISsf ssf, SsfData data, TemporalDisaggregationSpec spec, AtomicInteger passes) {
+        passes.incrementAndGet();
+        return switch (spec.getAlgorithm()) {
+            case Augmented ->
+                AkfToolkit.smooth(ssf, data, true, false, false);
+            case SqrtDiffuse ->
+                DkToolkit.sqrtSmooth(ssf, data, true, false);
+            case Augmented_NoCollapsing ->
+                AkfToolkit.smooth(ssf, data, true, false, true);
+            case Augmented_Robust ->
+                AkfToolkit.robustSmooth(ssf, data, true, false).getSmoothing();
+            default ->
+                DkToolkit.smooth(ssf, data, true, false);
+        };
+    }
+
+    private DefaultSmoothingResults smooth(Ssf ssf, DefaultDiffuseFilteringResults frslts, int n) {
+        DiffuseSmoother smoother = DiffuseSmoother.builder(ssf)
+                .calcVariance(true)
+                .rescaleVariance(false)
+                .build();
+        DefaultSmoothingResults srslts = DefaultSmoothingResults.full();
+        srslts.prepare(ssf.getStateDim(), 0, n);
+        smoother.process(n, frslts, srslts);
+        return srslts;
+    }
+
+    /**
+     * Full residuals. They are computed from the filtering results of y-Xb on
+     * the disaggregation domain: before the estimation domain, the series is
+     * missing, so that, for a diffuse or a stationary initialization, the
+     * errors on the estimation domain are the same as the ones of a filter
+     * restricted to that domain. That doesn't hold for a zero initialization
+     * (the initial state is fixed at the start of the disaggregation domain
+     * instead of the estimation domain); the filter is then applied on the
+     * estimation domain, as in the likelihood.
+     *
+     * @param model
+     * @param spec
+     * @param coeff
+     * @param ssf
+     * @param frslts
+     * @param passes
+     * @return
+     */
+    private TsData residuals(DisaggregationModel model, TemporalDisaggregationSpec spec, DoubleSeq coeff, ISsf ssf,
+            DefaultDiffuseFilteringResults frslts, AtomicInteger passes) {
+        TsDomain hEDom = model.getHEDom();
+        int beg = model.getHDom().indexOf(hEDom.getStartPeriod());
+        if (beg > 0 && spec.isZeroInitialization()) {
+            return hresiduals(model, coeff, ssf, passes);
+        }
+        return TsData.of(hEDom.getStartPeriod(), frslts.errors(true, false).extract(beg, hEDom.length()));
+    }
+
+    /**
+     * Diagonal of (LX-X) V(b) (LX-X)', where LX is the smoothed regressors
+     *
+     * @param model
+     * @param dll
+     * @param smoothing Shared smoothed regressors (null if they can't be
+     * shared)
+     * @param fn Computes LX-X
+     * @return
+     */
+    private double[] varianceCorrection(DisaggregationModel model, DiffuseConcentratedLikelihood dll,
+            DisaggregationRegressors smoothing, Supplier<FastMatrix> fn) {
+        FastMatrix LhX = smoothing == null ? fn.get() : smoothing.smoothed(model, fn);
+        return RegressorsSmoother.varianceCorrection(LhX, dll.unscaledCovariance());
+    }
+
+    private TemporalDisaggregationResults disaggregate2(DisaggregationModel model, TemporalDisaggregationSpec spec, DisaggregationRegressors smoothing) {
         TemporalDisaggregationEstimation edm = estimateDisaggregationModel(model, spec);
         TsDomain hDom = model.getHDom();
-        double[] yh = new double[hDom.length()];
-        double[] eyh = new double[hDom.length()];
-
-        disaggregateEstimation(model, edm, yh, eyh);
+        AtomicInteger passes = new AtomicInteger();
+        FastSmoothing fs = disaggregateEstimation(model, spec, edm, smoothing, passes);
+        double[] yh = fs.getValues(), eyh = fs.getStdevs();
         double yfac = model.getYfactor();
         if (spec.getAggregationType() == AggregationType.Average) {
             yfac /= model.getFrequencyRatio();
@@ -512,12 +821,7 @@ public class TemporalDisaggregationProcessor {
         if (regeffect != null) {
             regeffect = regeffect.divide(yfac);
         }
-        // full residuals are obtained by applying the filter on the series without the
-        // regression effects
-        Ssf ssf = Ssf.of(SsfCumulator.of(edm.getNoise(), edm.getLoading(), model.getFrequencyRatio(), model.getStart()),
-                SsfCumulator.defaultLoading(edm.getLoading(), model.getFrequencyRatio(), model.getStart()));
-        TsData res = hresiduals(model, dll.coefficients(), ssf);
-        res = res.divide(yfac);
+        TsData res = fs.getResiduals().divide(yfac);
         res = res.aggregate(model.getLDom().getTsUnit(), AggregationType.Sum, false).cleanExtremities();
         dll = dll.rescale(yfac, xfac);
         int nparams = spec.isParameterEstimation() ? 1 : 0;
@@ -526,6 +830,8 @@ public class TemporalDisaggregationProcessor {
                 .disaggregationDomain(model.getHDom())
                 .indicators(model.getIndicators())
                 .maximum(edm.getMl())
+                .likelihoodEvaluations(edm.getEvaluations())
+                .filterPasses(passes.get())
                 .likelihood(dll)
                 .hyperParametersCount(nparams)
                 .stats(dll.stats(0, nparams))
@@ -545,21 +851,10 @@ public class TemporalDisaggregationProcessor {
         StateComponent rcmp = (model.getHX() == null || model.getHX().isEmpty()) ? ncmp : RegSsf.of(ncmp, model.getHX());
         ISsfLoading rloading = (model.getHX() == null || model.getHX().isEmpty()) ? nloading : RegSsf.defaultLoading(ncmp.dim(), nloading, model.getHX());
         SsfData ssfdata = new SsfData(model.getHY());
+        AtomicInteger passes = new AtomicInteger();
         Ssf ssf = Ssf.of(SsfCumulator.of(rcmp, rloading, model.getFrequencyRatio(), model.getStart()),
                 SsfCumulator.defaultLoading(rloading, model.getFrequencyRatio(), model.getStart()));
-        DefaultSmoothingResults srslts;
-        srslts = switch (spec.getAlgorithm()) {
-            case Augmented ->
-                AkfToolkit.smooth(ssf, ssfdata, true, false, false);
-            case SqrtDiffuse ->
-                DkToolkit.sqrtSmooth(ssf, ssfdata, true, false);
-            case Augmented_NoCollapsing ->
-                AkfToolkit.smooth(ssf, ssfdata, true, false, true);
-            case Augmented_Robust ->
-                AkfToolkit.robustSmooth(ssf, ssfdata, true, false).getSmoothing();
-            default ->
-                DkToolkit.smooth(ssf, ssfdata, true, false);
-        };
+        DefaultSmoothingResults srslts = smooth(ssf, ssfdata, spec, passes);
 
         double[] yh = new double[model.getHY().length];
         double[] vyh = new double[model.getHY().length];
@@ -583,7 +878,7 @@ public class TemporalDisaggregationProcessor {
         // regression effects
         Ssf cssf = Ssf.of(SsfCumulator.of(ncmp, nloading, model.getFrequencyRatio(), model.getStart()),
                 SsfCumulator.defaultLoading(nloading, model.getFrequencyRatio(), model.getStart()));
-        TsData res = hresiduals(model, dll.coefficients(), cssf);
+        TsData res = hresiduals(model, dll.coefficients(), cssf, passes);
         res = res.divide(yfac);
         res = res.aggregate(model.getLDom().getTsUnit(), AggregationType.Sum, false).cleanExtremities();
         dll = dll.rescale(yfac, xfac);
@@ -593,6 +888,8 @@ public class TemporalDisaggregationProcessor {
                 .disaggregationDomain(model.getHDom())
                 .indicators(model.getIndicators())
                 .maximum(edm.getMl())
+                .likelihoodEvaluations(edm.getEvaluations())
+                .filterPasses(passes.get())
                 .likelihood(dll)
                 .hyperParametersCount(nparams)
                 .stats(dll.stats(0, nparams))
@@ -642,13 +939,30 @@ public class TemporalDisaggregationProcessor {
     }
 
     private SsfFunction<Parameter, Ssf> ssfFunction(DisaggregationModel model, TemporalDisaggregationSpec spec) {
+        return ssfFunction(model, spec, null);
+    }
+
+    /**
+     *
+     * @param model
+     * @param spec
+     * @param evaluations Counts the evaluations of the likelihood (one model
+     * is built by evaluation). May be null
+     * @return
+     */
+    private SsfFunction<Parameter, Ssf> ssfFunction(DisaggregationModel model, TemporalDisaggregationSpec spec, AtomicInteger evaluations) {
         SsfData data = new SsfData(model.getHEY());
         Double lbound = spec.getTruncatedParameter();
         Mapping mapping = new Mapping(lbound == null ? -1 : lbound);
         boolean cl = spec.getResidualsModel() == Model.Ar1;
         boolean disagg = spec.getAggregationType() == AggregationType.Average || spec.getAggregationType() == AggregationType.Sum;
         return SsfFunction.builder(data, mapping,
-                p -> ssf(p.getValue(), disagg, cl, spec.isZeroInitialization(), model.getFrequencyRatio()))
+                p -> {
+                    if (evaluations != null) {
+                        evaluations.incrementAndGet();
+                    }
+                    return ssf(p.getValue(), disagg, cl, spec.isZeroInitialization(), model.getFrequencyRatio());
+                })
                 .regression(model.getHEX(), diffuseRegressors(model.nx(), spec))
                 .useMaximumLikelihood(true)
                 .build();
@@ -686,20 +1000,20 @@ public class TemporalDisaggregationProcessor {
         return TsData.of(model.getHDom().getStartPeriod(), regs);
     }
 
-    private TsData hresiduals(DisaggregationModel model, DoubleSeq coeff, ISsf ssf) {
+    private TsData hresiduals(DisaggregationModel model, DoubleSeq coeff, ISsf ssf, AtomicInteger passes) {
         double[] y = new double[model.getHEDom().length()];
         double[] hy = model.getHEY();
         FastMatrix hx = model.getHEX();
-        if (hx != null) {
-            for (int i = 0; i < hy.length; ++i) {
-                if (Double.isFinite(hy[i])) {
-                    y[i] = hy[i] - hx.row(i).dot(coeff);
-                } else {
-                    y[i] = Double.NaN;
-                }
+        for (int i = 0; i < hy.length; ++i) {
+            if (!Double.isFinite(hy[i])) {
+                y[i] = Double.NaN;
+            } else if (hx != null) {
+                y[i] = hy[i] - hx.row(i).dot(coeff);
+            } else {
+                y[i] = hy[i];
             }
         }
-        DefaultDiffuseFilteringResults fr = DkToolkit.filter(ssf, new SsfData(y), false);
+        DefaultDiffuseFilteringResults fr = filter(ssf, new SsfData(y), false, passes);
         return TsData.of(model.getHEDom().getStartPeriod(), fr.errors(true, false));
     }
 
@@ -67,6 +67,19 @@ public class TemporalDisaggregationResults implements GenericExplorable{
     
     ObjectiveFunctionPoint maximum;
     
+    /**
+     * Number of evaluations of the likelihood in the estimation of the
+     * parameter (0 if the parameter is fixed)
+     */
+    int likelihoodEvaluations;
+    
+    /**
+     * Number of runs of the Kalman filter after the estimation of the model
+     * (smoothing and residuals). The runs of the estimation (one by
+     * evaluation of the likelihood) are not included
+     */
+    int filterPasses;
+    
     ResidualsDiagnostics residualsDiagnostics;
 
     @lombok.NonNull
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2024 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package jdplus.benchmarking.base.core.benchmarking.multivariate;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author palatej
+ */
+public class AmdOrderingTest {
+
+    public AmdOrderingTest() {
+    }
+
+    @Test
+    public void testTable() {
+        // KKT systems of a r x c table (cells, row and column constraints)
+        int n = 12;
+        for (int r = 2; r <= 10; r += 4) {
+            int c = r + 1, nc = r * c, nb = nc + r + c, dim = n * nb;
+            int[] blocks = new int[n + 1];
+            SparseSymmetricMatrix.Builder builder = SparseSymmetricMatrix.builder(dim, 4 * dim);
+            for (int t = 0; t < n; ++t) {
+                int b0 = t * nb;
+                blocks[t] = b0;
+                for (int k = 0; k < nc; ++k) {
+                    builder.add(b0 + k, b0 + k, 2);
+                    if (t > 0) {
+                        builder.add(b0 - nb + k, b0 + k, -1);
+                    }
+                }
+                for (int i = 0; i < r; ++i) {
+                    builder.add(b0 + nc + i, b0 + nc + i, -1);
+                    for (int j = 0; j < c; ++j) {
+                        builder.add(b0 + i * c + j, b0 + nc + i, 1);
+                    }
+                }
+                for (int j = 0; j < c; ++j) {
+                    builder.add(b0 + nc + r + j, b0 + nc + r + j, -1);
+                    for (int i = 0; i < r; ++i) {
+                        builder.add(b0 + i * c + j, b0 + nc + r + j, 1);
+                    }
+                }
+            }
+            blocks[n] = dim;
+            SparseSymmetricMatrix K = builder.build();
+            int[] perm = AmdOrdering.order(K, blocks);
+            // permutation inside the blocks
+            boolean[] used = new boolean[dim];
+            for (int t = 0; t < n; ++t) {
+                for (int k = blocks[t]; k < blocks[t + 1]; ++k) {
+                    int l = perm[k];
+                    assertTrue(l >= blocks[t] && l < blocks[t + 1] && !used[l]);
+                    used[l] = true;
+                }
+            }
+            SparseSymmetricMatrix P = K.permute(perm);
+            SparseLDL ldl = SparseLDL.factorize(K, null), pldl = SparseLDL.factorize(P, null);
+            assertTrue(pldl.getNonZerosCount() < ldl.getNonZerosCount());
+            // same solutions
+            Random rnd = new Random(r);
+            double[] x = new double[dim], px = new double[dim];
+            for (int k = 0; k < dim; ++k) {
+                x[k] = rnd.nextGaussian();
+            }
+            for (int k = 0; k < dim; ++k) {
+                px[k] = x[perm[k]];
+            }
+            ldl.solve(x);
+            pldl.solve(px);
+            for (int k = 0; k < dim; ++k) {
+                assertEquals(x[perm[k]], px[k], 1e-9 * Math.max(1, Math.abs(px[k])));
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package jdplus.benchmarking.base.core.benchmarking.multivariate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import jdplus.benchmarking.base.api.benchmarking.multivariate.ContemporaneousConstraint;
+import jdplus.benchmarking.base.api.benchmarking.multivariate.MultivariateCholette;
+import jdplus.benchmarking.base.api.benchmarking.multivariate.MultivariateCholetteSpec;
+import jdplus.benchmarking.base.api.benchmarking.multivariate.TemporalConstraint;
+import jdplus.toolkit.base.api.timeseries.TsData;
+import jdplus.toolkit.base.api.timeseries.TsPeriod;
+import org.junit.jupiter.api.Test;
+
+import static jdplus.toolkit.base.core.timeseries.simplets.TsDataToolkit.distance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *
+ * @author palatej
+ */
+public class MultivariateCholetteSessionTest {
+
+    public MultivariateCholetteSessionTest() {
+    }
+
+    @Test
+    public void testUpdates() {
+        Map<String, TsData> input = new HashMap<>();
+        MultivariateCholetteSpec.Builder builder = MultivariateCholetteSpec.builder()
+                .lambda(.5)
+                .rho(.9)
+                .temporalConstraint(TemporalConstraint.parse("A=sum(a)"));
+        input.put("a", randomM(120, 100));
+        input.put("A", randomY(10, 101));
+        for (int k = 0; k < 3; ++k) {
+            String p = "t" + k;
+            input.put(p + "s11", randomM(120, 8 * k));
+            input.put(p + "s12", randomM(120, 8 * k + 1));
+            input.put(p + "s21", randomM(120, 8 * k + 2));
+            input.put(p + "s22", randomM(120, 8 * k + 3));
+            input.put(p + "s_1", randomM(120, 8 * k + 4));
+            input.put(p + "s_2", randomM(120, 8 * k + 5));
+            input.put(p + "s2_", randomM(120, 8 * k + 6));
+            input.put(p + "S22", randomY(10, 8 * k + 7));
+            builder.contemporaneousConstraint(ContemporaneousConstraint.parse(p + "s_1=" + p + "s11+" + p + "s21"))
+                    .contemporaneousConstraint(ContemporaneousConstraint.parse(p + "s_2=" + p + "s12+" + p + "s22"))
+                    .contemporaneousConstraint(ContemporaneousConstraint.parse(p + "s2_=" + p + "s21+" + p + "s22"))
+                    .temporalConstraint(TemporalConstraint.parse(p + "S22=sum(" + p + "s22)"));
+        }
+        MultivariateCholetteSpec spec = builder.build();
+        MultivariateCholetteSession session = new MultivariateCholetteSession(input, spec);
+        Map<String, TsData> r0 = session.getResults();
+        assertEquals(13, r0.size());
+
+        // revision of an endogenous series, of a binding series and of an
+        // aggregate
+        String[] revised = {"t1s12", "t2s_1", "t0S22", "A"};
+        TsData[] nseries = {randomM(120, 200), randomM(120, 201), randomY(10, 202), randomY(10, 203)};
+        // prefix of the series that should be recomputed
+        String[] recomputed = {"t1", "t2", "t0", "a"};
+        for (int i = 0; i < revised.length; ++i) {
+            input.put(revised[i], nseries[i]);
+            Map<String, TsData> rslt = session.update(Map.of(revised[i], nseries[i]));
+            Map<String, TsData> ref = MultivariateCholette.benchmark(input, spec);
+            assertEquals(ref.keySet(), rslt.keySet());
+            for (String name : ref.keySet()) {
+                assertTrue(distance(ref.get(name), rslt.get(name)) < 1e-9);
+                if (!name.startsWith(recomputed[i])) {
+                    assertSame(r0.get(name), rslt.get(name));
+                }
+            }
+            r0 = rslt;
+        }
+
+        // revision of the domain of an endogenous series
+        TsData s = input.get("t0s11").drop(12, 0);
+        input.put("t0s11", s);
+        Map<String, TsData> rslt = session.update(Map.of("t0s11", s));
+        Map<String, TsData> ref = MultivariateCholette.benchmark(input, spec);
+        for (String name : ref.keySet()) {
+            assertTrue(distance(ref.get(name), rslt.get(name)) < 1e-9);
+        }
+    }
+
+    private TsData randomM(int len, int seed) {
+        Random rnd = new Random(seed);
+        double[] data = new double[len];
+        for (int i = 0; i < len; ++i) {
+            data[i] = rnd.nextDouble() * 5 + 10;
+        }
+        return TsData.ofInternal(TsPeriod.monthly(1980, 1), data);
+    }
+
+    private TsData randomY(int len, int seed) {
+        Random rnd = new Random(seed);
+        double[] data = new double[len];
+        for (int i = 0; i < len; ++i) {
+            data[i] = rnd.nextDouble() * 20 + 120;
+        }
+        return TsData.ofInternal(TsPeriod.yearly(1980), data);
+    }
+}
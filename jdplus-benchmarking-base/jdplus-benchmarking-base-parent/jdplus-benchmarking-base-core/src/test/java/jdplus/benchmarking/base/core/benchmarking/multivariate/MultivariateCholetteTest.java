@@ -27,6 +27,7 @@ import ec.benchmarking.simplets.TsMultiBenchmarking;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -66,46 +67,267 @@ public class MultivariateCholetteTest {
         input.put("S22", S22);
         
         TemporalConstraint c4 = TemporalConstraint.parse("S22=sum(s22)");
-        MultivariateCholetteSpec.Builder builder = MultivariateCholetteSpec.builder()
-                .lambda(1)
+        for (double rho : new double[]{1, .9}) {
+            Map<String, TsData> ref1 = null, ref2 = null;
+            for (MultivariateCholetteSpec.Engine engine : MultivariateCholetteSpec.Engine.values()) {
+                MultivariateCholetteSpec.Builder builder = MultivariateCholetteSpec.builder()
+                        .lambda(1)
+                        .rho(rho)
+                        .engine(engine)
+                        .contemporaneousConstraint(c1)
+                        .contemporaneousConstraint(c2)
+                        .contemporaneousConstraint(c3);
+
+                MultivariateCholetteSpec spec1 = builder.build();
+
+                MultivariateCholetteSpec spec2 = builder
+                        .lambda(.5)
+                        .temporalConstraint(c4)
+                        .build();
+
+                Map<String, TsData> rslt1 = MultivariateCholette.benchmark(input, spec1);
+                assertTrue(rslt1.size() == 4);
+                Map<String, TsData> rslt2 = MultivariateCholette.benchmark(input, spec2);
+                assertTrue(rslt2.size() == 4);
+
+                assertTrue(distance(s_1, TsData.add(rslt1.get("s11"), rslt1.get("s21"))) < 1e-9);
+                assertTrue(distance(s_2, TsData.add(rslt1.get("s12"), rslt1.get("s22"))) < 1e-9);
+                assertTrue(distance(s2_, TsData.add(rslt1.get("s21"), rslt1.get("s22"))) < 1e-9);
+                assertTrue(distance(s_1, TsData.add(rslt2.get("s11"), rslt2.get("s21"))) < 1e-9);
+                assertTrue(distance(s_2, TsData.add(rslt2.get("s12"), rslt2.get("s22"))) < 1e-9);
+                assertTrue(distance(s2_, TsData.add(rslt2.get("s21"), rslt2.get("s22"))) < 1e-9);
+
+                // the state space and the GLS engines give the same solution
+                // (the two-step engine is an approximation)
+                if (engine == MultivariateCholetteSpec.Engine.Ssf) {
+                    ref1 = rslt1;
+                    ref2 = rslt2;
+                } else if (engine == MultivariateCholetteSpec.Engine.Gls) {
+                    for (String s : ref1.keySet()) {
+                        assertTrue(distance(ref1.get(s), rslt1.get(s)) < 1e-8);
+                        assertTrue(distance(ref2.get(s), rslt2.get(s)) < 1e-8);
+                    }
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testCompiled() {
+        Map<String, TsData> input = new HashMap<>();
+        input.put("s11", randomM(120, 0));
+        input.put("s12", randomM(120, 1));
+        input.put("s21", randomM(120, 2));
+        input.put("s22", randomM(120, 3));
+        input.put("s_1", randomM(120, 4));
+        input.put("s_2", randomM(120, 5));
+        input.put("s2_", randomM(120, 6));
+        input.put("S22", randomY(10, 7));
+
+        MultivariateCholetteSpec spec = MultivariateCholetteSpec.builder()
+                .lambda(.5)
                 .rho(1)
-                .contemporaneousConstraint(c1)
-                .contemporaneousConstraint(c2)
-                .contemporaneousConstraint(c3);
-        
-        MultivariateCholetteSpec spec1 = builder.build();
-        
-        MultivariateCholetteSpec spec2 = builder
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s_1=s11+s21"))
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s_2=s12+s22"))
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s2_=s21+s22"))
+                .temporalConstraint(TemporalConstraint.parse("S22=sum(s22)"))
+                .build();
+        MultivariateCholetteSpec wspec = spec.toBuilder()
+                .clearContemporaneousConstraints()
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s_1=s?1"))
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s_2=s?2"))
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s2_=s2*"))
+                .build();
+
+        CompiledConstraints model = CompiledConstraints.of(wspec, input.keySet());
+        assertEquals(4, model.getEndogenousCount());
+        assertEquals(3, model.getContemporaneousConstraintsCount());
+
+        // the compiled model is reused with other data
+        for (int k = 0; k < 3; ++k) {
+            Map<String, TsData> cur = new HashMap<>(input);
+            cur.put("s11", randomM(120, 10 + k));
+            cur.put("S22", randomY(10, 20 + k));
+            Map<String, TsData> rslt = new MultivariateCholetteEngine().process(cur, model, wspec.getRho(), wspec.getLambda());
+            Map<String, TsData> ref = MultivariateCholette.benchmark(cur, spec);
+            assertEquals(ref.keySet(), rslt.keySet());
+            for (String s : ref.keySet()) {
+                assertTrue(distance(ref.get(s), rslt.get(s)) < 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testComponents() {
+        Map<String, TsData> input = new HashMap<>();
+        MultivariateCholetteSpec.Builder builder = MultivariateCholetteSpec.builder()
                 .lambda(.5)
-                .temporalConstraint(c4)
+                .rho(.9);
+        for (int k = 0; k < 4; ++k) {
+            String p = "t" + k;
+            input.put(p + "s11", randomM(120, 8 * k));
+            input.put(p + "s12", randomM(120, 8 * k + 1));
+            input.put(p + "s21", randomM(120, 8 * k + 2));
+            input.put(p + "s22", randomM(120, 8 * k + 3));
+            input.put(p + "s_1", randomM(120, 8 * k + 4));
+            input.put(p + "s_2", randomM(120, 8 * k + 5));
+            input.put(p + "s2_", randomM(120, 8 * k + 6));
+            builder.contemporaneousConstraint(ContemporaneousConstraint.parse(p + "s_1=" + p + "s11+" + p + "s21"))
+                    .contemporaneousConstraint(ContemporaneousConstraint.parse(p + "s_2=" + p + "s12+" + p + "s22"))
+                    .contemporaneousConstraint(ContemporaneousConstraint.parse(p + "s2_=" + p + "s21+" + p + "s22"));
+            if (k % 2 == 0) {
+                input.put(p + "S22", randomY(10, 8 * k + 7));
+                builder.temporalConstraint(TemporalConstraint.parse(p + "S22=sum(" + p + "s22)"));
+            }
+        }
+        MultivariateCholetteSpec spec = builder.build();
+        assertEquals(4, CompiledConstraints.of(spec, input.keySet()).getComponentsCount());
+
+        Map<String, TsData> rslt = MultivariateCholette.benchmark(input, spec);
+        assertEquals(16, rslt.size());
+        // each table separately
+        for (int k = 0; k < 4; ++k) {
+            String p = "t" + k;
+            MultivariateCholetteSpec.Builder kbuilder = spec.toBuilder()
+                    .clearContemporaneousConstraints()
+                    .clearTemporalConstraints();
+            spec.getContemporaneousConstraints().stream()
+                    .filter(c -> c.getConstraint().startsWith(p))
+                    .forEach(kbuilder::contemporaneousConstraint);
+            spec.getTemporalConstraints().stream()
+                    .filter(c -> c.getDetail().startsWith(p))
+                    .forEach(kbuilder::temporalConstraint);
+            Map<String, TsData> krslt = MultivariateCholette.benchmark(input, kbuilder.build());
+            assertEquals(4, krslt.size());
+            for (Map.Entry<String, TsData> entry : krslt.entrySet()) {
+                assertTrue(distance(entry.getValue(), rslt.get(entry.getKey())) < 1e-9);
+            }
+            assertTrue(distance(input.get(p + "s_1"), TsData.add(rslt.get(p + "s11"), rslt.get(p + "s21"))) < 1e-9);
+            assertTrue(distance(input.get(p + "s2_"), TsData.add(rslt.get(p + "s21"), rslt.get(p + "s22"))) < 1e-9);
+        }
+    }
+
+    @Test
+    public void testSelectedStates() {
+        Map<String, TsData> input = new HashMap<>();
+        input.put("s11", randomM(120, 0));
+        input.put("s12", randomM(120, 1));
+        input.put("s21", randomM(120, 2));
+        input.put("s22", randomM(120, 3));
+        input.put("s_1", randomM(120, 4));
+        input.put("s_2", randomM(120, 5));
+        input.put("s2_", randomM(120, 6));
+        input.put("S22", randomY(10, 7));
+
+        MultivariateCholetteSpec spec = MultivariateCholetteSpec.builder()
+                .lambda(.5)
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s_1=s11+s21"))
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s_2=s12+s22"))
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s2_=s21+s22"))
                 .build();
-        
-        Map<String, TsData> rslt1 = MultivariateCholette.benchmark(input, spec1);
-        assertTrue(rslt1.size() == 4);
-
-//        System.out.println(s11.values());
-//        System.out.println(s12.values());
-//        System.out.println(s21.values());
-//        System.out.println(s22.values());
-//        System.out.println(s_1.values());
-//        System.out.println(s_2.values());
-//        System.out.println(s2_.values());
-//
-//        System.out.println(rslt1.get("s11").values());
-//        System.out.println(rslt1.get("s12").values());
-//        System.out.println(rslt1.get("s21").values());
-//        System.out.println(rslt1.get("s22").values());
-        Map<String, TsData> rslt2 = MultivariateCholette.benchmark(input, spec2);
-        assertTrue(rslt2.size() == 4);
-        
-        assertTrue(distance(s_1, TsData.add(rslt1.get("s11"), rslt1.get("s21"))) < 1e-9);
-        assertTrue(distance(s_2, TsData.add(rslt1.get("s12"), rslt1.get("s22"))) < 1e-9);
-        assertTrue(distance(s2_, TsData.add(rslt1.get("s21"), rslt1.get("s22"))) < 1e-9);
-        assertTrue(distance(s_1, TsData.add(rslt2.get("s11"), rslt2.get("s21"))) < 1e-9);
-        assertTrue(distance(s_2, TsData.add(rslt2.get("s12"), rslt2.get("s22"))) < 1e-9);
-        assertTrue(distance(s2_, TsData.add(rslt2.get("s21"), rslt2.get("s22"))) < 1e-9);
+        MultivariateCholetteSpec tspec = spec.toBuilder()
+                .temporalConstraint(TemporalConstraint.parse("S22=sum(s22)"))
+                .build();
+        for (MultivariateCholetteSpec cur : new MultivariateCholetteSpec[]{spec, tspec}) {
+            // only the smoothed states of the series are kept by the ssf engine
+            Map<String, TsData> ssf = new MultivariateCholetteEngine().process(input, cur);
+            Map<String, TsData> gls = new MultivariateCholetteEngine().process(input,
+                    cur.toBuilder().engine(MultivariateCholetteSpec.Engine.Gls).build());
+            for (String s : ssf.keySet()) {
+                assertTrue(distance(ssf.get(s), gls.get(s)) < 1e-8);
+            }
+        }
     }
-    
+
+    @Test
+    public void testProjection() {
+        // additive benchmarking: time invariant loadings (with a redundant
+        // constraint)
+        Map<String, TsData> input = new HashMap<>();
+        input.put("s11", randomM(120, 0));
+        input.put("s12", randomM(120, 1));
+        input.put("s21", randomM(120, 2));
+        input.put("s22", randomM(120, 3));
+        input.put("s_1", randomM(120, 4));
+        input.put("s_2", randomM(120, 5));
+        input.put("s2_", randomM(120, 6));
+        input.put("s1_", TsData.add(input.get("s_1"), TsData.subtract(input.get("s_2"), input.get("s2_"))));
+
+        for (double rho : new double[]{1, .8}) {
+            MultivariateCholetteSpec spec = MultivariateCholetteSpec.builder()
+                    .lambda(0)
+                    .rho(rho)
+                    .contemporaneousConstraint(ContemporaneousConstraint.parse("s_1=s11+s21"))
+                    .contemporaneousConstraint(ContemporaneousConstraint.parse("s_2=s12+s22"))
+                    .contemporaneousConstraint(ContemporaneousConstraint.parse("s1_=s11+s12"))
+                    .contemporaneousConstraint(ContemporaneousConstraint.parse("s2_=s21+s22"))
+                    .build();
+            Map<String, TsData> ssf = MultivariateCholette.benchmark(input, spec);
+            Map<String, TsData> gls = MultivariateCholette.benchmark(input, spec.toBuilder()
+                    .engine(MultivariateCholetteSpec.Engine.Gls)
+                    .build());
+            for (String s : ssf.keySet()) {
+                assertTrue(distance(ssf.get(s), gls.get(s)) < 1e-8);
+            }
+            assertTrue(distance(input.get("s_1"), TsData.add(ssf.get("s11"), ssf.get("s21"))) < 1e-9);
+            assertTrue(distance(input.get("s1_"), TsData.add(ssf.get("s11"), ssf.get("s12"))) < 1e-9);
+        }
+    }
+
+    @Test
+    public void testTwoStep() {
+        Map<String, TsData> input = new HashMap<>();
+        input.put("s11", randomM(120, 0));
+        input.put("s12", randomM(120, 1));
+        input.put("s21", randomM(120, 2));
+        input.put("s22", randomM(120, 3));
+        input.put("s_1", randomM(120, 4));
+        input.put("s_2", randomM(120, 5));
+        input.put("s2_", randomM(120, 6));
+        input.put("S22", randomY(10, 7));
+
+        MultivariateCholetteSpec spec = MultivariateCholetteSpec.builder()
+                .lambda(0)
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s_1=s11+s21"))
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s_2=s12+s22"))
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s2_=s21+s22"))
+                .build();
+        // without temporal constraints and with constant weights, the
+        // projection is the exact solution
+        Map<String, TsData> ssf = MultivariateCholette.benchmark(input, spec);
+        Map<String, TsData> ts = MultivariateCholette.benchmark(input, spec.toBuilder()
+                .engine(MultivariateCholetteSpec.Engine.TwoStep)
+                .build());
+        for (String s : ssf.keySet()) {
+            assertTrue(distance(ssf.get(s), ts.get(s)) < 1e-8);
+        }
+
+        ts = MultivariateCholette.benchmark(input, spec.toBuilder()
+                .lambda(.5)
+                .temporalConstraint(TemporalConstraint.parse("S22=sum(s22)"))
+                .engine(MultivariateCholetteSpec.Engine.TwoStep)
+                .build());
+        assertEquals(4, ts.size());
+        assertTrue(distance(input.get("s_1"), TsData.add(ts.get("s11"), ts.get("s21"))) < 1e-9);
+        assertTrue(distance(input.get("s_2"), TsData.add(ts.get("s12"), ts.get("s22"))) < 1e-9);
+        assertTrue(distance(input.get("s2_"), TsData.add(ts.get("s21"), ts.get("s22"))) < 1e-9);
+    }
+
+    @Test
+    public void testConstant() {
+        Map<String, TsData> input = new HashMap<>();
+        input.put("s11", randomM(120, 0));
+        input.put("s12", randomM(120, 1));
+        MultivariateCholetteSpec spec = MultivariateCholetteSpec.builder()
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("25=s11+s12"))
+                .build();
+        Map<String, TsData> rslt = MultivariateCholette.benchmark(input, spec);
+        TsData sum = TsData.add(rslt.get("s11"), rslt.get("s12"));
+        for (int i = 0; i < sum.length(); ++i) {
+            assertEquals(25, sum.getValue(i), 1e-9);
+        }
+    }
+
     @Test
     @Disabled
     public void testOldTable() {
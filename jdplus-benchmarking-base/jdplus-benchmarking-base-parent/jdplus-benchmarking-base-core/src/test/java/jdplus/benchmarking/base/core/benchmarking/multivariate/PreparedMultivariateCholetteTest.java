@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package jdplus.benchmarking.base.core.benchmarking.multivariate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import jdplus.benchmarking.base.api.benchmarking.multivariate.ContemporaneousConstraint;
+import jdplus.benchmarking.base.api.benchmarking.multivariate.MultivariateCholette;
+import jdplus.benchmarking.base.api.benchmarking.multivariate.MultivariateCholetteSpec;
+import jdplus.benchmarking.base.api.benchmarking.multivariate.TemporalConstraint;
+import jdplus.toolkit.base.api.timeseries.TsData;
+import jdplus.toolkit.base.api.timeseries.TsPeriod;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ * @author palatej
+ */
+public class PreparedMultivariateCholetteTest {
+
+    private static final int NTHREADS = 64, NDATA = 8, NRUNS = 4;
+
+    public PreparedMultivariateCholetteTest() {
+    }
+
+    @Test
+    public void testConcurrency() throws Exception {
+        MultivariateCholetteSpec spec = MultivariateCholetteSpec.builder()
+                .lambda(.5)
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s_1=s11+s21"))
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s_2=s12+s22"))
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("s2_=s2*"))
+                .contemporaneousConstraint(ContemporaneousConstraint.parse("u_=u1+u2"))
+                .temporalConstraint(TemporalConstraint.parse("S22=sum(s22)"))
+                .build();
+        List<Map<String, TsData>> data = new ArrayList<>();
+        for (int i = 0; i < NDATA; ++i) {
+            data.add(data(10 * i));
+        }
+        MultivariateCholetteSpec.Engine[] engines = MultivariateCholetteSpec.Engine.values();
+        PreparedMultivariateCholette[] prepared = new PreparedMultivariateCholette[engines.length];
+        List<List<Map<String, TsData>>> refs = new ArrayList<>();
+        for (int k = 0; k < engines.length; ++k) {
+            MultivariateCholetteSpec kspec = spec.toBuilder().engine(engines[k]).build();
+            prepared[k] = PreparedMultivariateCholette.of(kspec, data.get(0).keySet());
+            List<Map<String, TsData>> kref = new ArrayList<>();
+            for (Map<String, TsData> d : data) {
+                kref.add(MultivariateCholette.benchmark(d, kspec));
+            }
+            refs.add(kref);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(NTHREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < NTHREADS; ++t) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    Random rnd = new Random(seed);
+                    for (int r = 0; r < NRUNS; ++r) {
+                        int k = rnd.nextInt(engines.length), i = rnd.nextInt(NDATA);
+                        Map<String, TsData> rslt = prepared[k].process(data.get(i));
+                        check(refs.get(k).get(i), rslt);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void check(Map<String, TsData> ref, Map<String, TsData> rslt) {
+        assertEquals(ref.keySet(), rslt.keySet());
+        for (Map.Entry<String, TsData> entry : ref.entrySet()) {
+            TsData s = rslt.get(entry.getKey());
+            assertEquals(entry.getValue().getDomain(), s.getDomain());
+            assertArrayEquals(entry.getValue().getValues().toArray(), s.getValues().toArray());
+        }
+    }
+
+    private static Map<String, TsData> data(int seed) {
+        Map<String, TsData> input = new HashMap<>();
+        String[] names = {"s11", "s12", "s21", "s22", "s_1", "s_2", "s2_", "u1", "u2", "u_"};
+        for (int i = 0; i < names.length; ++i) {
+            input.put(names[i], randomM(120, seed + i));
+        }
+        input.put("S22", randomY(10, seed + names.length));
+        return input;
+    }
+
+    private static TsData randomM(int len, int seed) {
+        Random rnd = new Random(seed);
+        double[] data = new double[len];
+        for (int i = 0; i < len; ++i) {
+            data[i] = rnd.nextDouble() * 5 + 10;
+        }
+        return TsData.ofInternal(TsPeriod.monthly(1980, 1), data);
+    }
+
+    private static TsData randomY(int len, int seed) {
+        Random rnd = new Random(seed);
+        double[] data = new double[len];
+        for (int i = 0; i < len; ++i) {
+            data[i] = rnd.nextDouble() * 20 + 120;
+        }
+        return TsData.ofInternal(TsPeriod.yearly(1980), data);
+    }
+}
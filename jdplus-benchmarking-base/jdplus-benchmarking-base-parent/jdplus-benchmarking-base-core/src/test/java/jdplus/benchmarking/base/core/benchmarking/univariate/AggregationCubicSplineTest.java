@@ -58,6 +58,32 @@ public class AggregationCubicSplineTest {
         }
     }
     
+    @Test
+    public void testExact() {
+        double[] xi = new double[20];
+        for (int i = 0; i < xi.length; ++i) {
+            xi[i] = 4 * i;
+        }
+        double[] fx = new double[xi.length - 1];
+        Random rnd = new Random(0);
+        double cumul = 10 + rnd.nextDouble();
+        for (int i = 0; i < xi.length - 1; ++i) {
+            cumul += rnd.nextDouble();
+            fx[i] = cumul;
+        }
+        GenericCubicSpline espline = AggregationCubicSpline.aggregationSplineOf(xi, fx);
+        GenericCubicSpline ospline = AggregationCubicSpline.aggregationSplineOfByOptimization(xi, fx);
+        AggregationCubicSpline.AggregationFunction fn = new AggregationCubicSpline.AggregationFunction(xi, fx);
+        double e = fn.criterion(espline, espline), o = fn.criterion(ospline, ospline);
+        assertTrue(e <= o * (1 + 1e-9));
+        assertEquals(e, o, 1e-6 * o);
+        for (int i = 0; i < espline.getPolynomialsCount(); ++i) {
+            DoubleSeq c = espline.polynomial(i);
+            double m = c.get(0) * 4 + c.get(1) * 16 / 2 + c.get(2) * 64 / 3 + c.get(3) * 256 / 4;
+            assertEquals(m, fx[i], 1e-6);
+        }
+    }
+
     public static void disaggregation() {
         double[] d = AggregationCubicSpline.disaggregate(Data.PCRA, 4);
         System.out.println(DoubleSeq.of(d));
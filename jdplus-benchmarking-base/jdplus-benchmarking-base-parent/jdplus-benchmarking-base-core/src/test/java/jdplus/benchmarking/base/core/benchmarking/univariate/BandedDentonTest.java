@@ -0,0 +1,127 @@
+/*
+ * Copyright 2024 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package jdplus.benchmarking.base.core.benchmarking.univariate;
+
+import jdplus.benchmarking.base.api.benchmarking.univariate.DentonSpec;
+import jdplus.toolkit.base.api.data.AggregationType;
+import jdplus.toolkit.base.core.data.DataBlock;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ * @author palatej
+ */
+public class BandedDentonTest {
+
+    public BandedDentonTest() {
+    }
+
+    private static void compare(DentonSpec spec, int conversion, int offset, DataBlock x, DataBlock y) {
+        double[] r0 = new MatrixDenton(spec, conversion, offset).process(x, y);
+        double[] r1 = new BandedDenton(spec, conversion, offset).process(x, y);
+        for (int i = 0; i < r0.length; ++i) {
+            assertEquals(r0[i], r1[i], 1e-7 * Math.max(1, Math.abs(r0[i])));
+        }
+    }
+
+    @Test
+    public void testSum() {
+        DataBlock y = DataBlock.make(20);
+        y.set(i -> (1 + i) * 100);
+        DataBlock x = DataBlock.make(90);
+        x.set(i -> (1 + i) * (1 + i) + 10 * Math.sin(i));
+        for (int d = 1; d <= 3; ++d) {
+            for (int offset = 0; offset < 3; ++offset) {
+                DentonSpec spec = DentonSpec.builder()
+                        .differencing(d)
+                        .build();
+                compare(spec, 4, offset, x, y);
+                compare(spec.toBuilder().multiplicative(false).build(), 4, offset, x, y);
+                compare(spec.toBuilder().modified(false).build(), 4, offset, x, y);
+            }
+        }
+    }
+
+    @Test
+    public void testPositions() {
+        DataBlock y = DataBlock.make(20);
+        y.set(i -> (1 + i) * 10);
+        DataBlock x = DataBlock.make(62);
+        x.set(i -> (1 + i) + 10 * Math.cos(i));
+        DentonSpec spec = DentonSpec.builder()
+                .aggregationType(AggregationType.First)
+                .build();
+        compare(spec, 3, 1, x, y);
+        compare(spec.toBuilder().aggregationType(AggregationType.Last).build(), 3, 0, x, y);
+        compare(spec.toBuilder().aggregationType(AggregationType.Average).build(), 3, 2, x, y);
+        compare(spec.toBuilder().aggregationType(AggregationType.UserDefined).observationPosition(1).build(), 3, 0, x, y);
+    }
+
+    @Test
+    public void testInterpolation() {
+        DataBlock y = DataBlock.make(20);
+        y.set(i -> (1 + i) * (1 + i));
+        DentonSpec spec = DentonSpec.builder()
+                .differencing(2)
+                .build();
+        double[] r0 = new MatrixDenton(spec, 12, 0).process(y);
+        double[] r1 = new BandedDenton(spec, 12, 0).process(y);
+        for (int i = 0; i < r0.length; ++i) {
+            assertEquals(r0[i], r1[i], 1e-7 * Math.max(1, Math.abs(r0[i])));
+        }
+    }
+
+    @Test
+    public void testLong() {
+        // 60 years of monthly data
+        DataBlock y = DataBlock.make(60);
+        y.set(i -> 1200 + 10 * i);
+        DataBlock x = DataBlock.make(720);
+        x.set(i -> 100 + i % 12 + 0.1 * i);
+        double[] r = new BandedDenton(DentonSpec.DEFAULT, 12, 0).process(x, y);
+        for (int i = 0; i < 60; ++i) {
+            assertEquals(y.get(i), DataBlock.of(r).range(12 * i, 12 * i + 12).sum(), 1e-6);
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        int m = 10;
+        DataBlock[] x = new DataBlock[m], y = new DataBlock[m];
+        for (int k = 0; k < m; ++k) {
+            int c = k;
+            x[k] = DataBlock.make(62);
+            x[k].set(i -> 100 + c * i + 10 * Math.cos(i + c));
+            y[k] = DataBlock.make(5);
+            y[k].set(i -> 1200 + c * 100 + 10 * i);
+        }
+        DentonSpec spec = DentonSpec.builder()
+                .multiplicative(false)
+                .differencing(2)
+                .build();
+        BandedDenton denton = new BandedDenton(spec, 12, 1);
+        double[][] r = denton.process(x, y);
+        for (int k = 0; k < m; ++k) {
+            double[] rk = denton.process(x[k], y[k]);
+            for (int i = 0; i < rk.length; ++i) {
+                assertEquals(rk[i], r[k][i], 1e-9 * Math.max(1, Math.abs(rk[i])));
+            }
+        }
+    }
+}
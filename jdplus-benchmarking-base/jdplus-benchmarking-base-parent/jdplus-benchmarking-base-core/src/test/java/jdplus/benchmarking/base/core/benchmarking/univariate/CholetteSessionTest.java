@@ -0,0 +1,82 @@
+/*
+ * Copyright 2024 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package jdplus.benchmarking.base.core.benchmarking.univariate;
+
+import java.util.Arrays;
+import jdplus.benchmarking.base.api.benchmarking.univariate.Cholette;
+import jdplus.benchmarking.base.api.benchmarking.univariate.CholetteSpec;
+import jdplus.toolkit.base.api.data.AggregationType;
+import jdplus.toolkit.base.api.data.DoubleSeq;
+import jdplus.toolkit.base.api.timeseries.TsData;
+import jdplus.toolkit.base.api.timeseries.TsPeriod;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ * @author palatej
+ */
+public class CholetteSessionTest {
+
+    public CholetteSessionTest() {
+    }
+
+    @Test
+    public void testUpdates() {
+        int n = 90;
+        double[] x = new double[n];
+        for (int i = 0; i < n; ++i) {
+            x[i] = (1 + i) * (1 + i) * 0.01 + 3 + Math.sin(i);
+        }
+        double[] y = new double[22];
+        for (int i = 0; i < y.length; ++i) {
+            y[i] = 40 + 3 * i + Math.cos(i);
+        }
+        TsPeriod q = TsPeriod.quarterly(1978, 3);
+        TsPeriod a = TsPeriod.yearly(1979);
+        for (AggregationType type : new AggregationType[]{AggregationType.Sum, AggregationType.Average}) {
+            for (double rho : new double[]{0.5, 1}) {
+                for (double lambda : new double[]{0, 1}) {
+                    CholetteSpec spec = CholetteSpec.builder()
+                            .aggregationType(type)
+                            .rho(rho)
+                            .lambda(lambda)
+                            .build();
+                    CholetteSession session = new CholetteSession(TsData.ofInternal(q, Arrays.copyOf(x, 20)),
+                            TsData.ofInternal(a, Arrays.copyOf(y, 4)), spec, 2);
+                    for (int m = 21; m <= n; ++m) {
+                        // the annual figure of a year is available with the last quarter of the year
+                        TsData t = TsData.ofInternal(a, Arrays.copyOf(y, (m - 2) / 4));
+                        TsData b = session.update(DoubleSeq.of(x[m - 1]), t);
+                        TsData ref = Cholette.benchmark(TsData.ofInternal(q, Arrays.copyOf(x, m)), t, spec);
+                        // identical results in the window
+                        for (int i = q.until(session.getWindowStart()); i < m; ++i) {
+                            assertEquals(ref.getValue(i), b.getValue(i), 1e-9 * Math.max(1, Math.abs(ref.getValue(i))));
+                        }
+                    }
+                    // constraints are respected on the frozen periods
+                    TsData b = session.getBenchmark();
+                    TsData bc = b.aggregate(a.getUnit(), type, true);
+                    for (int i = 0; i < bc.length(); ++i) {
+                        assertEquals(y[i], bc.getValue(i), 1e-9 * Math.abs(y[i]));
+                    }
+                }
+            }
+        }
+    }
+}
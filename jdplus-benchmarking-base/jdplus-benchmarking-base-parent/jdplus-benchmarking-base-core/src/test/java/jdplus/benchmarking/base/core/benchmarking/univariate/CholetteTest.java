@@ -18,6 +18,7 @@ package jdplus.benchmarking.base.core.benchmarking.univariate;
 
 import jdplus.benchmarking.base.api.benchmarking.univariate.Cholette;
 import jdplus.benchmarking.base.api.benchmarking.univariate.CholetteSpec;
+import jdplus.benchmarking.base.api.benchmarking.univariate.CholetteSpec.BiasCorrection;
 import jdplus.benchmarking.base.api.benchmarking.univariate.Denton;
 import jdplus.benchmarking.base.api.benchmarking.univariate.DentonSpec;
 import jdplus.toolkit.base.api.data.AggregationType;
@@ -27,8 +28,12 @@ import jdplus.toolkit.base.api.timeseries.TsUnit;
 import jdplus.toolkit.base.api.timeseries.TsData;
 import jdplus.toolkit.base.core.timeseries.simplets.TsDataToolkit;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -143,6 +148,90 @@ public class CholetteTest {
         assertTrue(TsDataToolkit.subtract(t, bc).getValues().allMatch(w -> Math.abs(w) < 1e-9));
     }
 
+    @Test
+    public void testGls() {
+        DataBlock y = DataBlock.make(20);
+        y.set(i -> (1 + i) * 100);
+        DataBlock x = DataBlock.make(90);
+        x.set(i -> (1 + i) * (1 + i) + 10 * Math.sin(i));
+        TsPeriod q = TsPeriod.quarterly(1978, 3);
+        TsPeriod a = TsPeriod.yearly(1980);
+        TsData t = TsData.of(a, y);
+        TsData s = TsData.of(q, x);
+        for (AggregationType type : new AggregationType[]{AggregationType.Sum, AggregationType.Average}) {
+            for (double rho : new double[]{0, 0.5, 0.9, 1}) {
+                for (double lambda : new double[]{0, 0.6, 1}) {
+                    CholetteSpec spec = CholetteSpec.builder()
+                            .aggregationType(type)
+                            .lambda(lambda)
+                            .rho(rho)
+                            .build();
+                    TsData b0 = Cholette.benchmark(s, t, spec);
+                    TsData b1 = Cholette.benchmark(s, t, spec.toBuilder().engine(CholetteSpec.Engine.Gls).build());
+                    assertTrue(TsDataToolkit.subtract(b0, b1).getValues().allMatch(w -> Math.abs(w) < 1e-9 * b0.getValues().normInf()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        List<TsData> s = new ArrayList<>(), t = new ArrayList<>();
+        for (int k = 0; k < 20; ++k) {
+            int c = k;
+            DataBlock x = DataBlock.make(90);
+            x.set(i -> (1 + i) * (1 + i) + c * i);
+            DataBlock y = DataBlock.make(20);
+            y.set(i -> (1 + i) * 100 * (c + 1));
+            s.add(TsData.of(TsPeriod.quarterly(1978, 3 + k % 2), x));
+            t.add(TsData.of(TsPeriod.yearly(1980), y));
+        }
+        for (CholetteSpec.Engine engine : CholetteSpec.Engine.values()) {
+            for (double lambda : new double[]{0, 1}) {
+                for (BiasCorrection bias : BiasCorrection.values()) {
+                    CholetteSpec spec = CholetteSpec.builder()
+                            .lambda(lambda)
+                            .rho(0.8)
+                            .bias(bias)
+                            .engine(engine)
+                            .build();
+                    List<TsData> b = Cholette.benchmark(s, t, spec);
+                    for (int k = 0; k < s.size(); ++k) {
+                        TsData bk = Cholette.benchmark(s.get(k), t.get(k), spec);
+                        double eps = 1e-9 * bk.getValues().normInf();
+                        assertTrue(TsDataToolkit.subtract(bk, b.get(k)).getValues().allMatch(w -> Math.abs(w) < eps));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBatchGroup() {
+        List<TsData> s = new ArrayList<>(), t = new ArrayList<>();
+        for (int k = 0; k < 5; ++k) {
+            int c = k;
+            DataBlock x = DataBlock.make(90);
+            x.set(i -> (1 + i) * (1 + i) + c * i);
+            DataBlock y = DataBlock.make(20);
+            y.set(i -> (1 + i) * 100 * (c + 1));
+            s.add(TsData.of(TsPeriod.quarterly(1978, 3), x));
+            t.add(TsData.of(TsPeriod.yearly(1980), y));
+        }
+        for (CholetteSpec.Engine engine : CholetteSpec.Engine.values()) {
+            CholetteSpec spec = CholetteSpec.builder()
+                    .lambda(0)
+                    .rho(0.8)
+                    .engine(engine)
+                    .build();
+            // the first series alone and in a group of series with the same shape
+            TsData b0 = Cholette.benchmark(s.subList(0, 1), t.subList(0, 1), spec).get(0);
+            TsData b1 = Cholette.benchmark(s, t, spec).get(0);
+            assertEquals(b0.getStart(), b1.getStart());
+            assertArrayEquals(b0.getValues().toArray(), b1.getValues().toArray(), 1e-12 * b0.getValues().normInf());
+        }
+    }
+
 //    @Test
 //    @Disabled
     public void test1Legacy() {
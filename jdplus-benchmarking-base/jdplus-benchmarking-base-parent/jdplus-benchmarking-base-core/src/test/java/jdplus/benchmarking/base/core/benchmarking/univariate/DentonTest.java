@@ -27,7 +27,10 @@ import jdplus.toolkit.base.core.timeseries.simplets.TsDataToolkit;
 import org.junit.jupiter.api.Test;
 
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -75,4 +78,71 @@ public class DentonTest {
         TsData bc = b.aggregate(TsUnit.YEAR, AggregationType.Sum, true);
         assertTrue(TsDataToolkit.subtract(t, bc).getValues().allMatch(x -> Math.abs(x) < 1e-9));
     }
+
+    @Test
+    public void testEngines() {
+        assertSame(DentonSpec.Engine.Auto, DentonSpec.DEFAULT.getEngine());
+        for (int ny : new int[]{10, 60}) {
+            DataBlock y = DataBlock.make(ny);
+            y.set(i -> 100 + (1 + i) * (1 + i) + 10 * Math.sin(i));
+            TsData t = TsData.ofInternal(TsPeriod.yearly(1980), y.toArray());
+            DataBlock x = DataBlock.make(4 * ny);
+            x.set(i -> 50 + i + 5 * Math.cos(i));
+            TsData s = TsData.ofInternal(TsPeriod.quarterly(1980, 1), x.toArray());
+            TsData b0 = Denton.benchmark(TsUnit.QUARTER, t, DentonSpec.DEFAULT);
+            TsData i0 = Denton.benchmark(s, t, DentonSpec.DEFAULT);
+            for (DentonSpec.Engine engine : DentonSpec.Engine.values()) {
+                DentonSpec spec = DentonSpec.DEFAULT.toBuilder().engine(engine).build();
+                TsData b = Denton.benchmark(TsUnit.QUARTER, t, spec);
+                TsData bi = Denton.benchmark(s, t, spec);
+                assertTrue(TsDataToolkit.subtract(b0, b).getValues().allMatch(w -> Math.abs(w) < 1e-6));
+                assertTrue(TsDataToolkit.subtract(i0, bi).getValues().allMatch(w -> Math.abs(w) < 1e-6));
+            }
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        List<TsData> s = new ArrayList<>(), t = new ArrayList<>();
+        for (int k = 0; k < 20; ++k) {
+            int c = k;
+            DataBlock x = DataBlock.make(90);
+            x.set(i -> (1 + i) * (1 + i) + c * i);
+            DataBlock y = DataBlock.make(20);
+            y.set(i -> (1 + i) * (c + 1));
+            s.add(TsData.of(TsPeriod.quarterly(1978, 3 + k % 2), x));
+            t.add(TsData.of(TsPeriod.yearly(1980), y));
+        }
+        for (DentonSpec.Engine engine : DentonSpec.Engine.values()) {
+            for (boolean mul : new boolean[]{false, true}) {
+                DentonSpec spec = DentonSpec.builder()
+                        .multiplicative(mul)
+                        .engine(engine)
+                        .build();
+                List<TsData> b = Denton.benchmark(s, t, spec);
+                for (int k = 0; k < s.size(); ++k) {
+                    TsData bk = Denton.benchmark(s.get(k), t.get(k), spec);
+                    assertTrue(TsDataToolkit.subtract(bk, b.get(k)).getValues().allMatch(w -> Math.abs(w) < 1e-6));
+                }
+            }
+        }
+        // default specification (multiplicative, Auto engine), short and long series
+        for (int ny : new int[]{10, 60}) {
+            List<TsData> ls = new ArrayList<>(), lt = new ArrayList<>();
+            for (int k = 0; k < 8; ++k) {
+                int c = k;
+                DataBlock x = DataBlock.make(4 * ny);
+                x.set(i -> 100 + (1 + i) + c * Math.sin(i));
+                DataBlock y = DataBlock.make(ny);
+                y.set(i -> 500 + (1 + i) * (c + 5));
+                ls.add(TsData.of(TsPeriod.quarterly(1980, 1), x));
+                lt.add(TsData.of(TsPeriod.yearly(1980), y));
+            }
+            List<TsData> b = Denton.benchmark(ls, lt, DentonSpec.DEFAULT);
+            for (int k = 0; k < ls.size(); ++k) {
+                TsData bk = Denton.benchmark(ls.get(k), lt.get(k), DentonSpec.DEFAULT);
+                assertTrue(TsDataToolkit.subtract(bk, b.get(k)).getValues().allMatch(w -> Math.abs(w) < 1e-6));
+            }
+        }
+    }
 }
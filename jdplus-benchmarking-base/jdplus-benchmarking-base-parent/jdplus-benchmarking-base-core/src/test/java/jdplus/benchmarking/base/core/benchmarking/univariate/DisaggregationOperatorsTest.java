@@ -0,0 +1,155 @@
+/*
+ * Copyright 2024 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package jdplus.benchmarking.base.core.benchmarking.univariate;
+
+import jdplus.benchmarking.base.api.benchmarking.univariate.CubicSplineSpec;
+import jdplus.benchmarking.base.api.benchmarking.univariate.DentonSpec;
+import jdplus.toolkit.base.api.data.AggregationType;
+import jdplus.toolkit.base.api.data.DoubleSeq;
+import jdplus.toolkit.base.api.timeseries.TsData;
+import jdplus.toolkit.base.api.timeseries.TsPeriod;
+import jdplus.toolkit.base.core.data.DataBlock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author palatej
+ */
+public class DisaggregationOperatorsTest {
+
+    public DisaggregationOperatorsTest() {
+    }
+
+    @Test
+    public void testDenton() {
+        DataBlock y = DataBlock.make(20);
+        y.set(i -> (1 + i) * (1 + i) + 10 * Math.sin(i));
+        for (AggregationType type : new AggregationType[]{AggregationType.Sum, AggregationType.Average, AggregationType.Last}) {
+            DentonSpec spec = DentonSpec.builder()
+                    .aggregationType(type)
+                    .differencing(2)
+                    .build();
+            double[] r0 = new MatrixDenton(spec, 4, 0).process(y);
+            DisaggregationOperators.Operator op = DisaggregationOperators.denton(spec, 4, y.length());
+            assertSame(op, DisaggregationOperators.denton(spec, 4, y.length()));
+            double[] r1 = op.apply(y);
+            for (int i = 0; i < r0.length; ++i) {
+                assertEquals(r0[i], r1[i], 1e-7 * Math.max(1, Math.abs(r0[i])));
+            }
+        }
+    }
+
+    @Test
+    public void testCubicSpline() {
+        DataBlock y = DataBlock.make(20);
+        y.set(i -> (1 + i) * (1 + i) + 10 * Math.cos(i));
+        for (AggregationType type : new AggregationType[]{AggregationType.Sum, AggregationType.Average, AggregationType.First}) {
+            CubicSplineSpec spec = CubicSplineSpec.builder()
+                    .aggregationType(type)
+                    .build();
+            double[] r0 = CubicSplineProcessor.process(spec, 12, y);
+            DisaggregationOperators.Operator op = DisaggregationOperators.cubicSpline(spec, 12, y.length());
+            assertSame(op, DisaggregationOperators.cubicSpline(spec, 12, y.length()));
+            double[] r1 = op.apply(y);
+            double[][] r2 = op.apply(new double[][]{y.toArray(), y.toArray()});
+            for (int i = 0; i < r0.length; ++i) {
+                assertEquals(r0[i], r1[i], 1e-9 * Math.max(1, Math.abs(r0[i])));
+                assertEquals(r1[i], r2[1][i], 1e-12 * Math.max(1, Math.abs(r0[i])));
+            }
+        }
+    }
+
+    @Test
+    public void testCubicSplineInterpolation() {
+        int[][] layouts = {{40, 10, 4, 3}, {90, 20, 4, 2}, {24, 2, 12, 0}, {365, 12, 30, 15}};
+        for (int[] layout : layouts) {
+            int n = layout[0], ny = layout[1], ratio = layout[2], position = layout[3];
+            double[] xi = new double[ny];
+            double[][] y = new double[5][ny];
+            for (int j = 0; j < ny; ++j) {
+                xi[j] = position + j * ratio;
+                for (int l = 0; l < y.length; ++l) {
+                    y[l][j] = 100 + (l + 1) * j * j + 10 * Math.sin(j + l);
+                }
+            }
+            DisaggregationOperators.Operator op = DisaggregationOperators.cubicSplineInterpolation(n, ny, ratio, position);
+            double[][] x = op.apply(y);
+            for (int l = 0; l < y.length; ++l) {
+                DoubleUnaryOperator cs = jdplus.toolkit.base.core.math.splines.CubicSpline.of(xi, y[l]);
+                double[] xl = op.apply(DoubleSeq.of(y[l]));
+                for (int i = 0; i < n; ++i) {
+                    double c = cs.applyAsDouble(i);
+                    assertEquals(c, x[l][i], 1e-9 * Math.max(1, Math.abs(c)));
+                    assertEquals(xl[i], x[l][i], 1e-12 * Math.max(1, Math.abs(c)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCubicSplineBatch() {
+        List<TsData> s = new ArrayList<>(), t = new ArrayList<>();
+        for (int k = 0; k < 12; ++k) {
+            int c = k;
+            DataBlock x = DataBlock.make(90);
+            x.set(i -> 100 + (1 + i) * (1 + i) + c * i);
+            DataBlock y = DataBlock.make(20);
+            y.set(i -> 200 + (1 + i) * (c + 1) * 10);
+            s.add(TsData.of(TsPeriod.quarterly(1978, 3 + k % 2), x));
+            t.add(TsData.of(TsPeriod.yearly(1980), y));
+        }
+        for (AggregationType type : new AggregationType[]{AggregationType.First, AggregationType.Last, AggregationType.UserDefined, AggregationType.Sum}) {
+            CubicSplineSpec spec = CubicSplineSpec.builder()
+                    .aggregationType(type)
+                    .observationPosition(1)
+                    .build();
+            List<TsData> b = CubicSplineProcessor.PROCESSOR.benchmark(s, t, spec);
+            for (int k = 0; k < s.size(); ++k) {
+                TsData bk = CubicSplineProcessor.PROCESSOR.benchmark(s.get(k), t.get(k), spec);
+                assertEquals(bk.getStart(), b.get(k).getStart());
+                for (int i = 0; i < bk.length(); ++i) {
+                    assertEquals(bk.getValue(i), b.get(k).getValue(i), 1e-9 * Math.max(1, Math.abs(bk.getValue(i))));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBounds() {
+        DisaggregationOperators.clear();
+        // too large to be cached
+        DisaggregationOperators.Operator op = DisaggregationOperators.denton(DentonSpec.DEFAULT, 365, 20);
+        assertTrue(op.getMemorySize() > DisaggregationOperators.MAX_BYTES);
+        assertEquals(0, DisaggregationOperators.size());
+        DataBlock y = DataBlock.make(20);
+        y.set(i -> 100 + i * i);
+        double[] r = op.apply(y);
+        for (int j = 0; j < 20; ++j) {
+            assertEquals(y.get(j), DataBlock.of(r).range(j * 365, (j + 1) * 365).sum(), 1e-6 * y.get(j));
+        }
+        for (int i = 0; i < 200; ++i) {
+            DisaggregationOperators.denton(DentonSpec.DEFAULT, 12, 50 + 10 * i);
+            assertTrue(DisaggregationOperators.memorySize() <= DisaggregationOperators.MAX_BYTES);
+        }
+        assertTrue(DisaggregationOperators.size() < 200);
+    }
+}
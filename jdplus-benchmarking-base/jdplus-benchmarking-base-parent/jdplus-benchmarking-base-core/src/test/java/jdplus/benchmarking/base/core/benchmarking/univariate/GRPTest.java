@@ -8,11 +8,15 @@ package jdplus.benchmarking.base.core.benchmarking.univariate;
 import jdplus.benchmarking.base.api.benchmarking.univariate.DentonSpec;
 import jdplus.benchmarking.base.api.benchmarking.univariate.GrpSpec;
 import jdplus.toolkit.base.api.data.AggregationType;
+import jdplus.toolkit.base.api.timeseries.TsData;
+import jdplus.toolkit.base.api.timeseries.TsPeriod;
 import tck.demetra.data.Data;
 import jdplus.toolkit.base.api.data.DoubleSeq;
 import jdplus.toolkit.base.core.data.DataBlock;
+import jdplus.toolkit.base.core.math.functions.IFunctionPoint;
 import jdplus.toolkit.base.core.math.matrices.FastMatrix;
 import jdplus.toolkit.base.core.math.matrices.SymmetricMatrix;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -48,6 +52,117 @@ public class GRPTest {
         rslt = grp.process(x, y);
     }
 
+    @Test
+    public void testWarmStart() {
+        DataBlock y = DataBlock.of(Data.PCRA);
+        DataBlock x = DataBlock.of(Data.IND_PCR);
+        for (GrpSpec.Solver solver : GrpSpec.Solver.values()) {
+            GrpSpec spec = GrpSpec.builder().solver(solver).build();
+            // previous vintage: two years less
+            GRP grp = new GRP(spec, 4, 0);
+            double[] prev = grp.process(x, y.drop(0, 2));
+            double[] cold = grp.process(x, y);
+            GRP.Convergence c0 = grp.getConvergence();
+            double[] warm = grp.process(x, y, DoubleSeq.of(prev));
+            GRP.Convergence c1 = grp.getConvergence();
+            assertFalse(c0.isWarmStart());
+            assertTrue(c1.isWarmStart());
+            assertTrue(c1.getInitialObjective() < c0.getInitialObjective());
+            assertTrue(c1.getEvaluations() <= c0.getEvaluations());
+            assertNull(c0.getBaseline());
+            assertSame(c0, c1.getBaseline());
+            assertTrue(c0.getIterations() > 0);
+            assertTrue(c1.getIterations() >= 0);
+            assertEquals(c0.getEvaluations() - c1.getEvaluations(), c1.getSavedEvaluations());
+            assertEquals(c0.getIterations() - c1.getIterations(), c1.getSavedIterations());
+            assertTrue(DoubleSeq.of(cold).distance(DoubleSeq.of(warm)) < 1e-3 * DoubleSeq.of(cold).norm2());
+            for (int i = 0; i < y.length(); ++i) {
+                assertEquals(y.get(i), DataBlock.of(warm).range(4 * i, 4 * i + 4).sum(), 1e-6 * y.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testProcessorWarmStart() {
+        TsData x = TsData.ofInternal(TsPeriod.quarterly(1980, 1), Data.IND_PCR);
+        TsData y = TsData.ofInternal(TsPeriod.yearly(1980), Data.PCRA);
+        for (GrpSpec.Solver solver : GrpSpec.Solver.values()) {
+            GrpSpec spec = GrpSpec.builder().solver(solver).build();
+            // previous vintage: two years less
+            GRPProcessor.Results prev = GRPProcessor.PROCESSOR.process(x, y.drop(0, 2), spec, null, null);
+            GRPProcessor.Results cold = GRPProcessor.PROCESSOR.process(x, y, spec, null, null);
+            GRPProcessor.Results warm = GRPProcessor.PROCESSOR.process(x, y, spec, prev.getBenchmark(), cold.getConvergence());
+            GRP.Convergence c0 = cold.getConvergence(), c1 = warm.getConvergence();
+            assertFalse(c0.isWarmStart());
+            assertTrue(c1.isWarmStart());
+            assertSame(c0, c1.getBaseline());
+            assertEquals(c0.getIterations() - c1.getIterations(), c1.getSavedIterations());
+            assertEquals(c0.getEvaluations() - c1.getEvaluations(), c1.getSavedEvaluations());
+            assertTrue(c1.getSavedEvaluations() >= 0);
+            assertTrue(cold.getBenchmark().getValues().distance(warm.getBenchmark().getValues())
+                    < 1e-3 * cold.getBenchmark().getValues().norm2());
+            // the default entry point gives the same series
+            TsData w = GRPProcessor.PROCESSOR.benchmark(x, y, spec, prev.getBenchmark());
+            assertTrue(w.getValues().distance(warm.getBenchmark().getValues()) < 1e-9 * w.getValues().norm2());
+        }
+    }
+
+    @Test
+    public void testNewton() {
+        DataBlock y = DataBlock.of(Data.PCRA);
+        DataBlock x = DataBlock.of(Data.IND_PCR);
+        GRP grp = new GRP(GrpSpec.DEFAULT, 4, 0);
+        double[] r0 = grp.process(x, y);
+        GRP.Convergence c0 = grp.getConvergence();
+        GRP ngrp = new GRP(GrpSpec.builder().solver(GrpSpec.Solver.Newton).build(), 4, 0);
+        double[] r1 = ngrp.process(x, y);
+        GRP.Convergence c1 = ngrp.getConvergence();
+        assertTrue(c1.isConverged());
+        assertTrue(c1.getIterations() > 0);
+        assertTrue(c1.getObjective() <= c0.getObjective() + 1e-9);
+        FastMatrix K4 = FastMatrix.make(4, 3);
+        GRP.K(K4, true);
+        double[] mg = GRP.mg(r1, x.getStorage(), K4);
+        assertTrue(DoubleSeq.of(mg).allMatch(w -> Math.abs(w) < 1e-6));
+        assertTrue(DoubleSeq.of(r0).distance(DoubleSeq.of(r1)) < 1e-3 * DoubleSeq.of(r0).norm2());
+    }
+
+    @Test
+    public void testNewtonStock() {
+        DataBlock y = DataBlock.of(Data.PCRA);
+        DataBlock x = DataBlock.of(Data.IND_PCR);
+        GrpSpec spec = GrpSpec.builder()
+                .aggregationType(AggregationType.Last)
+                .solver(GrpSpec.Solver.Newton)
+                .build();
+        GRP grp = new GRP(spec, 4, 0);
+        double[] rslt = grp.process(x, y);
+        assertTrue(grp.getConvergence().isConverged());
+        for (int i = 0; i < y.length(); ++i) {
+            assertEquals(y.get(i), rslt[4 * i + 3], 1e-6 * Math.abs(y.get(i)));
+        }
+    }
+
+    @Test
+    public void testWorkspace() {
+        DataBlock y = DataBlock.of(Data.PCRA);
+        double[] x = DataBlock.of(Data.IND_PCR).range(0, 4 * y.length()).toArray();
+        GRPBasis basis = new GRPBasis(4, true);
+        GRPFunction fn = new GRPFunction(new GRPWorkspace(x, y.toArray(), basis));
+        double[] z0 = new double[3 * y.length()], z1 = new double[3 * y.length()];
+        z1[0] = 1;
+        IFunctionPoint p0 = fn.evaluate(DoubleSeq.of(z0));
+        IFunctionPoint p1 = fn.evaluate(DoubleSeq.of(z1));
+        // the workspace contains p1
+        double[] x0 = ((GRPFunction.Point) p0).x();
+        assertEquals(GRP.f(x0, x), p0.getValue(), 1e-15);
+        DoubleSeq g0 = p0.derivatives().gradient();
+        assertTrue(g0.distance(DoubleSeq.of(GRP.mg(x0, x, basis))) < 1e-12);
+        DoubleSeq g1 = p1.derivatives().gradient();
+        double[] x1 = ((GRPFunction.Point) p1).x();
+        assertTrue(g1.distance(DoubleSeq.of(GRP.mg(x1, x, basis))) < 1e-12);
+    }
+
     @Test
     public void testK() {
         FastMatrix K4 = FastMatrix.make(4, 3);
@@ -62,6 +177,165 @@ public class GRPTest {
         assertTrue(identity);
     }
 
+    @Test
+    public void testKernels() {
+        for (int s : new int[]{3, 4, 12, 52}) {
+            FastMatrix K = FastMatrix.make(s, s - 1);
+            GRP.K(K, true);
+            DataBlock x = DataBlock.make(5 * s);
+            x.set(i -> Math.sin(i) + 2);
+            double[] z = GRP.Ztx(x.getStorage(), K, true);
+            for (int i = 0, j = 0; i < 5; ++i) {
+                DataBlock xi = x.range(i * s, i * s + s);
+                for (int c = 0; c < s - 1; ++c) {
+                    assertEquals(K.column(c).dot(xi), z[j++], 1e-12);
+                }
+            }
+            double[] zz = GRP.Zz(z, K, true);
+            for (int i = 0; i < 5; ++i) {
+                DataBlock xi = x.range(i * s, i * s + s);
+                double m = xi.average();
+                for (int l = 0; l < s; ++l) {
+                    assertEquals(xi.get(l) - m, zz[i * s + l], 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDenseBasis() {
+        Random rnd = new Random(0);
+        for (int s : new int[]{3, 4, 12, 52}) {
+            int s1 = s - 1, m = 3;
+            // orthonormal basis of the contrasts, by Gram-Schmidt on the
+            // centered unit vectors
+            double[][] K = new double[s1][];
+            for (int c = 0; c < s1; ++c) {
+                double[] k = new double[s];
+                for (int l = 0; l < s; ++l) {
+                    k[l] = (l == c ? 1 : 0) - 1.0 / s;
+                }
+                for (int j = 0; j < c; ++j) {
+                    double q = dot(K[j], k);
+                    for (int l = 0; l < s; ++l) {
+                        k[l] -= q * K[j][l];
+                    }
+                }
+                double n = Math.sqrt(dot(k, k));
+                for (int l = 0; l < s; ++l) {
+                    k[l] /= n;
+                }
+                K[c] = k;
+            }
+            GRPBasis basis = new GRPBasis(s, true);
+            for (int c = 0; c < s1; ++c) {
+                for (int l = 0; l < s; ++l) {
+                    assertEquals(K[c][l], basis.get(l, c), 1e-12);
+                }
+            }
+            double[] v = new double[m * s], z = new double[m * s1], x = new double[m * s];
+            for (int i = 0; i < v.length; ++i) {
+                v[i] = rnd.nextGaussian();
+            }
+            for (int i = 0; i < z.length; ++i) {
+                z[i] = rnd.nextGaussian();
+            }
+            double[] kv = new double[m * s1];
+            basis.ztv(v, kv);
+            basis.zz(z, x);
+            for (int i = 0; i < m; ++i) {
+                for (int c = 0; c < s1; ++c) {
+                    double q = 0;
+                    for (int l = 0; l < s; ++l) {
+                        q += K[c][l] * v[i * s + l];
+                    }
+                    assertEquals(q, kv[i * s1 + c], 1e-12);
+                }
+                for (int l = 0; l < s; ++l) {
+                    double q = 0;
+                    for (int c = 0; c < s1; ++c) {
+                        q += K[c][l] * z[i * s1 + c];
+                    }
+                    assertEquals(q, x[i * s + l], 1e-12);
+                }
+            }
+            // K'TK, T tridiagonal
+            double[] d = new double[s], e = new double[s], w = new double[s], ktk = new double[s1 * s1];
+            for (int l = 0; l < s; ++l) {
+                d[l] = 2 + rnd.nextDouble();
+                e[l] = l == 0 ? 0 : rnd.nextGaussian();
+            }
+            basis.ktk(d, e, w, ktk);
+            for (int r = 0; r < s1; ++r) {
+                for (int c = 0; c <= r; ++c) {
+                    double q = 0;
+                    for (int l = 0; l < s; ++l) {
+                        double tl = d[l] * K[c][l];
+                        if (l > 0) {
+                            tl += e[l] * K[c][l - 1];
+                        }
+                        if (l < s1) {
+                            tl += e[l + 1] * K[c][l + 1];
+                        }
+                        q += K[r][l] * tl;
+                    }
+                    assertEquals(q, ktk[r * s1 + c], 1e-10);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testReducedHessian() {
+        Random rnd = new Random(1);
+        for (int s : new int[]{3, 4, 12}) {
+            for (boolean flow : new boolean[]{true, false}) {
+                GRPBasis basis = new GRPBasis(s, flow);
+                int nz = 4 * (s - 1), n = basis.xlength(nz);
+                double[] p = new double[n], x = new double[n];
+                for (int i = 0; i < n; ++i) {
+                    p[i] = 10 + rnd.nextDouble();
+                    x[i] = p[i] * (1 + .1 * rnd.nextGaussian());
+                }
+                // dense Z (by columns) and h
+                double[][] Z = new double[nz][n];
+                double[] u = new double[nz];
+                for (int k = 0; k < nz; ++k) {
+                    u[k] = 1;
+                    basis.zz(u, Z[k]);
+                    u[k] = 0;
+                }
+                double[][] h = new double[n][n];
+                for (int i = 0; i < n; ++i) {
+                    for (int j = 0; j < n; ++j) {
+                        h[i][j] = GRP.h(i, j, x, p);
+                    }
+                }
+                SymmetricBandMatrix H = new SymmetricBandMatrix(nz, basis.hessianBandwidth());
+                GRP.hessian(x, p, basis, H);
+                for (int r = 0; r < nz; ++r) {
+                    for (int c = 0; c <= r; ++c) {
+                        double q = 0;
+                        for (int i = 0; i < n; ++i) {
+                            for (int j = 0; j < n; ++j) {
+                                q += Z[r][i] * h[i][j] * Z[c][j];
+                            }
+                        }
+                        assertEquals(q, H.get(r, c), 1e-12 * Math.max(1, Math.abs(q)));
+                    }
+                }
+            }
+        }
+    }
+
+    private static double dot(double[] x, double[] y) {
+        double s = 0;
+        for (int i = 0; i < x.length; ++i) {
+            s += x[i] * y[i];
+        }
+        return s;
+    }
+
     @Test
     public void testGradient() {
         DataBlock y = DataBlock.make(20);
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2024 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package jdplus.benchmarking.base.core.univariate;
+
+import java.util.Random;
+import jdplus.toolkit.base.core.data.DataBlock;
+import jdplus.toolkit.base.core.math.matrices.FastMatrix;
+import jdplus.toolkit.base.core.math.matrices.QuadraticForm;
+import jdplus.toolkit.base.core.math.matrices.SymmetricMatrix;
+import jdplus.toolkit.base.core.ssf.DataBlockResults;
+import jdplus.toolkit.base.core.ssf.ISsfLoading;
+import jdplus.toolkit.base.core.ssf.StateComponent;
+import jdplus.toolkit.base.core.ssf.arima.AR1;
+import jdplus.toolkit.base.core.ssf.arima.Arima_1_1_0;
+import jdplus.toolkit.base.core.ssf.arima.Rw;
+import jdplus.toolkit.base.core.ssf.benchmarking.SsfCumulator;
+import jdplus.toolkit.base.core.ssf.dk.DefaultDiffuseFilteringResults;
+import jdplus.toolkit.base.core.ssf.dk.DkToolkit;
+import jdplus.toolkit.base.core.ssf.dk.FastDkSmoother;
+import jdplus.toolkit.base.core.ssf.univariate.Ssf;
+import jdplus.toolkit.base.core.ssf.univariate.SsfData;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *
+ * @author palatej
+ */
+public class RegressorsSmootherTest {
+
+    public RegressorsSmootherTest() {
+    }
+
+    @Test
+    public void testVarianceCorrection() {
+        Random rnd = new Random(0);
+        int n = 120;
+        for (int k = 1; k <= 30; k += 7) {
+            FastMatrix A = FastMatrix.make(n, k);
+            FastMatrix B = FastMatrix.make(k + 5, k);
+            for (int j = 0; j < k; ++j) {
+                for (int i = 0; i < n; ++i) {
+                    A.set(i, j, rnd.nextGaussian());
+                }
+                for (int i = 0; i < k + 5; ++i) {
+                    B.set(i, j, rnd.nextGaussian());
+                }
+            }
+            FastMatrix V = SymmetricMatrix.XtX(B);
+            double[] d = RegressorsSmoother.varianceCorrection(A, V);
+            for (int i = 0; i < n; ++i) {
+                double q = QuadraticForm.apply(V, A.row(i));
+                assertEquals(q, d[i], 1e-9 * Math.max(1, Math.abs(q)));
+            }
+        }
+    }
+
+    @Test
+    public void testSmooth() {
+        Random rnd = new Random(0);
+        int n = 60, ratio = 4, nx = 5;
+        StateComponent[] cmps = {Rw.of(1, false), AR1.of(.7, 1, false), Arima_1_1_0.of(.5, 1, false)};
+        ISsfLoading[] loadings = {Rw.defaultLoading(), AR1.defaultLoading(), Arima_1_1_0.defaultLoading()};
+        FastMatrix X = FastMatrix.make(n, nx);
+        for (int j = 0; j < nx; ++j) {
+            for (int i = 0; i < n; ++i) {
+                X.set(i, j, rnd.nextGaussian() + i * .1 * j);
+            }
+        }
+        for (int k = 0; k < cmps.length; ++k) {
+            // interpolation
+            for (int pos = 0; pos < ratio; ++pos) {
+                double[] y = new double[n];
+                for (int i = 0; i < n; ++i) {
+                    y[i] = i % ratio == pos ? rnd.nextGaussian() : Double.NaN;
+                }
+                Ssf ssf = Ssf.of(cmps[k], loadings[k]);
+                DefaultDiffuseFilteringResults frslts = DkToolkit.filter(ssf, new SsfData(DataBlock.of(y)), true);
+                FastMatrix LX = new RegressorsSmoother(ssf, frslts, loadings[k], 0).smooth(X, X);
+                compare(reference(ssf, frslts, loadings[k], 0, X, X), LX);
+            }
+            // disaggregation
+            FastMatrix XC = X.deepClone();
+            for (int j = 0; j < nx; ++j) {
+                DataBlock xc = XC.column(j);
+                for (int i = 1; i < n; ++i) {
+                    if (i % ratio != 0) {
+                        xc.add(i, xc.get(i - 1));
+                    }
+                }
+            }
+            double[] y = new double[n];
+            for (int i = 0; i < n; ++i) {
+                y[i] = i % ratio == ratio - 1 ? rnd.nextGaussian() : Double.NaN;
+            }
+            Ssf cssf = Ssf.of(SsfCumulator.of(cmps[k], loadings[k], ratio, 0), SsfCumulator.defaultLoading(loadings[k], ratio, 0));
+            DefaultDiffuseFilteringResults frslts = DkToolkit.filter(cssf, new SsfData(DataBlock.of(y)), true);
+            FastMatrix LX = new RegressorsSmoother(cssf, frslts, loadings[k], 1).smooth(X, XC);
+            compare(reference(cssf, frslts, loadings[k], 1, X, XC), LX);
+        }
+    }
+
+    private static FastMatrix reference(Ssf ssf, DefaultDiffuseFilteringResults frslts, ISsfLoading loading, int offset, FastMatrix X, FastMatrix XS) {
+        FastMatrix LX = FastMatrix.make(X.getRowsCount(), X.getColumnsCount());
+        FastDkSmoother smoother = new FastDkSmoother(ssf, frslts);
+        for (int j = 0; j < X.getColumnsCount(); ++j) {
+            smoother.smooth(DataBlock.of(XS.column(j).toArray()));
+            DataBlockResults ss = smoother.smoothedStates();
+            LX.column(j).set(i -> loading.ZX(i, ss.datablock(i).drop(offset, 0)));
+        }
+        LX.sub(X);
+        return LX;
+    }
+
+    private static void compare(FastMatrix R, FastMatrix LX) {
+        for (int j = 0; j < R.getColumnsCount(); ++j) {
+            for (int i = 0; i < R.getRowsCount(); ++i) {
+                assertEquals(R.get(i, j), LX.get(i, j), 1e-9 * Math.max(1, Math.abs(R.get(i, j))));
+            }
+        }
+    }
+
+}
@@ -5,11 +5,18 @@
  */
 package jdplus.benchmarking.base.core.univariate;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import jdplus.toolkit.base.api.data.AggregationType;
+import jdplus.toolkit.base.api.data.Parameter;
 import tck.demetra.data.Data;
 import jdplus.toolkit.base.api.ssf.SsfInitialization;
 import jdplus.toolkit.base.api.timeseries.TsData;
 import jdplus.toolkit.base.api.timeseries.TsPeriod;
+import jdplus.toolkit.base.api.timeseries.regression.Constant;
+import jdplus.toolkit.base.api.timeseries.regression.UserVariable;
+import jdplus.toolkit.base.api.timeseries.regression.Variable;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 import jdplus.benchmarking.base.api.univariate.TemporalDisaggregationSpec;
@@ -426,5 +433,215 @@ public class TemporalDisaggregationProcessorTest {
         TemporalDisaggregationResults rslt3 = TemporalDisaggregationProcessor.process(y3, new TsData[]{q3}, spec);
         assertTrue(rslt3 != null);
     }
-    
+
+    @Test
+    public void testBatch() {
+        TsData q = TsData.ofInternal(TsPeriod.quarterly(1977, 1), Data.IND_PCR);
+        List<TsData> y = new ArrayList<>();
+        for (int i = 0; i < 6; ++i) {
+            // same span for some series, different spans for the others
+            y.add(TsData.ofInternal(TsPeriod.yearly(1977 + i / 2), Data.PCRA).multiply(1 + .1 * i));
+        }
+        TemporalDisaggregationSpec[] specs = {
+            TemporalDisaggregationSpec.builder()
+            .aggregationType(AggregationType.Sum)
+            .residualsModel(TemporalDisaggregationSpec.Model.Ar1)
+            .constant(true)
+            .fast(true)
+            .build(),
+            TemporalDisaggregationSpec.builder()
+            .aggregationType(AggregationType.Average)
+            .residualsModel(TemporalDisaggregationSpec.Model.Ar1)
+            .parameter(Parameter.fixed(.7))
+            .constant(true)
+            .fast(true)
+            .build(),
+            TemporalDisaggregationSpec.builder()
+            .aggregationType(AggregationType.Last)
+            .residualsModel(TemporalDisaggregationSpec.Model.Rw)
+            .constant(false)
+            .fast(true)
+            .build(),
+            TemporalDisaggregationSpec.builder()
+            .aggregationType(AggregationType.Sum)
+            .residualsModel(TemporalDisaggregationSpec.Model.Rw)
+            .constant(false)
+            .algorithm(SsfInitialization.SqrtDiffuse)
+            .build()
+        };
+        for (TemporalDisaggregationSpec spec : specs) {
+            List<TemporalDisaggregationResults> rslts = TemporalDisaggregationProcessor.process(y, new TsData[]{q}, spec);
+            assertEquals(y.size(), rslts.size());
+            for (int i = 0; i < y.size(); ++i) {
+                TemporalDisaggregationResults ref = TemporalDisaggregationProcessor.process(y.get(i), new TsData[]{q}, spec);
+                TemporalDisaggregationResults rslt = rslts.get(i);
+                assertEquals(ref.getDisaggregatedSeries().getDomain(), rslt.getDisaggregatedSeries().getDomain());
+                assertArrayEquals(ref.getDisaggregatedSeries().getValues().toArray(), rslt.getDisaggregatedSeries().getValues().toArray());
+                assertArrayEquals(ref.getStdevDisaggregatedSeries().getValues().toArray(), rslt.getStdevDisaggregatedSeries().getValues().toArray());
+                assertArrayEquals(ref.getCoefficients().toArray(), rslt.getCoefficients().toArray());
+            }
+        }
+    }
+
+    @Test
+    public void testLikelihoodProfile() {
+        TsData y = TsData.ofInternal(TsPeriod.yearly(1978), Data.PCRA);
+        TsData q = TsData.ofInternal(TsPeriod.quarterly(1977, 1), Data.IND_PCR);
+        TemporalDisaggregationSpec spec = TemporalDisaggregationSpec.builder()
+                .aggregationType(AggregationType.Sum)
+                .residualsModel(TemporalDisaggregationSpec.Model.Ar1)
+                .constant(true)
+                .estimationPrecision(1e-9)
+                .build();
+        TemporalDisaggregationResults rslt = TemporalDisaggregationProcessor.process(y, new TsData[]{q}, spec);
+        double rho = rslt.getMaximum().getParameters()[0];
+        double ll = rslt.getLikelihood().logLikelihood();
+        LikelihoodProfile profile = TemporalDisaggregationProcessor.likelihoodProfile(y, new TsData[]{q}, spec, 50);
+        assertEquals(50, profile.getLogLikelihoods().length);
+        int imax = profile.maximumPosition();
+        assertTrue(imax >= 0);
+        assertTrue(profile.getLogLikelihoods()[imax] <= ll + 1e-6);
+        assertTrue(Math.abs(profile.getParameters()[imax] - rho) <= 2.0 / 51);
+
+        // evaluation at the estimated parameter
+        double[] grid = {rho};
+        DisaggregationModel model = new DisaggregationModelBuilder(y)
+                .disaggregationDomain(q.getDomain())
+                .aggregationType(AggregationType.Sum)
+                .addX(Variable.variable("C", Constant.C))
+                .addX(Variable.variable("var1", new UserVariable(null, q)))
+                .rescale(spec.isRescale())
+                .build();
+        LikelihoodProfile p = TemporalDisaggregationProcessor.likelihoodProfile(model, spec, grid);
+        assertEquals(ll, p.getLogLikelihoods()[0], 1e-6);
+
+        // no parameter
+        assertNull(TemporalDisaggregationProcessor.likelihoodProfile(y, new TsData[]{q},
+                TemporalDisaggregationSpec.FERNANDEZ, 50));
+    }
+
+    @Test
+    public void testBrent() {
+        TsData y = TsData.ofInternal(TsPeriod.yearly(1978), Data.PCRA);
+        TsData q = TsData.ofInternal(TsPeriod.quarterly(1977, 1), Data.IND_PCR);
+        TemporalDisaggregationSpec lm = TemporalDisaggregationSpec.builder()
+                .aggregationType(AggregationType.Sum)
+                .residualsModel(TemporalDisaggregationSpec.Model.Ar1)
+                .constant(true)
+                .estimationPrecision(1e-9)
+                .build();
+        TemporalDisaggregationSpec[] specs = new TemporalDisaggregationSpec[]{
+            lm,
+            lm.toBuilder().truncatedParameter(0.0).build(),
+            lm.toBuilder().residualsModel(TemporalDisaggregationSpec.Model.RwAr1).build(),
+            lm.toBuilder().aggregationType(AggregationType.Last).build()
+        };
+        for (TemporalDisaggregationSpec spec : specs) {
+            TemporalDisaggregationResults rlm = TemporalDisaggregationProcessor.process(y, new TsData[]{q}, spec);
+            TemporalDisaggregationResults rbrent = TemporalDisaggregationProcessor.process(y, new TsData[]{q},
+                    spec.toBuilder().optimizer(TemporalDisaggregationSpec.Optimizer.Brent).build());
+            assertEquals(rlm.getMaximum().getParameters()[0], rbrent.getMaximum().getParameters()[0], 1e-4);
+            assertEquals(rlm.getLikelihood().logLikelihood(), rbrent.getLikelihood().logLikelihood(), 1e-6);
+            // the Levenberg-Marquardt curvature is a Gauss-Newton approximation
+            double hlm = rlm.getMaximum().getHessian().get(0, 0);
+            double hbrent = rbrent.getMaximum().getHessian().get(0, 0);
+            assertEquals(hlm, hbrent, .2 * Math.abs(hlm));
+            assertTrue(rbrent.getLikelihoodEvaluations() > 0);
+        }
+        TemporalDisaggregationResults rfixed = TemporalDisaggregationProcessor.process(y, new TsData[]{q},
+                TemporalDisaggregationSpec.FERNANDEZ);
+        assertEquals(0, rfixed.getLikelihoodEvaluations());
+    }
+
+    @Test
+    public void testFilterPasses() {
+        TsData y = TsData.ofInternal(TsPeriod.yearly(1978), Data.PCRA);
+        TsData q = TsData.ofInternal(TsPeriod.quarterly(1977, 1), Data.IND_PCR);
+        TemporalDisaggregationSpec fast = TemporalDisaggregationSpec.builder()
+                .aggregationType(AggregationType.Sum)
+                .residualsModel(TemporalDisaggregationSpec.Model.Ar1)
+                .constant(true)
+                .estimationPrecision(1e-9)
+                .fast(true)
+                .build();
+        TemporalDisaggregationSpec[] specs = new TemporalDisaggregationSpec[]{
+            fast,
+            fast.toBuilder().aggregationType(AggregationType.Last).build(),
+            fast.toBuilder().residualsModel(TemporalDisaggregationSpec.Model.Rw).build(),
+            // the indicator starts before the aggregated series
+            fast.toBuilder().zeroInitialization(true).build(),
+            fast.toBuilder().zeroInitialization(true).aggregationType(AggregationType.Last).build(),
+            fast.toBuilder().zeroInitialization(true).residualsModel(TemporalDisaggregationSpec.Model.RwAr1).build()
+        };
+        for (TemporalDisaggregationSpec spec : specs) {
+            TemporalDisaggregationResults rfast = TemporalDisaggregationProcessor.process(y, new TsData[]{q}, spec);
+            TemporalDisaggregationResults rslow = TemporalDisaggregationProcessor.process(y, new TsData[]{q},
+                    spec.toBuilder().fast(false).build());
+            // with a zero initialization, the residuals need their own filter
+            assertEquals(spec.isZeroInitialization() ? 2 : 1, rfast.getFilterPasses());
+            assertEquals(2, rslow.getFilterPasses());
+            // residuals of the single filter run
+            TsData efast = rfast.getResidualsDiagnostics().getFullResiduals();
+            TsData eslow = rslow.getResidualsDiagnostics().getFullResiduals();
+            assertEquals(eslow.getDomain(), efast.getDomain());
+            assertArrayEquals(eslow.getValues().toArray(), efast.getValues().toArray(), 1e-6);
+            // the filters of the estimation are not counted
+            assertTrue(rfast.getLikelihoodEvaluations() > 0);
+        }
+    }
+
+    @Test
+    public void testResidualsWithoutRegressors() {
+        TsData y = TsData.ofInternal(TsPeriod.yearly(1978), Data.PCRA);
+        TemporalDisaggregationSpec spec = TemporalDisaggregationSpec.builder()
+                .aggregationType(AggregationType.Sum)
+                .residualsModel(TemporalDisaggregationSpec.Model.Rw)
+                .constant(false)
+                .build();
+        TemporalDisaggregationResults rslow = TemporalDisaggregationProcessor.process(y, new TsData[0], spec);
+        TemporalDisaggregationResults rfast = TemporalDisaggregationProcessor.process(y, new TsData[0],
+                spec.toBuilder().fast(true).build());
+        // the residuals are the prediction errors of the series itself
+        TsData eslow = rslow.getResidualsDiagnostics().getFullResiduals();
+        TsData efast = rfast.getResidualsDiagnostics().getFullResiduals();
+        assertTrue(eslow.getValues().ssq() > 0);
+        assertEquals(efast.getDomain(), eslow.getDomain());
+        assertArrayEquals(efast.getValues().toArray(), eslow.getValues().toArray(), 1e-6);
+    }
+
+    @Test
+    public void testManyIndicators() {
+        TsData y = TsData.ofInternal(TsPeriod.yearly(1978), Data.PCRA);
+        TsData q = TsData.ofInternal(TsPeriod.quarterly(1977, 1), Data.IND_PCR);
+        Random rnd = new Random(0);
+        TsData[] indicators = new TsData[12];
+        for (int k = 0; k < indicators.length; ++k) {
+            double[] x = q.getValues().toArray();
+            for (int i = 0; i < x.length; ++i) {
+                x[i] *= 1 + .2 * rnd.nextGaussian();
+            }
+            indicators[k] = TsData.ofInternal(q.getStart(), x);
+        }
+        TemporalDisaggregationSpec fast = TemporalDisaggregationSpec.builder()
+                .aggregationType(AggregationType.Sum)
+                .residualsModel(TemporalDisaggregationSpec.Model.Ar1)
+                .parameter(Parameter.fixed(.7))
+                .constant(true)
+                .fast(true)
+                .build();
+        TemporalDisaggregationSpec[] specs = new TemporalDisaggregationSpec[]{
+            fast,
+            fast.toBuilder().aggregationType(AggregationType.Last).build()
+        };
+        for (TemporalDisaggregationSpec spec : specs) {
+            TemporalDisaggregationResults rfast = TemporalDisaggregationProcessor.process(y, indicators, spec);
+            TemporalDisaggregationResults rslow = TemporalDisaggregationProcessor.process(y, indicators,
+                    spec.toBuilder().fast(false).build());
+            double scale = Math.sqrt(rslow.getDisaggregatedSeries().getValues().ssq());
+            assertTrue(rfast.getDisaggregatedSeries().distance(rslow.getDisaggregatedSeries()) < 1e-6 * scale);
+            double escale = Math.sqrt(rslow.getStdevDisaggregatedSeries().getValues().ssq());
+            assertTrue(rfast.getStdevDisaggregatedSeries().distance(rslow.getStdevDisaggregatedSeries()) < 1e-6 * escale);
+        }
+    }
+
 }
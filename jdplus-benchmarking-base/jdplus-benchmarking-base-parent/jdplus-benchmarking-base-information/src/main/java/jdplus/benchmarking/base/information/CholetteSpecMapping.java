@@ -29,7 +29,7 @@ import jdplus.toolkit.base.api.information.InformationSetSerializer;
 @lombok.experimental.UtilityClass
 public class CholetteSpecMapping {
     public final String LAMBDA = "lambda",
-            RHO = "rho", BIAS="bias", TYPE = "type", FREQ = "defaultfrequency", POS="position";
+            RHO = "rho", BIAS="bias", TYPE = "type", FREQ = "defaultfrequency", POS="position", ENGINE = "engine";
     
     public static final InformationSetSerializer<CholetteSpec> SERIALIZER = new InformationSetSerializer<CholetteSpec>() {
         @Override
@@ -72,6 +72,9 @@ public class CholetteSpecMapping {
         Integer freq=info.get(FREQ, Integer.class);
         if (freq != null)
             builder.defaultPeriod(freq);
+        String engine=info.get(ENGINE, String.class);
+        if (engine != null)
+            builder.engine(CholetteSpec.Engine.valueOf(engine));
         return builder.build();
     }
     
@@ -83,6 +86,8 @@ public class CholetteSpecMapping {
         info.set(TYPE, spec.getAggregationType().name());
         info.set(POS, spec.getObservationPosition());
         info.set(FREQ, spec.getDefaultPeriod());
+        if (verbose || spec.getEngine() != CholetteSpec.DEF_ENGINE)
+            info.set(ENGINE, spec.getEngine().name());
         return info;
     }
     
@@ -28,7 +28,7 @@ import jdplus.toolkit.base.api.information.InformationSetSerializer;
  */
 @lombok.experimental.UtilityClass
 public class DentonSpecMapping {
-    public final String MUL = "multiplicative", DIFF = "differencing", MOD = "modified", TYPE = "type", POS="position", FREQ = "defaultfrequency";
+    public final String MUL = "multiplicative", DIFF = "differencing", MOD = "modified", TYPE = "type", POS="position", FREQ = "defaultfrequency", ENGINE = "engine";
     
     public static final InformationSetSerializer<DentonSpec> SERIALIZER = new InformationSetSerializer<DentonSpec>() {
         @Override
@@ -71,6 +71,9 @@ public class DentonSpecMapping {
         Integer freq=info.get(FREQ, Integer.class);
         if (freq != null)
             builder.defaultPeriod(freq);
+        String engine=info.get(ENGINE, String.class);
+        if (engine != null)
+            builder.engine(DentonSpec.Engine.valueOf(engine));
         return builder.build();
     }
     
@@ -82,6 +85,8 @@ public class DentonSpecMapping {
         info.set(TYPE, spec.getAggregationType().name());
         info.set(POS, spec.getObservationPosition());
         info.set(FREQ, spec.getDefaultPeriod());
+        if (verbose || spec.getEngine() != DentonSpec.DEF_ENGINE)
+            info.set(ENGINE, spec.getEngine().name());
         return info;
     }
     
@@ -36,7 +36,7 @@ public class TemporalDisaggregationSpecMapping {
 
     public final String SPAN = "span", MODEL = "model", PARAMETER = "parameter", AGGTYPE = "aggregation",
             CONSTANT = "constant", TREND = "trend", ZEROINIT = "zeroinit", DIFFUSEREGS = "diffuseregs",
-            EPS = "precision", LOG = "log", SSF = "ssfoption", FREQ = "defaultfrequency", FAST = "fast", RESCALING = "rescaling", TRUNCATED = "truncatedrho";
+            EPS = "precision", LOG = "log", SSF = "ssfoption", FREQ = "defaultfrequency", FAST = "fast", RESCALING = "rescaling", TRUNCATED = "truncatedrho", OPTIMIZER = "optimizer";
 
     public static final InformationSetSerializer<TemporalDisaggregationSpec> SERIALIZER = new InformationSetSerializer<TemporalDisaggregationSpec>() {
         @Override
@@ -127,6 +127,10 @@ public class TemporalDisaggregationSpecMapping {
         if (e != null) {
             builder.estimationPrecision(e);
         }
+        n = info.get(OPTIMIZER, String.class);
+        if (n != null) {
+            builder.optimizer(TemporalDisaggregationSpec.Optimizer.valueOf(n));
+        }
         return builder.build();
     }
 
@@ -172,6 +176,9 @@ public class TemporalDisaggregationSpecMapping {
         if (spec.getTruncatedParameter() != 0 || verbose) {
             info.set(TRUNCATED, spec.getTruncatedParameter());
         }
+        if (spec.getOptimizer() != TemporalDisaggregationSpec.DEF_OPTIMIZER || verbose) {
+            info.set(OPTIMIZER, spec.getOptimizer().name());
+        }
         return info;
     }
 
@@ -77,6 +77,10 @@ public class Benchmarking {
     }
 
     public TsData grp(TsData source, TsData bench, String conversion, int pos, double eps, int iter, boolean denton) {
+        return grp(source, bench, conversion, pos, eps, iter, denton, GrpSpec.DEF_SOLVER.name());
+    }
+
+    public TsData grp(TsData source, TsData bench, String conversion, int pos, double eps, int iter, boolean denton, String solver) {
         AggregationType type = AggregationType.valueOf(conversion);
         GrpSpec spec=GrpSpec.builder()
                 .aggregationType(type)
@@ -84,6 +88,7 @@ public class Benchmarking {
                 .maxIter(iter)
                 .precision(eps)
                 .dentonInitialization(denton)
+                .solver(GrpSpec.Solver.valueOf(solver))
                 .build();
         return GrowthRatePreservation.benchmark(source.cleanExtremities(), bench.cleanExtremities(), spec);
     }
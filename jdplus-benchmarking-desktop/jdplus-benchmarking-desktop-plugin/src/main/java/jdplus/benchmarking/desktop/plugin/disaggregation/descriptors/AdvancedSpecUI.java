@@ -33,10 +33,10 @@ public class AdvancedSpecUI extends BaseTemporalDisaggregationSpecUI {
 
     public static final String DISPLAYNAME = "Advanced options";
     public static final String EPS_NAME = "Precision", KF_NAME = "Method", FAST_NAME = "Fast", ALGORITHM_NAME = "Algorithm",
-            ZERO_NAME = "Zero initialization", TRUNCATED_NAME = "Truncated rho", DREGS_NAME = "Diffuse regression coefficients", RESCALE_NAME="Rescale";
+            ZERO_NAME = "Zero initialization", TRUNCATED_NAME = "Truncated rho", DREGS_NAME = "Diffuse regression coefficients", RESCALE_NAME="Rescale", OPTIMIZER_NAME = "Optimizer";
     public static final String EPS_DESC = "Precision", KF_DESC = "Kalman filter used for estimation", FAST_DESC = "Fast processing (Kohn-Ansley)", ALGORITHM_DESC = "Algorithm",
-            ZERO_DESC = "Zero initialization", TRUNCATED_DESC = "Lower bound for the estimated coefficient", DREGS_DESC = "Diffuse regression coefficients", RESCALE_DESC="Rescale the model";
-    public static final int EPS_ID = 0, KF_ID = 10, FAST_ID = 15, ZERO_ID = 20, TRUNCATED_ID = 25, DREGS_ID = 30, RESCALE_ID=40, ALGORITHM_ID=50;
+            ZERO_DESC = "Zero initialization", TRUNCATED_DESC = "Lower bound for the estimated coefficient", DREGS_DESC = "Diffuse regression coefficients", RESCALE_DESC="Rescale the model", OPTIMIZER_DESC = "Optimizer used for the estimation of rho";
+    public static final int EPS_ID = 0, KF_ID = 10, FAST_ID = 15, ZERO_ID = 20, TRUNCATED_ID = 25, DREGS_ID = 30, RESCALE_ID=40, ALGORITHM_ID=50, OPTIMIZER_ID = 5;
 
     @Override
     public String toString() {
@@ -58,6 +58,17 @@ public class AdvancedSpecUI extends BaseTemporalDisaggregationSpecUI {
                 .build());
     }
 
+    public TemporalDisaggregationSpec.Optimizer getOptimizer() {
+        return core().getOptimizer();
+    }
+
+    public void setOptimizer(TemporalDisaggregationSpec.Optimizer optimizer) {
+        update(core()
+                .toBuilder()
+                .optimizer(optimizer)
+                .build());
+    }
+
     public boolean isZeroInitialization() {
         return core().isZeroInitialization();
     }
@@ -134,6 +145,10 @@ public class AdvancedSpecUI extends BaseTemporalDisaggregationSpecUI {
         if (desc != null) {
             props.add(desc);
         }
+        desc = optimizerDesc();
+        if (desc != null) {
+            props.add(desc);
+        }
         desc = algorithmDesc();
         if (desc != null) {
             props.add(desc);
@@ -175,6 +190,20 @@ public class AdvancedSpecUI extends BaseTemporalDisaggregationSpecUI {
         }
     }
 
+    private EnhancedPropertyDescriptor optimizerDesc() {
+        try {
+            PropertyDescriptor desc = new PropertyDescriptor("Optimizer", this.getClass());
+            EnhancedPropertyDescriptor edesc = new EnhancedPropertyDescriptor(desc, OPTIMIZER_ID);
+            edesc.setRefreshMode(EnhancedPropertyDescriptor.Refresh.All);
+            desc.setDisplayName(OPTIMIZER_NAME);
+            desc.setShortDescription(OPTIMIZER_DESC);
+            edesc.setReadOnly(isRo() || !core().isParameterEstimation());
+            return edesc;
+        } catch (IntrospectionException ex) {
+            return null;
+        }
+    }
+
     private EnhancedPropertyDescriptor zeroDesc() {
         try {
             PropertyDescriptor desc = new PropertyDescriptor("ZeroInitialization", this.getClass());
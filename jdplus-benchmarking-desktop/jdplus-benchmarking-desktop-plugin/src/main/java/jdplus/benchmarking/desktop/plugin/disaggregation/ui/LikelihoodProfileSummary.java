@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * https://joinup.ec.europa.eu/software/page/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package jdplus.benchmarking.desktop.plugin.disaggregation.ui;
+
+import java.io.IOException;
+import java.util.List;
+import jdplus.benchmarking.base.api.univariate.TemporalDisaggregationSpec;
+import jdplus.benchmarking.base.core.univariate.LikelihoodProfile;
+import jdplus.benchmarking.base.core.univariate.TemporalDisaggregationDocument;
+import jdplus.benchmarking.base.core.univariate.TemporalDisaggregationProcessor;
+import jdplus.toolkit.base.api.timeseries.Ts;
+import jdplus.toolkit.base.api.timeseries.TsData;
+import jdplus.toolkit.desktop.plugin.html.AbstractHtmlElement;
+import jdplus.toolkit.desktop.plugin.html.HtmlStream;
+import jdplus.toolkit.desktop.plugin.html.HtmlTable;
+import jdplus.toolkit.desktop.plugin.html.HtmlTableCell;
+import jdplus.toolkit.desktop.plugin.html.HtmlTag;
+
+/**
+ * Profile of the concentrated likelihood in rho (Chow-Lin, Litterman).
+ * The profile is computed when the element is created.
+ *
+ * @author palatej
+ */
+public class LikelihoodProfileSummary extends AbstractHtmlElement {
+
+    public static final int NPOINTS = 200;
+
+    // half of the 95% quantile of a chi2(1)
+    private static final double LR95 = 1.920729;
+
+    private final LikelihoodProfile profile;
+
+    /**
+     *
+     * @param doc
+     * @return null if the model has no parameter
+     */
+    public static LikelihoodProfileSummary of(TemporalDisaggregationDocument doc) {
+        List<Ts> input = doc.getInput();
+        if (input == null || input.isEmpty()) {
+            return null;
+        }
+        TemporalDisaggregationSpec spec = doc.getSpecification();
+        TsData[] indicators = new TsData[input.size() - 1];
+        for (int i = 1; i < input.size(); ++i) {
+            indicators[i - 1] = input.get(i).getData();
+        }
+        LikelihoodProfile profile = TemporalDisaggregationProcessor.likelihoodProfile(input.get(0).getData(), indicators, spec, NPOINTS);
+        return profile == null ? null : new LikelihoodProfileSummary(profile);
+    }
+
+    private LikelihoodProfileSummary(LikelihoodProfile profile) {
+        this.profile = profile;
+    }
+
+    @Override
+    public void write(HtmlStream stream) throws IOException {
+        double[] rho = profile.getParameters(), ll = profile.getLogLikelihoods();
+        stream.write(HtmlTag.HEADER1, h1, "Likelihood profile");
+        stream.newLine();
+        int imax = profile.maximumPosition();
+        if (imax < 0) {
+            stream.write("The likelihood couldn't be computed");
+            return;
+        }
+        double llmax = ll[imax];
+        int lpos = imax, upos = imax;
+        while (lpos > 0 && ll[lpos - 1] >= llmax - LR95) {
+            --lpos;
+        }
+        while (upos < ll.length - 1 && ll[upos + 1] >= llmax - LR95) {
+            ++upos;
+        }
+        stream.write("Maximum on the grid: rho = ");
+        stream.write(df4.format(rho[imax]));
+        stream.write(", log-likelihood = ");
+        stream.write(format(llmax));
+        stream.write(HtmlTag.LINEBREAK);
+        stream.write("Likelihood-ratio 95% interval (on the grid): [");
+        stream.write(df4.format(rho[lpos]));
+        stream.write(", ");
+        stream.write(df4.format(rho[upos]));
+        stream.write("]");
+        stream.write(HtmlTag.LINEBREAK);
+
+        stream.write(HtmlTag.HEADER2, h2, "Profile");
+        stream.open(new HtmlTable(0, 300));
+        stream.open(HtmlTag.TABLEROW);
+        stream.write(new HtmlTableCell("Rho", 100));
+        stream.write(new HtmlTableCell("Log-likelihood", 100));
+        stream.write(new HtmlTableCell("Difference", 100));
+        stream.close(HtmlTag.TABLEROW);
+        for (int i = 0; i < rho.length; ++i) {
+            if (!Double.isFinite(ll[i])) {
+                continue;
+            }
+            stream.open(HtmlTag.TABLEROW);
+            stream.write(new HtmlTableCell(df4.format(rho[i]), 100));
+            stream.write(new HtmlTableCell(format(ll[i]), 100));
+            stream.write(new HtmlTableCell(format(ll[i] - llmax), 100));
+            stream.close(HtmlTag.TABLEROW);
+        }
+        stream.close(HtmlTag.TABLE);
+    }
+}
@@ -224,6 +224,25 @@ public class TemporalDisaggregationViewFactory extends ProcDocumentViewFactory<T
             return 2010;
         }
 
+    }
+
+    @ServiceProvider(service = IProcDocumentItemFactory.class, position = 2020)
+    public static class LikelihoodFactory extends ProcDocumentItemFactory<TemporalDisaggregationDocument, HtmlElement> {
+
+        public LikelihoodFactory() {
+            super(TemporalDisaggregationDocument.class,
+                    LIKELIHOOD_FN,
+                    s -> LikelihoodProfileSummary.of(s),
+                    new HtmlItemUI());
+            // the profile is computed in the background
+            setAsync(true);
+        }
+
+        @Override
+        public int getPosition() {
+            return 2020;
+        }
+
     }
     //</editor-fold>
 
@@ -292,17 +311,4 @@ public class TemporalDisaggregationViewFactory extends ProcDocumentViewFactory<T
         TemporalDisaggregationResults result = source.getResult();
         return result == null ? null : result.getResidualsDiagnostics().getFullResiduals();
     };
-
-//  private final static Function<TemporalDisaggregationDocument, TsData> LLEXTRACTOR = source -> {
-//        TemporalDisaggregationResults result = source.getResult();
-//        return result == null ? null : result.;
-//    };
-//        @ServiceProvider(service = IProcDocumentItemFactory.class, position = 306000)
-//    public static class LikelihoodFactory extends ItemFactory<Functions> {
-//
-//        public LikelihoodFactory() {
-//            super(LIKELIHOOD_FN, LikelihoodExtractor.INSTANCE, new SurfacePlotterUI());
-//            setAsync(true);
-//        }
-//  }
 }